@@ -0,0 +1,37 @@
+package github.abendt.highlander;
+
+/**
+ * The time source of the elections. Replaced in tests and simulations to run elections in virtual time.
+ */
+public interface ElectionClock {
+
+    ElectionClock SYSTEM = new ElectionClock() {
+        @Override
+        public long currentTimeMillis() {
+            return System.currentTimeMillis();
+        }
+
+        @Override
+        public long nanoTime() {
+            return System.nanoTime();
+        }
+    };
+
+    /**
+     * @return the wall-clock time written as heartbeat, see {@link System#currentTimeMillis()}
+     */
+    long currentTimeMillis();
+
+    /**
+     * @return the monotonic time that measures leases and durations, see {@link System#nanoTime()}
+     */
+    long nanoTime();
+
+    /**
+     * @return the milliseconds {@link #currentTimeMillis()} may be off from the clock the other participants
+     * stamp their heartbeats with, zero for a clock that is taken as exact
+     */
+    default long getUncertainty() {
+        return 0;
+    }
+}
@@ -0,0 +1,66 @@
+package github.abendt.highlander;
+
+/**
+ * A change of the leadership of a group as observed by one participant.
+ */
+public final class ElectionEvent {
+
+    /**
+     * The version of an event whose election did not reveal the version of the group.
+     */
+    public static final long UNKNOWN_VERSION = -1;
+
+    private final String groupName;
+    private final String leaderId;
+    private final boolean leader;
+    private final long version;
+    private final long timestamp;
+
+    public ElectionEvent(String groupName, String leaderId, boolean leader, long version, long timestamp) {
+        this.groupName = groupName;
+        this.leaderId = leaderId;
+        this.leader = leader;
+        this.version = version;
+        this.timestamp = timestamp;
+    }
+
+    public String getGroupName() {
+        return groupName;
+    }
+
+    /**
+     * @return the id of the elected participant or null if the group has no known leader
+     */
+    public String getLeaderId() {
+        return leaderId;
+    }
+
+    /**
+     * @return true if the participant receiving this event is the leader
+     */
+    public boolean isLeader() {
+        return leader;
+    }
+
+    public long getVersion() {
+        return version;
+    }
+
+    /**
+     * @return the time of the election in milliseconds since the epoch
+     */
+    public long getTimestamp() {
+        return timestamp;
+    }
+
+    @Override
+    public String toString() {
+        return "ElectionEvent{" +
+                "groupName='" + groupName + '\'' +
+                ", leaderId='" + leaderId + '\'' +
+                ", leader=" + leader +
+                ", version=" + version +
+                ", timestamp=" + timestamp +
+                '}';
+    }
+}
@@ -4,4 +4,12 @@ public interface ElectionListener {
 
     void groupChanged(boolean leader);
 
+    /**
+     * Called when the participant gains or loses the leadership of a group. Listeners that need more than
+     * the leadership flag override this method; by default it calls {@link #groupChanged(boolean)}.
+     */
+    default void electionChanged(ElectionEvent event) {
+        groupChanged(event.isLeader());
+    }
+
 }
@@ -0,0 +1,82 @@
+package github.abendt.highlander;
+
+/**
+ * Receives measurements of the elections of a participant. All methods do nothing by default, so an
+ * implementation only overrides what it records. They are called on the election thread with primitive
+ * arguments and must not block.
+ */
+public interface ElectionMetrics {
+
+    /**
+     * Records nothing.
+     */
+    ElectionMetrics NONE = new ElectionMetrics() {
+    };
+
+    /**
+     * A participant started taking part in the elections of the group.
+     */
+    default void participantStarted(String groupName) {
+    }
+
+    /**
+     * A participant stopped taking part in the elections of the group. Once every participant that started
+     * stopped, the group may be forgotten.
+     */
+    default void participantStopped(String groupName) {
+    }
+
+    /**
+     * A connection for an election was acquired.
+     */
+    default void connectionAcquired(String groupName, long nanos) {
+    }
+
+    /**
+     * An election completed.
+     *
+     * @param nanos      the duration of the election including the connection acquisition
+     * @param roundTrips the statements sent to the database
+     * @param leader     the result of the election
+     */
+    default void electionCompleted(String groupName, long nanos, int roundTrips, boolean leader) {
+    }
+
+    /**
+     * An election failed with an exception.
+     */
+    default void electionFailed(String groupName) {
+    }
+
+    /**
+     * An election found the version of the group changed by another participant and had to reload it.
+     */
+    default void versionConflicts(String groupName, int conflicts) {
+    }
+
+    /**
+     * The leader renewed its heartbeat.
+     *
+     * @param lagMillis       the time since the previous renewal
+     * @param maxHeartBeatAge the age at which the heartbeat becomes too old
+     */
+    default void heartBeatLag(String groupName, long lagMillis, long maxHeartBeatAge) {
+    }
+
+    /**
+     * The participant became the leader.
+     *
+     * @param failoverNanos the time since this participant last saw another leader,
+     *                      negative if it did not see one before
+     */
+    default void leadershipGained(String groupName, long failoverNanos) {
+    }
+
+    /**
+     * The participant is no longer the leader.
+     *
+     * @param tenureNanos the time since the participant became the leader
+     */
+    default void leadershipLost(String groupName, long tenureNanos) {
+    }
+}
@@ -0,0 +1,53 @@
+package github.abendt.highlander;
+
+/**
+ * Stores the leases of the groups. Every operation is an atomic compare-and-set on the lease of one group
+ * and returns the lease stored afterwards, so a caller learns the outcome and the current leader in one call.
+ * Implementations must be thread-safe.
+ */
+public interface ElectionStore {
+
+    /**
+     * @return the current lease or null if no participant ever claimed the group
+     */
+    Lease load(String groupName);
+
+    /**
+     * Makes the participant the leader if the group is free, its lease is older than {@code maxHeartBeatAge}
+     * or the participant already holds it.
+     *
+     * @return the lease stored afterwards, never null
+     */
+    Lease claim(String groupName, String participantId, long now, long maxHeartBeatAge);
+
+    /**
+     * Renews the heartbeat if the stored lease still has the version of the given one.
+     *
+     * @return the lease stored afterwards, null if the group has no lease
+     */
+    Lease renew(Lease lease, long now);
+
+    /**
+     * Renews the heartbeat like {@link #renew(Lease, long)}, for a leader that renews every heartbeat without a
+     * lease to allocate. A store that renews with a single conditional write overrides it.
+     *
+     * @return the version stored by the renewal, {@link ElectionEvent#UNKNOWN_VERSION} if the lease changed
+     */
+    default long renew(String groupName, String leaderId, long version, long now) {
+        Lease renewed = renew(new Lease(groupName, leaderId, now, version), now);
+
+        if (renewed != null && renewed.isHeldBy(leaderId) && renewed.getVersion() > version) {
+            return renewed.getVersion();
+        }
+
+        return ElectionEvent.UNKNOWN_VERSION;
+    }
+
+    /**
+     * Gives up the given lease if the stored lease still has its version. The group is left to the successor
+     * with a fresh heartbeat, or left free if the successor is null.
+     *
+     * @return the lease stored afterwards, null if the group has no lease
+     */
+    Lease release(Lease lease, String successorId, long now);
+}
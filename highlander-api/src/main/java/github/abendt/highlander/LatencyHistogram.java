@@ -0,0 +1,95 @@
+package github.abendt.highlander;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * A lock-free histogram of non-negative values with logarithmic buckets. Every power of two is split into four
+ * buckets, so a percentile is reported with a relative error of at most 25%. Recording does not allocate.
+ */
+public class LatencyHistogram {
+
+    private static final int BUCKETS = 4 * 63;
+
+    private final AtomicLongArray counts = new AtomicLongArray(BUCKETS);
+    private final AtomicLong count = new AtomicLong();
+    private final AtomicLong sum = new AtomicLong();
+    private final AtomicLong max = new AtomicLong();
+
+    public void record(long value) {
+        if (value < 0) {
+            value = 0;
+        }
+
+        counts.incrementAndGet(bucket(value));
+        count.incrementAndGet();
+        sum.addAndGet(value);
+
+        long currentMax = max.get();
+
+        while (value > currentMax && !max.compareAndSet(currentMax, value)) {
+            currentMax = max.get();
+        }
+    }
+
+    public long getCount() {
+        return count.get();
+    }
+
+    public double getMean() {
+        long currentCount = count.get();
+
+        return currentCount == 0 ? 0 : (double) sum.get() / currentCount;
+    }
+
+    public long getMax() {
+        return max.get();
+    }
+
+    /**
+     * @param percentile between 0 and 100
+     * @return the upper bound of the bucket that holds the given percentile, 0 if nothing was recorded
+     */
+    public long getPercentile(double percentile) {
+        long currentCount = count.get();
+
+        if (currentCount == 0) {
+            return 0;
+        }
+
+        long rank = (long) Math.ceil(currentCount * Math.min(100, Math.max(0, percentile)) / 100);
+        long seen = 0;
+
+        for (int i = 0; i < BUCKETS; ++i) {
+            seen += counts.get(i);
+
+            if (seen >= rank && seen > 0) {
+                return Math.min(upperBound(i), max.get());
+            }
+        }
+
+        return max.get();
+    }
+
+    static int bucket(long value) {
+        if (value < 4) {
+            return (int) value;
+        }
+
+        int exponent = 63 - Long.numberOfLeadingZeros(value);
+        int mantissa = (int) (value >>> (exponent - 2)) & 3;
+
+        return 4 * (exponent - 1) + mantissa;
+    }
+
+    static long upperBound(int bucket) {
+        if (bucket < 4) {
+            return bucket;
+        }
+
+        int exponent = bucket / 4 + 1;
+        long lowerBound = (4L + bucket % 4) << (exponent - 2);
+
+        return lowerBound + (1L << (exponent - 2)) - 1;
+    }
+}
@@ -0,0 +1,58 @@
+package github.abendt.highlander;
+
+/**
+ * The leader of a group as observed by a {@link LeaderDirectory}, valid until its lease expires.
+ */
+public final class Leader {
+
+    private final String groupName;
+    private final String leaderId;
+    private final String endpoint;
+    private final long version;
+    private final long expiresAt;
+
+    public Leader(String groupName, String leaderId, String endpoint, long version, long expiresAt) {
+        this.groupName = groupName;
+        this.leaderId = leaderId;
+        this.endpoint = endpoint;
+        this.version = version;
+        this.expiresAt = expiresAt;
+    }
+
+    public String getGroupName() {
+        return groupName;
+    }
+
+    public String getLeaderId() {
+        return leaderId;
+    }
+
+    /**
+     * @return the endpoint advertised by the leader, null if it advertises none
+     */
+    public String getEndpoint() {
+        return endpoint;
+    }
+
+    public long getVersion() {
+        return version;
+    }
+
+    /**
+     * @return the time in milliseconds since the epoch when the lease of the leader expires unless it is renewed
+     */
+    public long getExpiresAt() {
+        return expiresAt;
+    }
+
+    @Override
+    public String toString() {
+        return "Leader{" +
+                "groupName='" + groupName + '\'' +
+                ", leaderId='" + leaderId + '\'' +
+                ", endpoint='" + endpoint + '\'' +
+                ", version=" + version +
+                ", expiresAt=" + expiresAt +
+                '}';
+    }
+}
@@ -0,0 +1,12 @@
+package github.abendt.highlander;
+
+/**
+ * Resolves the current leader of any group, e.g. to route requests to it. Lookups are answered from memory.
+ */
+public interface LeaderDirectory {
+
+    /**
+     * @return the leader of the group, null if the group is unknown, has no leader or the lease of its leader expired
+     */
+    Leader getLeader(String groupName);
+}
@@ -0,0 +1,51 @@
+package github.abendt.highlander;
+
+/**
+ * A change of the leader of a group as published by a {@link LeadershipFeed}.
+ */
+public final class LeadershipChange {
+
+    private final String groupName;
+    private final String leaderId;
+    private final long version;
+    private final long changeSequence;
+
+    public LeadershipChange(String groupName, String leaderId, long version, long changeSequence) {
+        this.groupName = groupName;
+        this.leaderId = leaderId;
+        this.version = version;
+        this.changeSequence = changeSequence;
+    }
+
+    public String getGroupName() {
+        return groupName;
+    }
+
+    /**
+     * @return the new leader, null if the group has no leader any longer
+     */
+    public String getLeaderId() {
+        return leaderId;
+    }
+
+    public long getVersion() {
+        return version;
+    }
+
+    /**
+     * @return the position of the change in the feed, increasing with every change of any group
+     */
+    public long getChangeSequence() {
+        return changeSequence;
+    }
+
+    @Override
+    public String toString() {
+        return "LeadershipChange{" +
+                "groupName='" + groupName + '\'' +
+                ", leaderId='" + leaderId + '\'' +
+                ", version=" + version +
+                ", changeSequence=" + changeSequence +
+                '}';
+    }
+}
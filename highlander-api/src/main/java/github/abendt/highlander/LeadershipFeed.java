@@ -0,0 +1,39 @@
+package github.abendt.highlander;
+
+/**
+ * Publishes the changes of the leaders of many groups. A subscriber first receives the current leaders and then
+ * their changes, but never more than it requested. While it does not request more, the changes of a group are
+ * merged into the latest one, so a slow subscriber does not hold up the feed and only skips intermediate leaders.
+ */
+public interface LeadershipFeed {
+
+    void subscribe(Subscriber subscriber);
+
+    /**
+     * Receives the changes from the thread of the feed, one at a time.
+     */
+    interface Subscriber {
+
+        /**
+         * Called once before any change, changes are only delivered after they were requested from the subscription.
+         */
+        void onSubscribe(Subscription subscription);
+
+        void onChange(LeadershipChange change);
+
+        /**
+         * Called at most once, no further changes are delivered afterwards.
+         */
+        void onError(Throwable error);
+    }
+
+    interface Subscription {
+
+        /**
+         * Requests the given number of further changes, {@link Long#MAX_VALUE} for all of them.
+         */
+        void request(long n);
+
+        void cancel();
+    }
+}
@@ -0,0 +1,63 @@
+package github.abendt.highlander;
+
+/**
+ * The leadership of a group as stored in an {@link ElectionStore}. Every change of the leader or the heartbeat
+ * stores a new lease with a higher version.
+ */
+public final class Lease {
+
+    private final String groupName;
+    private final String leaderId;
+    private final long heartBeat;
+    private final long version;
+
+    public Lease(String groupName, String leaderId, long heartBeat, long version) {
+        this.groupName = groupName;
+        this.leaderId = leaderId;
+        this.heartBeat = heartBeat;
+        this.version = version;
+    }
+
+    public String getGroupName() {
+        return groupName;
+    }
+
+    /**
+     * @return the id of the leader or null if the group is free
+     */
+    public String getLeaderId() {
+        return leaderId;
+    }
+
+    /**
+     * @return the time of the last renewal in milliseconds since the epoch
+     */
+    public long getHeartBeat() {
+        return heartBeat;
+    }
+
+    public long getVersion() {
+        return version;
+    }
+
+    public boolean isHeldBy(String participantId) {
+        return leaderId != null && leaderId.equals(participantId);
+    }
+
+    /**
+     * @return true if the group is free or its leader missed the renewal
+     */
+    public boolean isClaimable(long now, long maxHeartBeatAge) {
+        return leaderId == null || heartBeat < now - maxHeartBeatAge;
+    }
+
+    @Override
+    public String toString() {
+        return "Lease{" +
+                "groupName='" + groupName + '\'' +
+                ", leaderId='" + leaderId + '\'' +
+                ", heartBeat=" + heartBeat +
+                ", version=" + version +
+                '}';
+    }
+}
@@ -0,0 +1,14 @@
+package github.abendt.highlander;
+
+import java.util.Set;
+
+/**
+ * Is told which shards of a group a participant owns.
+ */
+public interface ShardListener {
+
+    /**
+     * @param shards the numbers of the owned shards, empty if the participant owns none
+     */
+    void shardsChanged(String groupName, Set<Integer> shards);
+}
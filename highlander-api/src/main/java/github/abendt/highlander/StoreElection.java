@@ -0,0 +1,181 @@
+package github.abendt.highlander;
+
+import java.util.UUID;
+
+/**
+ * Elects the leader of one group for one participant on an {@link ElectionStore}. A leader renews the lease it
+ * holds with one compare-and-set; everyone else tries to claim the group, which also tells who is the leader.
+ * A heartbeat counts as too old only after the {@link ElectionClock#getUncertainty() uncertainty} of the clock
+ * on top of the maximum heartbeat age. Not thread-safe, the caller runs one operation at a time.
+ */
+public class StoreElection {
+
+    private final ElectionStore store;
+    private final String groupName;
+    private final String participantId;
+
+    private int maxHeartBeatAge = 1000 * 10;
+    private ElectionClock clock = ElectionClock.SYSTEM;
+    // the observed lease, kept apart so a renewal allocates nothing
+    private String observedLeader;
+    private long observedHeartBeat;
+    private long observedVersion = ElectionEvent.UNKNOWN_VERSION;
+    private int roundTrips;
+    private int versionConflicts;
+
+    public StoreElection(ElectionStore store, String groupName) {
+        this(store, groupName, UUID.randomUUID().toString());
+    }
+
+    public StoreElection(ElectionStore store, String groupName, String participantId) {
+        this.store = store;
+        this.groupName = groupName;
+        this.participantId = participantId;
+    }
+
+    public void setMaxHeartBeatAge(int maxHeartBeatAge) {
+        this.maxHeartBeatAge = maxHeartBeatAge;
+    }
+
+    public void setClock(ElectionClock clock) {
+        this.clock = clock;
+    }
+
+    /**
+     * @return the milliseconds the clock that stamps the heartbeats may be off, by which a leader shortens the
+     * lease it relies on. Another participant may be off by its own uncertainty, which it adds to the maximum age.
+     */
+    public long getClockUncertainty() {
+        return clock.getUncertainty();
+    }
+
+    public int getMaxHeartBeatAge() {
+        return maxHeartBeatAge;
+    }
+
+    public String getGroupName() {
+        return groupName;
+    }
+
+    public String getParticipantId() {
+        return participantId;
+    }
+
+    /**
+     * @return the leader of the group as observed by the last operation, null if the group had no leader
+     */
+    public String getLeaderId() {
+        return observedLeader;
+    }
+
+    /**
+     * @return the version of the group as observed by the last operation
+     */
+    public long getVersion() {
+        return observedVersion;
+    }
+
+    /**
+     * @return the calls to the store made by the last operation
+     */
+    public int getRoundTrips() {
+        return roundTrips;
+    }
+
+    /**
+     * @return the renewals of the last operation that found the lease changed by another participant
+     */
+    public int getVersionConflicts() {
+        return versionConflicts;
+    }
+
+    public boolean runElection() {
+        begin();
+        long now = clock.currentTimeMillis();
+
+        if (participantId.equals(observedLeader)) {
+            roundTrips++;
+            long renewedVersion = store.renew(groupName, participantId, observedVersion, now);
+
+            if (renewedVersion != ElectionEvent.UNKNOWN_VERSION) {
+                observedHeartBeat = now;
+                observedVersion = renewedVersion;
+                return true;
+            }
+
+            versionConflicts++;
+        }
+
+        roundTrips++;
+        observe(store.claim(groupName, participantId, now, maxHeartBeatAge()));
+
+        return participantId.equals(observedLeader);
+    }
+
+    public void giveUpLeaderShip() {
+        handOverLeaderShip(null);
+    }
+
+    /**
+     * @return true if the successor is the leader afterwards
+     */
+    public boolean handOverLeaderShip(String successorId) {
+        begin();
+
+        Lease held = participantId.equals(observedLeader)
+                ? new Lease(groupName, observedLeader, observedHeartBeat, observedVersion)
+                : null;
+
+        if (held == null) {
+            roundTrips++;
+            held = store.load(groupName);
+        }
+
+        // a renewal that was applied but not confirmed left a newer version, which the failed release returns
+        while (held != null && held.isHeldBy(participantId)) {
+            roundTrips++;
+            held = store.release(held, successorId, clock.currentTimeMillis());
+        }
+
+        observe(held);
+
+        return successorId != null && held != null && held.isHeldBy(successorId);
+    }
+
+    /**
+     * @return the milliseconds until the lease of another leader expires, zero or less if the group
+     * has no leader, its lease expired or this participant holds it
+     */
+    public long probeLease() {
+        begin();
+        roundTrips++;
+
+        Lease current = store.load(groupName);
+
+        if (current == null || current.getLeaderId() == null || current.isHeldBy(participantId)) {
+            return 0;
+        }
+
+        observe(current);
+
+        return current.getHeartBeat() + maxHeartBeatAge() - clock.currentTimeMillis();
+    }
+
+    /**
+     * @return the age after which another participant takes the heartbeat of the leader as too old
+     */
+    private long maxHeartBeatAge() {
+        return maxHeartBeatAge + clock.getUncertainty();
+    }
+
+    private void observe(Lease lease) {
+        observedLeader = lease != null ? lease.getLeaderId() : null;
+        observedHeartBeat = lease != null ? lease.getHeartBeat() : 0;
+        observedVersion = lease != null ? lease.getVersion() : ElectionEvent.UNKNOWN_VERSION;
+    }
+
+    private void begin() {
+        roundTrips = 0;
+        versionConflicts = 0;
+    }
+}
@@ -0,0 +1,129 @@
+package github.abendt.highlander.jmx;
+
+import github.abendt.highlander.LatencyHistogram;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+class ElectionStatistics implements ElectionStatisticsMBean {
+
+    private final String groupName;
+
+    final LatencyHistogram electionLatency = new LatencyHistogram();
+    final LatencyHistogram connectionAcquisition = new LatencyHistogram();
+
+    final AtomicLong failedElections = new AtomicLong();
+    final AtomicLong roundTrips = new AtomicLong();
+    final AtomicLong versionConflicts = new AtomicLong();
+    final AtomicLong leadershipChanges = new AtomicLong();
+
+    volatile long heartBeatLagMillis;
+    volatile long maxHeartBeatLagMillis;
+    volatile long maxHeartBeatAge;
+
+    volatile boolean leader;
+    volatile long lastFailoverNanos = -1;
+    volatile long lastTenureNanos = -1;
+
+    // guarded by the JmxElectionMetrics that records them
+    int participants;
+    volatile boolean exported;
+
+    ElectionStatistics(String groupName) {
+        this.groupName = groupName;
+    }
+
+    @Override
+    public String getGroupName() {
+        return groupName;
+    }
+
+    @Override
+    public long getElections() {
+        return electionLatency.getCount();
+    }
+
+    @Override
+    public long getFailedElections() {
+        return failedElections.get();
+    }
+
+    @Override
+    public double getElectionLatencyMeanMicros() {
+        return electionLatency.getMean() / 1000;
+    }
+
+    @Override
+    public long getElectionLatencyP50Micros() {
+        return TimeUnit.NANOSECONDS.toMicros(electionLatency.getPercentile(50));
+    }
+
+    @Override
+    public long getElectionLatencyP99Micros() {
+        return TimeUnit.NANOSECONDS.toMicros(electionLatency.getPercentile(99));
+    }
+
+    @Override
+    public long getElectionLatencyMaxMicros() {
+        return TimeUnit.NANOSECONDS.toMicros(electionLatency.getMax());
+    }
+
+    @Override
+    public double getRoundTripsPerElection() {
+        long elections = electionLatency.getCount();
+
+        return elections == 0 ? 0 : (double) roundTrips.get() / elections;
+    }
+
+    @Override
+    public long getVersionConflicts() {
+        return versionConflicts.get();
+    }
+
+    @Override
+    public long getHeartBeatLagMillis() {
+        return heartBeatLagMillis;
+    }
+
+    @Override
+    public long getMaxHeartBeatLagMillis() {
+        return maxHeartBeatLagMillis;
+    }
+
+    @Override
+    public double getHeartBeatLagRatio() {
+        long maxAge = maxHeartBeatAge;
+
+        return maxAge == 0 ? 0 : (double) heartBeatLagMillis / maxAge;
+    }
+
+    @Override
+    public boolean isLeader() {
+        return leader;
+    }
+
+    @Override
+    public long getLeadershipChanges() {
+        return leadershipChanges.get();
+    }
+
+    @Override
+    public long getLastFailoverMillis() {
+        return lastFailoverNanos < 0 ? -1 : TimeUnit.NANOSECONDS.toMillis(lastFailoverNanos);
+    }
+
+    @Override
+    public long getLastTenureMillis() {
+        return lastTenureNanos < 0 ? -1 : TimeUnit.NANOSECONDS.toMillis(lastTenureNanos);
+    }
+
+    @Override
+    public double getConnectionAcquisitionMeanMicros() {
+        return connectionAcquisition.getMean() / 1000;
+    }
+
+    @Override
+    public long getConnectionAcquisitionP99Micros() {
+        return TimeUnit.NANOSECONDS.toMicros(connectionAcquisition.getPercentile(99));
+    }
+}
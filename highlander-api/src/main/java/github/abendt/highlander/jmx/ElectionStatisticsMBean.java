@@ -0,0 +1,46 @@
+package github.abendt.highlander.jmx;
+
+/**
+ * The election statistics of one group as exported by {@link JmxElectionMetrics}.
+ */
+public interface ElectionStatisticsMBean {
+
+    String getGroupName();
+
+    long getElections();
+
+    long getFailedElections();
+
+    double getElectionLatencyMeanMicros();
+
+    long getElectionLatencyP50Micros();
+
+    long getElectionLatencyP99Micros();
+
+    long getElectionLatencyMaxMicros();
+
+    double getRoundTripsPerElection();
+
+    long getVersionConflicts();
+
+    long getHeartBeatLagMillis();
+
+    long getMaxHeartBeatLagMillis();
+
+    /**
+     * @return the last heartbeat lag relative to the maximum heartbeat age, the leadership is at risk close to 1
+     */
+    double getHeartBeatLagRatio();
+
+    boolean isLeader();
+
+    long getLeadershipChanges();
+
+    long getLastFailoverMillis();
+
+    long getLastTenureMillis();
+
+    double getConnectionAcquisitionMeanMicros();
+
+    long getConnectionAcquisitionP99Micros();
+}
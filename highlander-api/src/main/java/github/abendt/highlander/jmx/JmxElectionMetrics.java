@@ -0,0 +1,161 @@
+package github.abendt.highlander.jmx;
+
+import github.abendt.highlander.ElectionMetrics;
+
+import javax.management.InstanceAlreadyExistsException;
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import java.lang.management.ManagementFactory;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * Records the election metrics per group and exports them as MBeans named
+ * {@code github.abendt.highlander:type=Election,group="<group name>"}. The MBean of a group is unregistered when
+ * the last participant of the group that started stops, or when the metrics are closed.
+ */
+public class JmxElectionMetrics implements ElectionMetrics, AutoCloseable {
+
+    public static final String DOMAIN = "github.abendt.highlander";
+
+    private final MBeanServer mBeanServer;
+    private final ConcurrentMap<String, ElectionStatistics> statistics = new ConcurrentHashMap<String, ElectionStatistics>();
+
+    public JmxElectionMetrics() {
+        this(ManagementFactory.getPlatformMBeanServer());
+    }
+
+    public JmxElectionMetrics(MBeanServer mBeanServer) {
+        this.mBeanServer = mBeanServer;
+    }
+
+    public static ObjectName objectName(String groupName) {
+        try {
+            return new ObjectName(DOMAIN + ":type=Election,group=" + ObjectName.quote(groupName));
+        } catch (JMException e) {
+            throw new IllegalArgumentException(e);
+        }
+    }
+
+    @Override
+    public synchronized void participantStarted(String groupName) {
+        statistics(groupName).participants++;
+    }
+
+    @Override
+    public synchronized void participantStopped(String groupName) {
+        ElectionStatistics groupStatistics = statistics.get(groupName);
+
+        if (groupStatistics != null && --groupStatistics.participants <= 0) {
+            unregister(groupName, groupStatistics);
+        }
+    }
+
+    @Override
+    public void connectionAcquired(String groupName, long nanos) {
+        statistics(groupName).connectionAcquisition.record(nanos);
+    }
+
+    @Override
+    public void electionCompleted(String groupName, long nanos, int roundTrips, boolean leader) {
+        ElectionStatistics groupStatistics = statistics(groupName);
+
+        groupStatistics.electionLatency.record(nanos);
+        groupStatistics.roundTrips.addAndGet(roundTrips);
+        groupStatistics.leader = leader;
+    }
+
+    @Override
+    public void electionFailed(String groupName) {
+        statistics(groupName).failedElections.incrementAndGet();
+    }
+
+    @Override
+    public void versionConflicts(String groupName, int conflicts) {
+        statistics(groupName).versionConflicts.addAndGet(conflicts);
+    }
+
+    @Override
+    public void heartBeatLag(String groupName, long lagMillis, long maxHeartBeatAge) {
+        ElectionStatistics groupStatistics = statistics(groupName);
+
+        groupStatistics.heartBeatLagMillis = lagMillis;
+        groupStatistics.maxHeartBeatAge = maxHeartBeatAge;
+
+        if (lagMillis > groupStatistics.maxHeartBeatLagMillis) {
+            groupStatistics.maxHeartBeatLagMillis = lagMillis;
+        }
+    }
+
+    @Override
+    public void leadershipGained(String groupName, long failoverNanos) {
+        ElectionStatistics groupStatistics = statistics(groupName);
+
+        groupStatistics.leader = true;
+        groupStatistics.leadershipChanges.incrementAndGet();
+
+        if (failoverNanos >= 0) {
+            groupStatistics.lastFailoverNanos = failoverNanos;
+        }
+    }
+
+    @Override
+    public void leadershipLost(String groupName, long tenureNanos) {
+        ElectionStatistics groupStatistics = statistics(groupName);
+
+        groupStatistics.leader = false;
+        groupStatistics.leadershipChanges.incrementAndGet();
+        groupStatistics.lastTenureNanos = tenureNanos;
+    }
+
+    /**
+     * Removes the MBeans of all groups.
+     */
+    @Override
+    public synchronized void close() {
+        for (Map.Entry<String, ElectionStatistics> entry : statistics.entrySet()) {
+            unregister(entry.getKey(), entry.getValue());
+        }
+    }
+
+    private void unregister(String groupName, ElectionStatistics groupStatistics) {
+        if (!statistics.remove(groupName, groupStatistics) || !groupStatistics.exported) {
+            return;
+        }
+
+        try {
+            mBeanServer.unregisterMBean(objectName(groupName));
+        } catch (JMException e) {
+            // already unregistered
+        }
+    }
+
+    private ElectionStatistics statistics(String groupName) {
+        ElectionStatistics groupStatistics = statistics.get(groupName);
+
+        if (groupStatistics != null) {
+            return groupStatistics;
+        }
+
+        groupStatistics = new ElectionStatistics(groupName);
+
+        ElectionStatistics existing = statistics.putIfAbsent(groupName, groupStatistics);
+
+        if (existing != null) {
+            return existing;
+        }
+
+        try {
+            mBeanServer.registerMBean(groupStatistics, objectName(groupName));
+            groupStatistics.exported = true;
+        } catch (InstanceAlreadyExistsException e) {
+            // the group is exported by another instance, record without exporting
+        } catch (JMException e) {
+            throw new IllegalStateException("cannot register election statistics of group " + groupName, e);
+        }
+
+        return groupStatistics;
+    }
+}
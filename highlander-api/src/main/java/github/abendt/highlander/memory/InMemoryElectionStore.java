@@ -0,0 +1,77 @@
+package github.abendt.highlander.memory;
+
+import github.abendt.highlander.ElectionStore;
+import github.abendt.highlander.Lease;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * Keeps the leases in the memory of this JVM. Every operation is a compare-and-set of the immutable lease of the
+ * group, so participants never block each other. Meant for single-JVM deployments and tests.
+ */
+public class InMemoryElectionStore implements ElectionStore {
+
+    // Lease does not override equals, so replace(group, expected, update) compares by identity
+    private final ConcurrentMap<String, Lease> leases = new ConcurrentHashMap<String, Lease>();
+
+    @Override
+    public Lease load(String groupName) {
+        return leases.get(groupName);
+    }
+
+    @Override
+    public Lease claim(String groupName, String participantId, long now, long maxHeartBeatAge) {
+        while (true) {
+            Lease current = leases.get(groupName);
+
+            if (current == null) {
+                Lease claimed = new Lease(groupName, participantId, now, 0);
+
+                current = leases.putIfAbsent(groupName, claimed);
+
+                if (current == null) {
+                    return claimed;
+                }
+            }
+
+            if (!current.isHeldBy(participantId) && !current.isClaimable(now, maxHeartBeatAge)) {
+                return current;
+            }
+
+            Lease claimed = new Lease(groupName, participantId, now, current.getVersion() + 1);
+
+            if (leases.replace(groupName, current, claimed)) {
+                return claimed;
+            }
+        }
+    }
+
+    @Override
+    public Lease renew(Lease lease, long now) {
+        return update(lease, lease.getLeaderId(), now);
+    }
+
+    @Override
+    public Lease release(Lease lease, String successorId, long now) {
+        return update(lease, successorId, now);
+    }
+
+    private Lease update(Lease lease, String leaderId, long now) {
+        String groupName = lease.getGroupName();
+
+        while (true) {
+            Lease current = leases.get(groupName);
+
+            if (current == null || current.getVersion() != lease.getVersion()) {
+                return current;
+            }
+
+            Lease updated = new Lease(groupName, leaderId, now, current.getVersion() + 1);
+
+            if (leases.replace(groupName, current, updated)) {
+                return updated;
+            }
+        }
+    }
+}
@@ -0,0 +1,139 @@
+package github.abendt.highlander;
+
+import github.abendt.highlander.memory.InMemoryElectionStore;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.*;
+
+import static org.fest.assertions.api.Assertions.assertThat;
+
+public class StoreElectionTest {
+
+    private final InMemoryElectionStore store = new InMemoryElectionStore();
+
+    @Test
+    public void oneParticipantWinsOnEmptyStore() {
+        StoreElection election = new StoreElection(store, "Group");
+
+        assertThat(election.runElection()).isTrue();
+        assertThat(election.getLeaderId()).isEqualTo(election.getParticipantId());
+        assertThat(election.getVersion()).isEqualTo(0);
+    }
+
+    @Test
+    public void withTwoParticipantsSecondOneLooses() {
+        StoreElection election1 = new StoreElection(store, "Group");
+        StoreElection election2 = new StoreElection(store, "Group");
+
+        assertThat(election1.runElection()).isTrue();
+        assertThat(election2.runElection()).isFalse();
+        assertThat(election2.getLeaderId()).isEqualTo(election1.getParticipantId());
+    }
+
+    @Test
+    public void renewalTakesOneRoundTrip() {
+        StoreElection election = new StoreElection(store, "Group");
+
+        election.runElection();
+
+        assertThat(election.runElection()).isTrue();
+        assertThat(election.getRoundTrips()).isEqualTo(1);
+        assertThat(election.getVersion()).isEqualTo(1);
+    }
+
+    @Test
+    public void winsElectionWhenPreviousHeartBeatIsTooOld() {
+        store.claim("Group", "SomeOne", System.currentTimeMillis() - 60 * 60 * 1000, 0);
+
+        assertThat(new StoreElection(store, "Group").runElection()).isTrue();
+    }
+
+    @Test
+    public void leaderThatLostItsLeaseLearnsAboutNewLeader() {
+        StoreElection election1 = new StoreElection(store, "Group");
+        StoreElection election2 = new StoreElection(store, "Group");
+
+        election1.setMaxHeartBeatAge(-1);
+        election2.setMaxHeartBeatAge(-1);
+
+        election1.runElection();
+        election2.runElection();
+
+        election1.setMaxHeartBeatAge(60 * 1000);
+
+        assertThat(election1.runElection()).isFalse();
+        assertThat(election1.getVersionConflicts()).isEqualTo(1);
+        assertThat(election1.getLeaderId()).isEqualTo(election2.getParticipantId());
+    }
+
+    @Test
+    public void participantCanGiveUpLeadership() {
+        StoreElection election1 = new StoreElection(store, "Group");
+        StoreElection election2 = new StoreElection(store, "Group");
+
+        election1.runElection();
+        election1.giveUpLeaderShip();
+
+        assertThat(store.load("Group").getLeaderId()).isNull();
+        assertThat(election2.runElection()).isTrue();
+    }
+
+    @Test
+    public void leaderCanHandOverToSuccessor() {
+        StoreElection election1 = new StoreElection(store, "Group");
+        StoreElection election2 = new StoreElection(store, "Group");
+
+        election1.runElection();
+
+        assertThat(election1.handOverLeaderShip(election2.getParticipantId())).isTrue();
+        assertThat(election1.runElection()).isFalse();
+        assertThat(election2.runElection()).isTrue();
+    }
+
+    @Test
+    public void probeReportsRemainingLeaseOfLeader() {
+        StoreElection election1 = new StoreElection(store, "Group");
+        StoreElection election2 = new StoreElection(store, "Group");
+
+        election1.runElection();
+
+        assertThat(election2.probeLease()).isGreaterThan(0);
+        assertThat(election1.probeLease()).isEqualTo(0);
+    }
+
+    @Test
+    public void concurrentParticipantsElectExactlyOneLeader() throws Exception {
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+
+        try {
+            final CyclicBarrier barrier = new CyclicBarrier(8);
+            List<Future<Boolean>> results = new ArrayList<Future<Boolean>>();
+
+            for (int i = 0; i < 8; ++i) {
+                results.add(executor.submit(new Callable<Boolean>() {
+                    @Override
+                    public Boolean call() throws Exception {
+                        StoreElection election = new StoreElection(store, "Group");
+
+                        barrier.await();
+                        return election.runElection();
+                    }
+                }));
+            }
+
+            int leaders = 0;
+
+            for (Future<Boolean> result : results) {
+                if (result.get()) {
+                    ++leaders;
+                }
+            }
+
+            assertThat(leaders).isEqualTo(1);
+        } finally {
+            executor.shutdown();
+        }
+    }
+}
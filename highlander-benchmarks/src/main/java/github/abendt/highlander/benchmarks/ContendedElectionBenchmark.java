@@ -0,0 +1,70 @@
+package github.abendt.highlander.benchmarks;
+
+import github.abendt.highlander.jdbc.JdbcElection;
+import org.openjdk.jmh.annotations.*;
+
+import java.sql.Connection;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Latency of elections of one group with concurrent participants, one per benchmark thread.
+ * Run with {@code -t <participants>} to change the number of participants.
+ */
+@BenchmarkMode({Mode.AverageTime, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@Threads(4)
+public class ContendedElectionBenchmark {
+
+    @State(Scope.Benchmark)
+    public static class Database {
+
+        @Param({H2Database.IN_MEMORY, H2Database.FILE})
+        String database;
+
+        H2Database db;
+
+        @Setup(Level.Trial)
+        public void setUp() throws Exception {
+            db = new H2Database(database);
+        }
+
+        @TearDown(Level.Trial)
+        public void tearDown() throws Exception {
+            db.close();
+        }
+    }
+
+    @State(Scope.Thread)
+    public static class Participant {
+
+        @Param({ElectionModes.OPTIMISTIC, ElectionModes.CONDITIONAL})
+        String mode;
+
+        Connection connection;
+        JdbcElection election;
+
+        @Setup(Level.Trial)
+        public void setUp(Database database) throws Exception {
+            connection = database.db.getConnection();
+            election = ElectionModes.newElection("Group", mode, true);
+        }
+
+        @TearDown(Level.Trial)
+        public void tearDown() throws Exception {
+            election.closeStatements();
+            connection.close();
+        }
+    }
+
+    @Benchmark
+    public boolean elect(Participant participant, ElectionCounters counters) {
+        boolean leader = participant.election.runElection(participant.connection);
+
+        counters.record(1, participant.election.getRoundTrips());
+
+        return leader;
+    }
+}
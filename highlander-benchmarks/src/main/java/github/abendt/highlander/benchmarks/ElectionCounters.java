@@ -0,0 +1,34 @@
+package github.abendt.highlander.benchmarks;
+
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+/**
+ * Reports the elections and database round trips of an iteration next to the benchmark score.
+ * Their ratio is the number of round trips per election. JMH reports them for the average time mode only.
+ */
+@State(Scope.Thread)
+@AuxCounters(AuxCounters.Type.EVENTS)
+public class ElectionCounters {
+
+    public long elections;
+    public long roundTrips;
+
+    @Setup(Level.Iteration)
+    public void reset() {
+        elections = 0;
+        roundTrips = 0;
+    }
+
+    /**
+     * Takes the round trips from the counters of the elections, so counting them allocates nothing that would
+     * show up in the allocation rate measured by the GC profiler.
+     */
+    void record(int electionCount, int electionRoundTrips) {
+        elections += electionCount;
+        roundTrips += electionRoundTrips;
+    }
+}
@@ -0,0 +1,29 @@
+package github.abendt.highlander.benchmarks;
+
+import github.abendt.highlander.jdbc.JdbcElection;
+
+/**
+ * The election modes of {@link JdbcElection} the benchmarks compare.
+ */
+class ElectionModes {
+
+    static final String OPTIMISTIC = "optimistic";
+    static final String CONDITIONAL = "conditional";
+
+    private ElectionModes() {
+    }
+
+    static JdbcElection newElection(String groupName, String mode, boolean statementCache) {
+        JdbcElection election = new JdbcElection(groupName);
+
+        if (CONDITIONAL.equals(mode)) {
+            election.setConditionalWrite(true);
+        } else if (!OPTIMISTIC.equals(mode)) {
+            throw new IllegalArgumentException("unknown election mode: " + mode);
+        }
+
+        election.setCacheStatements(statementCache);
+
+        return election;
+    }
+}
@@ -0,0 +1,56 @@
+package github.abendt.highlander.benchmarks;
+
+import github.abendt.highlander.jdbc.JdbcElection;
+import org.openjdk.jmh.annotations.*;
+
+import java.sql.Connection;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Latency of a leader giving up its leadership. The leadership is won again before every invocation.
+ */
+@BenchmarkMode({Mode.AverageTime, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class GiveUpLeaderShipBenchmark {
+
+    @Param({H2Database.IN_MEMORY, H2Database.FILE})
+    String database;
+
+    @Param({ElectionModes.OPTIMISTIC, ElectionModes.CONDITIONAL})
+    String mode;
+
+    private H2Database db;
+    private Connection connection;
+    private JdbcElection election;
+
+    @Setup(Level.Trial)
+    public void setUp() throws Exception {
+        db = new H2Database(database);
+        connection = db.getConnection();
+
+        election = ElectionModes.newElection("Group", mode, true);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws Exception {
+        election.closeStatements();
+        connection.close();
+        db.close();
+    }
+
+    @Setup(Level.Invocation)
+    public void becomeLeader() {
+        election.runElection(connection);
+    }
+
+    @Benchmark
+    public void giveUpLeaderShip(ElectionCounters counters) {
+        election.giveUpLeaderShip(connection);
+
+        counters.record(1, election.getRoundTrips());
+    }
+}
@@ -0,0 +1,84 @@
+package github.abendt.highlander.benchmarks;
+
+import org.h2.jdbcx.JdbcDataSource;
+
+import javax.sql.DataSource;
+import java.io.File;
+import java.io.IOException;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.Statement;
+
+/**
+ * An embedded H2 database with the HIGHLANDER table, either in memory or backed by a file.
+ */
+class H2Database {
+
+    static final String IN_MEMORY = "mem";
+    static final String FILE = "file";
+
+    private static final String CREATE_TABLE_SQL = "CREATE TABLE HIGHLANDER " +
+            "(GROUPNAME     VARCHAR(255) not NULL, " +
+            " ID            VARCHAR(255), " +
+            " HEARTBEAT     TIMESTAMP, " +
+            " VERSION       INTEGER not NULL, " +
+            " PRIMARY KEY ( GROUPNAME ))";
+
+    private final DataSource dataSource;
+    private final Connection primaryConnection;
+    private final File directory;
+
+    H2Database(String mode) throws IOException, SQLException {
+        JdbcDataSource h2 = new JdbcDataSource();
+
+        if (FILE.equals(mode)) {
+            directory = File.createTempFile("highlander-benchmark", "");
+            directory.delete();
+            directory.mkdirs();
+            h2.setURL("jdbc:h2:file:" + new File(directory, "highlander").getAbsolutePath());
+        } else if (IN_MEMORY.equals(mode)) {
+            directory = null;
+            h2.setURL("jdbc:h2:mem:highlander-benchmark-" + System.nanoTime());
+        } else {
+            throw new IllegalArgumentException("unknown database mode: " + mode);
+        }
+
+        h2.setUser("sa");
+        h2.setPassword("");
+
+        dataSource = h2;
+
+        // keeps the in memory database alive
+        primaryConnection = h2.getConnection();
+
+        Statement st = primaryConnection.createStatement();
+        st.executeUpdate(CREATE_TABLE_SQL);
+        st.close();
+    }
+
+    DataSource getDataSource() {
+        return dataSource;
+    }
+
+    Connection getConnection() throws SQLException {
+        return dataSource.getConnection();
+    }
+
+    void close() throws SQLException {
+        Statement st = primaryConnection.createStatement();
+        st.executeUpdate("DROP TABLE HIGHLANDER");
+        st.close();
+        primaryConnection.close();
+
+        if (directory != null) {
+            File[] files = directory.listFiles();
+
+            if (files != null) {
+                for (File file : files) {
+                    file.delete();
+                }
+            }
+            directory.delete();
+        }
+    }
+}
@@ -0,0 +1,95 @@
+package github.abendt.highlander.benchmarks;
+
+import github.abendt.highlander.jdbc.JdbcElection;
+import github.abendt.highlander.jdbc.JdbcMultiGroupElection;
+import org.openjdk.jmh.annotations.*;
+
+import java.sql.Connection;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Time for one participant to renew the leadership of many groups, one election per group
+ * compared to one batched election for all groups.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class ManyGroupsBenchmark {
+
+    @Param({H2Database.IN_MEMORY, H2Database.FILE})
+    String database;
+
+    @Param({"10", "100", "1000"})
+    int groups;
+
+    private H2Database db;
+    private Connection connection;
+
+    private List<JdbcElection> singleGroupElections;
+    private JdbcMultiGroupElection multiGroupElection;
+
+    @Setup(Level.Trial)
+    public void setUp() throws Exception {
+        db = new H2Database(database);
+        connection = db.getConnection();
+
+        List<String> groupNames = new ArrayList<String>();
+        singleGroupElections = new ArrayList<JdbcElection>();
+
+        for (int i = 0; i < groups; ++i) {
+            String groupName = "Group-" + i;
+
+            groupNames.add(groupName);
+
+            JdbcElection election = ElectionModes.newElection(groupName, ElectionModes.CONDITIONAL, true);
+            election.runElection(connection);
+            election.giveUpLeaderShip(connection);
+            singleGroupElections.add(election);
+        }
+
+        multiGroupElection = new JdbcMultiGroupElection(groupNames);
+        multiGroupElection.setCacheStatements(true);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws Exception {
+        for (JdbcElection election : singleGroupElections) {
+            election.closeStatements();
+        }
+        multiGroupElection.closeStatements();
+        connection.close();
+        db.close();
+    }
+
+    @Benchmark
+    public int singleGroupElections(ElectionCounters counters) {
+        int ledGroups = 0;
+        int roundTrips = 0;
+
+        for (JdbcElection election : singleGroupElections) {
+            if (election.runElection(connection)) {
+                ++ledGroups;
+            }
+            roundTrips += election.getRoundTrips();
+        }
+
+        counters.record(groups, roundTrips);
+
+        return ledGroups;
+    }
+
+    @Benchmark
+    public Set<String> batchedElection(ElectionCounters counters) {
+        Set<String> ledGroups = multiGroupElection.runElection(connection);
+
+        counters.record(groups, multiGroupElection.getRoundTrips());
+
+        return ledGroups;
+    }
+}
@@ -0,0 +1,57 @@
+package github.abendt.highlander.benchmarks;
+
+import github.abendt.highlander.jdbc.JdbcElection;
+import org.openjdk.jmh.annotations.*;
+
+import java.sql.Connection;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Latency of a leader renewing its leadership without competition.
+ */
+@BenchmarkMode({Mode.AverageTime, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class RenewalBenchmark {
+
+    @Param({H2Database.IN_MEMORY, H2Database.FILE})
+    String database;
+
+    @Param({ElectionModes.OPTIMISTIC, ElectionModes.CONDITIONAL})
+    String mode;
+
+    @Param({"false", "true"})
+    boolean statementCache;
+
+    private H2Database db;
+    private Connection connection;
+    private JdbcElection election;
+
+    @Setup(Level.Trial)
+    public void setUp() throws Exception {
+        db = new H2Database(database);
+        connection = db.getConnection();
+
+        election = ElectionModes.newElection("Group", mode, statementCache);
+        election.runElection(connection);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws Exception {
+        election.closeStatements();
+        connection.close();
+        db.close();
+    }
+
+    @Benchmark
+    public boolean renew(ElectionCounters counters) {
+        boolean leader = election.runElection(connection);
+
+        counters.record(1, election.getRoundTrips());
+
+        return leader;
+    }
+}
@@ -0,0 +1,397 @@
+package github.abendt.highlander.benchmarks;
+
+import github.abendt.highlander.ElectionEvent;
+import github.abendt.highlander.ElectionListener;
+import github.abendt.highlander.ElectionMetrics;
+import github.abendt.highlander.ElectionStore;
+import github.abendt.highlander.LatencyHistogram;
+import github.abendt.highlander.Lease;
+import github.abendt.highlander.jdbc.Highlander;
+import github.abendt.highlander.memory.InMemoryElectionStore;
+
+import javax.sql.DataSource;
+import java.io.PrintWriter;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.SQLFeatureNotSupportedException;
+import java.util.*;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Logger;
+
+/**
+ * Runs many participants in virtual time against an in-memory store or H2, crashes leaders and pauses random
+ * participants, and reports the convergence time, the failover latencies and the store operations per second.
+ * Hours of elections of thousands of participants take seconds, so heartbeat settings can be tuned offline.
+ * <p>
+ * Options are given as {@code key=value}, e.g.
+ * {@code participants=10000 groups=10 duration=3600 interval=1000 factor=3 crashes=50 pauses=200 store=memory}.
+ * Durations are in virtual seconds, the interval in milliseconds. Runs with the same seed fire the same faults
+ * and draw the same heartbeat jitter.
+ */
+public class Simulation {
+
+    private final int participantCount;
+    private final int groupCount;
+    private final long duration;
+    private final int heartBeatInterval;
+    private final int heartBeatFactor;
+    private final int crashes;
+    private final long crashDuration;
+    private final int pauses;
+    private final long pauseDuration;
+    private final boolean adaptiveFollowerPolling;
+    private final String store;
+    private final Random random;
+    private final Random jitterRandom;
+
+    private final VirtualClock clock = new VirtualClock(System.currentTimeMillis());
+    private final VirtualScheduler scheduler = new VirtualScheduler(clock);
+
+    private final List<Participant> participants = new ArrayList<Participant>();
+    private final List<Group> groups = new ArrayList<Group>();
+
+    private final LatencyHistogram failovers = new LatencyHistogram();
+    private int crashedLeaders;
+    private long overlappingLeaders;
+    private long storeOperations;
+
+    // counts the statements of the elections on the database, the probes of adaptive followers are not reported
+    private final ElectionMetrics roundTripCounter = new ElectionMetrics() {
+        @Override
+        public void electionCompleted(String groupName, long nanos, int roundTrips, boolean leader) {
+            storeOperations += roundTrips;
+        }
+    };
+
+    public Simulation(Map<String, String> options) {
+        participantCount = intOption(options, "participants", 1000);
+        groupCount = intOption(options, "groups", 1);
+        duration = TimeUnit.SECONDS.toNanos(intOption(options, "duration", 600));
+        heartBeatInterval = intOption(options, "interval", 1000);
+        heartBeatFactor = intOption(options, "factor", 3);
+        crashes = intOption(options, "crashes", 20);
+        crashDuration = TimeUnit.SECONDS.toNanos(intOption(options, "crashDuration", 60));
+        pauses = intOption(options, "pauses", 20);
+        pauseDuration = TimeUnit.MILLISECONDS.toNanos(intOption(options, "pauseDuration", 2000));
+        adaptiveFollowerPolling = Boolean.parseBoolean(option(options, "adaptive", "false"));
+        store = option(options, "store", "memory");
+        random = new Random(intOption(options, "seed", 1));
+        // apart from the faults, so the faults do not change with the number of heartbeats
+        jitterRandom = new Random(random.nextLong());
+    }
+
+    public static void main(String[] args) throws Exception {
+        Map<String, String> options = new HashMap<String, String>();
+
+        for (String arg : args) {
+            int separator = arg.indexOf('=');
+
+            if (separator < 0) {
+                throw new IllegalArgumentException("expected key=value: " + arg);
+            }
+
+            options.put(arg.substring(0, separator), arg.substring(separator + 1));
+        }
+
+        new Simulation(options).run(new PrintWriter(System.out, true));
+    }
+
+    public void run(PrintWriter out) throws Exception {
+        H2Database database = "h2".equals(store) ? new H2Database(H2Database.IN_MEMORY) : null;
+        ElectionStore memoryStore = database == null ? new InMemoryElectionStore() : null;
+
+        try {
+            for (int i = 0; i < groupCount; ++i) {
+                groups.add(new Group("Group-" + i));
+            }
+
+            for (int i = 0; i < participantCount; ++i) {
+                Group group = groups.get(i % groupCount);
+                Participant participant = new Participant(group);
+
+                Highlander highlander;
+
+                if (database != null) {
+                    highlander = new Highlander(participant.outage(database.getDataSource()), group.name);
+                    highlander.setMetrics(roundTripCounter);
+                } else {
+                    highlander = new Highlander(participant.outage(memoryStore), group.name);
+                }
+
+                participant.start(highlander);
+                participants.add(participant);
+                group.participants.add(participant);
+            }
+
+            scheduleFaults();
+
+            long wallStarted = System.nanoTime();
+            scheduler.runUntil(duration);
+            long wallTime = System.nanoTime() - wallStarted;
+
+            report(out, wallTime);
+        } finally {
+            scheduler.shutdownNow();
+
+            if (database != null) {
+                database.close();
+            }
+        }
+    }
+
+    private void scheduleFaults() {
+        for (int i = 0; i < crashes; ++i) {
+            scheduler.schedule(new Runnable() {
+                @Override
+                public void run() {
+                    crashLeader(groups.get(random.nextInt(groups.size())));
+                }
+            }, randomTime(), TimeUnit.NANOSECONDS);
+        }
+
+        for (int i = 0; i < pauses; ++i) {
+            scheduler.schedule(new Runnable() {
+                @Override
+                public void run() {
+                    participants.get(random.nextInt(participants.size())).goDown(pauseDuration);
+                }
+            }, randomTime(), TimeUnit.NANOSECONDS);
+        }
+    }
+
+    private long randomTime() {
+        return (long) (random.nextDouble() * duration);
+    }
+
+    private void crashLeader(Group group) {
+        Participant leader = group.leader;
+
+        if (leader == null || leader.isDown()) {
+            return;
+        }
+
+        leader.goDown(crashDuration);
+
+        crashedLeaders++;
+        group.leaderCrashedAt = clock.nanoTime();
+    }
+
+    private void report(PrintWriter out, long wallTime) {
+        long convergence = 0;
+        int unconverged = 0;
+
+        for (Group group : groups) {
+            if (group.convergedAt < 0) {
+                unconverged++;
+            } else {
+                convergence = Math.max(convergence, group.convergedAt);
+            }
+        }
+
+        double seconds = (double) duration / TimeUnit.SECONDS.toNanos(1);
+
+        out.printf("participants          %d in %d groups on %s, heartbeat %d ms x %d%s%n",
+                participantCount, groupCount, store, heartBeatInterval, heartBeatFactor, adaptiveFollowerPolling ? ", adaptive" : "");
+        out.printf("virtual time          %.0f s in %.1f s%n", seconds, wallTime / 1e9);
+        out.printf("convergence           %.3f s%s%n", convergence / 1e9, unconverged > 0 ? ", " + unconverged + " groups without leader" : "");
+        out.printf("failovers             %d of %d crashed leaders, ms: p50 %d  p99 %d  max %d%n",
+                failovers.getCount(), crashedLeaders,
+                failovers.getPercentile(50), failovers.getPercentile(99), failovers.getMax());
+        out.printf("overlapping leaders   %d%n", overlappingLeaders);
+        out.printf("store operations      %.0f /s%n", storeOperations / seconds);
+    }
+
+    private void gained(Participant participant) {
+        Group group = participant.group;
+        long now = clock.nanoTime();
+
+        for (Participant other : group.participants) {
+            if (other != participant && other.highlander.isLeader()) {
+                overlappingLeaders++;
+            }
+        }
+
+        group.leaders++;
+
+        if (group.convergedAt < 0 && group.leaders == 1) {
+            group.convergedAt = now;
+        }
+
+        if (group.leaderCrashedAt >= 0) {
+            failovers.record(TimeUnit.NANOSECONDS.toMillis(now - group.leaderCrashedAt));
+            group.leaderCrashedAt = -1;
+        }
+
+        group.leader = participant;
+    }
+
+    private void lost(Participant participant) {
+        Group group = participant.group;
+
+        group.leaders--;
+
+        if (group.leader == participant) {
+            group.leader = null;
+        }
+    }
+
+    private static String option(Map<String, String> options, String key, String defaultValue) {
+        String value = options.get(key);
+        return value != null ? value : defaultValue;
+    }
+
+    private static int intOption(Map<String, String> options, String key, int defaultValue) {
+        return Integer.parseInt(option(options, key, String.valueOf(defaultValue)));
+    }
+
+    private static class Group {
+
+        private final String name;
+        private final List<Participant> participants = new ArrayList<Participant>();
+
+        private Participant leader;
+        private int leaders;
+        private long convergedAt = -1;
+        private long leaderCrashedAt = -1;
+
+        Group(String name) {
+            this.name = name;
+        }
+    }
+
+    private class Participant {
+
+        private final Group group;
+        private Highlander highlander;
+        private long downUntil = -1;
+
+        Participant(Group group) {
+            this.group = group;
+        }
+
+        void start(Highlander highlander) {
+            this.highlander = highlander;
+
+            highlander.setClock(clock);
+            highlander.setScheduler(scheduler);
+            highlander.setJitterRandom(jitterRandom);
+            highlander.setHeartBeatInterval(heartBeatInterval);
+            highlander.setHeartBeatFactor(heartBeatFactor);
+            highlander.setAdaptiveFollowerPolling(adaptiveFollowerPolling);
+            highlander.setConditionalWrite(true);
+            highlander.setListener(new ElectionListener() {
+                @Override
+                public void groupChanged(boolean leader) {
+                }
+
+                @Override
+                public void electionChanged(ElectionEvent event) {
+                    if (event.isLeader()) {
+                        gained(Participant.this);
+                    } else {
+                        lost(Participant.this);
+                    }
+                }
+            });
+            highlander.start();
+        }
+
+        void goDown(long nanos) {
+            downUntil = Math.max(downUntil, clock.nanoTime() + nanos);
+        }
+
+        boolean isDown() {
+            return clock.nanoTime() < downUntil;
+        }
+
+        ElectionStore outage(final ElectionStore store) {
+            return new ElectionStore() {
+                @Override
+                public Lease load(String groupName) {
+                    checkUp();
+                    return store.load(groupName);
+                }
+
+                @Override
+                public Lease claim(String groupName, String participantId, long now, long maxHeartBeatAge) {
+                    checkUp();
+                    return store.claim(groupName, participantId, now, maxHeartBeatAge);
+                }
+
+                @Override
+                public Lease renew(Lease lease, long now) {
+                    checkUp();
+                    return store.renew(lease, now);
+                }
+
+                @Override
+                public Lease release(Lease lease, String successorId, long now) {
+                    checkUp();
+                    return store.release(lease, successorId, now);
+                }
+
+                private void checkUp() {
+                    if (isDown()) {
+                        throw new IllegalStateException("participant is down");
+                    }
+                    storeOperations++;
+                }
+            };
+        }
+
+        DataSource outage(final DataSource dataSource) {
+            return new DataSource() {
+                @Override
+                public Connection getConnection() throws SQLException {
+                    if (isDown()) {
+                        throw new SQLException("participant is down");
+                    }
+                    return dataSource.getConnection();
+                }
+
+                @Override
+                public Connection getConnection(String username, String password) throws SQLException {
+                    if (isDown()) {
+                        throw new SQLException("participant is down");
+                    }
+                    return dataSource.getConnection(username, password);
+                }
+
+                @Override
+                public PrintWriter getLogWriter() throws SQLException {
+                    return dataSource.getLogWriter();
+                }
+
+                @Override
+                public void setLogWriter(PrintWriter out) throws SQLException {
+                    dataSource.setLogWriter(out);
+                }
+
+                @Override
+                public void setLoginTimeout(int seconds) throws SQLException {
+                    dataSource.setLoginTimeout(seconds);
+                }
+
+                @Override
+                public int getLoginTimeout() throws SQLException {
+                    return dataSource.getLoginTimeout();
+                }
+
+                @Override
+                public Logger getParentLogger() throws SQLFeatureNotSupportedException {
+                    return dataSource.getParentLogger();
+                }
+
+                @Override
+                public <T> T unwrap(Class<T> iface) throws SQLException {
+                    return dataSource.unwrap(iface);
+                }
+
+                @Override
+                public boolean isWrapperFor(Class<?> iface) throws SQLException {
+                    return dataSource.isWrapperFor(iface);
+                }
+            };
+        }
+    }
+}
@@ -0,0 +1,34 @@
+package github.abendt.highlander.benchmarks;
+
+import github.abendt.highlander.ElectionClock;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * A clock that only moves when the {@link VirtualScheduler} advances it.
+ */
+class VirtualClock implements ElectionClock {
+
+    private final long epochMillis;
+    private long nanos;
+
+    VirtualClock(long epochMillis) {
+        this.epochMillis = epochMillis;
+    }
+
+    @Override
+    public long currentTimeMillis() {
+        return epochMillis + TimeUnit.NANOSECONDS.toMillis(nanos);
+    }
+
+    @Override
+    public long nanoTime() {
+        return nanos;
+    }
+
+    void advanceTo(long nanos) {
+        if (nanos > this.nanos) {
+            this.nanos = nanos;
+        }
+    }
+}
@@ -0,0 +1,140 @@
+package github.abendt.highlander.benchmarks;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.PriorityQueue;
+import java.util.concurrent.*;
+
+/**
+ * Runs the scheduled tasks on the calling thread in the order of their virtual due time, advancing the
+ * {@link VirtualClock} to the due time of each task. Tasks take no virtual time.
+ */
+class VirtualScheduler extends AbstractExecutorService implements ScheduledExecutorService {
+
+    private final VirtualClock clock;
+    private final PriorityQueue<VirtualTask<?>> queue = new PriorityQueue<VirtualTask<?>>();
+
+    private long sequence;
+    private boolean shutdown;
+
+    VirtualScheduler(VirtualClock clock) {
+        this.clock = clock;
+    }
+
+    /**
+     * Runs all tasks due until the given virtual time and advances the clock to it.
+     */
+    void runUntil(long nanos) {
+        while (!queue.isEmpty() && queue.peek().dueAt <= nanos) {
+            VirtualTask<?> task = queue.poll();
+
+            clock.advanceTo(task.dueAt);
+            task.run();
+        }
+
+        clock.advanceTo(nanos);
+    }
+
+    @Override
+    public void execute(Runnable command) {
+        schedule(command, 0, TimeUnit.NANOSECONDS);
+    }
+
+    @Override
+    public ScheduledFuture<?> schedule(Runnable command, long delay, TimeUnit unit) {
+        return schedule(Executors.callable(command), delay, unit);
+    }
+
+    @Override
+    public <V> ScheduledFuture<V> schedule(Callable<V> callable, long delay, TimeUnit unit) {
+        return enqueue(new VirtualTask<V>(callable, clock.nanoTime() + unit.toNanos(delay), 0));
+    }
+
+    @Override
+    public ScheduledFuture<?> scheduleAtFixedRate(Runnable command, long initialDelay, long period, TimeUnit unit) {
+        return enqueue(new VirtualTask<Object>(Executors.callable(command), clock.nanoTime() + unit.toNanos(initialDelay), unit.toNanos(period)));
+    }
+
+    @Override
+    public ScheduledFuture<?> scheduleWithFixedDelay(Runnable command, long initialDelay, long delay, TimeUnit unit) {
+        // tasks take no virtual time, so a fixed delay is a fixed rate
+        return scheduleAtFixedRate(command, initialDelay, delay, unit);
+    }
+
+    @Override
+    public void shutdown() {
+        shutdown = true;
+    }
+
+    @Override
+    public List<Runnable> shutdownNow() {
+        shutdown = true;
+
+        List<Runnable> pending = new ArrayList<Runnable>(queue);
+        queue.clear();
+        return pending;
+    }
+
+    @Override
+    public boolean isShutdown() {
+        return shutdown;
+    }
+
+    @Override
+    public boolean isTerminated() {
+        return shutdown && queue.isEmpty();
+    }
+
+    @Override
+    public boolean awaitTermination(long timeout, TimeUnit unit) {
+        return isTerminated();
+    }
+
+    private <V> VirtualTask<V> enqueue(VirtualTask<V> task) {
+        if (shutdown) {
+            throw new RejectedExecutionException("virtual scheduler is shut down");
+        }
+
+        queue.add(task);
+        return task;
+    }
+
+    private class VirtualTask<V> extends FutureTask<V> implements ScheduledFuture<V> {
+
+        private final long period;
+        private final long order = sequence++;
+        private long dueAt;
+
+        VirtualTask(Callable<V> callable, long dueAt, long period) {
+            super(callable);
+            this.dueAt = dueAt;
+            this.period = period;
+        }
+
+        @Override
+        public void run() {
+            if (period == 0) {
+                super.run();
+            } else if (runAndReset()) {
+                dueAt += period;
+                queue.add(this);
+            }
+        }
+
+        @Override
+        public long getDelay(TimeUnit unit) {
+            return unit.convert(dueAt - clock.nanoTime(), TimeUnit.NANOSECONDS);
+        }
+
+        @Override
+        public int compareTo(Delayed other) {
+            VirtualTask<?> task = (VirtualTask<?>) other;
+
+            if (dueAt != task.dueAt) {
+                return dueAt < task.dueAt ? -1 : 1;
+            }
+
+            return Long.compare(order, task.order);
+        }
+    }
+}
@@ -0,0 +1,163 @@
+package github.abendt.highlander.file;
+
+import github.abendt.highlander.ElectionStore;
+import github.abendt.highlander.Lease;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.UnsupportedEncodingException;
+import java.net.URLEncoder;
+import java.nio.channels.FileLock;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Elects among the processes of one host with a lease file per group in the given directory. A claim, renewal
+ * or release takes the lock of the file with {@link java.nio.channels.FileChannel#tryLock} for the duration of
+ * the compare-and-set, so a crashed process never keeps a group locked. The lease is memory-mapped and
+ * {@link #load(String)} reads it without a system call.
+ * <p>
+ * Use one store per directory in a JVM and {@link #close()} it when all its participants stopped.
+ */
+public class FileElectionStore implements ElectionStore, Closeable {
+
+    private final Path directory;
+    private final ConcurrentMap<String, LeaseFile> leaseFiles = new ConcurrentHashMap<String, LeaseFile>();
+
+    private long lockTimeout = TimeUnit.SECONDS.toNanos(1);
+
+    public FileElectionStore(Path directory) {
+        this.directory = directory;
+    }
+
+    /**
+     * Bounds the time to wait for the lock of a lease file before the operation fails.
+     */
+    public void setLockTimeout(long lockTimeoutMillis) {
+        this.lockTimeout = TimeUnit.MILLISECONDS.toNanos(lockTimeoutMillis);
+    }
+
+    @Override
+    public Lease load(String groupName) {
+        return leaseFile(groupName).read();
+    }
+
+    @Override
+    public Lease claim(String groupName, String participantId, long now, long maxHeartBeatAge) {
+        LeaseFile leaseFile = leaseFile(groupName);
+
+        synchronized (leaseFile) {
+            FileLock lock = lock(leaseFile);
+
+            try {
+                Lease current = leaseFile.readLocked();
+
+                if (current != null && !current.isHeldBy(participantId) && !current.isClaimable(now, maxHeartBeatAge)) {
+                    return current;
+                }
+
+                Lease claimed = new Lease(groupName, participantId, now, current != null ? current.getVersion() + 1 : 0);
+                leaseFile.write(claimed);
+
+                return claimed;
+            } finally {
+                unlock(lock);
+            }
+        }
+    }
+
+    @Override
+    public Lease renew(Lease lease, long now) {
+        return update(lease, lease.getLeaderId(), now);
+    }
+
+    @Override
+    public Lease release(Lease lease, String successorId, long now) {
+        return update(lease, successorId, now);
+    }
+
+    @Override
+    public void close() throws IOException {
+        for (String groupName : leaseFiles.keySet()) {
+            LeaseFile leaseFile = leaseFiles.remove(groupName);
+
+            if (leaseFile != null) {
+                leaseFile.close();
+            }
+        }
+    }
+
+    private Lease update(Lease lease, String leaderId, long now) {
+        LeaseFile leaseFile = leaseFile(lease.getGroupName());
+
+        synchronized (leaseFile) {
+            FileLock lock = lock(leaseFile);
+
+            try {
+                Lease current = leaseFile.readLocked();
+
+                if (current == null || current.getVersion() != lease.getVersion()) {
+                    return current;
+                }
+
+                Lease updated = new Lease(lease.getGroupName(), leaderId, now, current.getVersion() + 1);
+                leaseFile.write(updated);
+
+                return updated;
+            } finally {
+                unlock(lock);
+            }
+        }
+    }
+
+    private LeaseFile leaseFile(String groupName) {
+        LeaseFile leaseFile = leaseFiles.get(groupName);
+
+        if (leaseFile != null) {
+            return leaseFile;
+        }
+
+        try {
+            Files.createDirectories(directory);
+            leaseFile = new LeaseFile(groupName, directory.resolve(fileName(groupName)));
+
+            LeaseFile existing = leaseFiles.putIfAbsent(groupName, leaseFile);
+
+            if (existing != null) {
+                leaseFile.close();
+                return existing;
+            }
+
+            return leaseFile;
+        } catch (IOException e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+    private FileLock lock(LeaseFile leaseFile) {
+        try {
+            return leaseFile.lock(lockTimeout);
+        } catch (IOException e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+    private static void unlock(FileLock lock) {
+        try {
+            lock.release();
+        } catch (IOException e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+    static String fileName(String groupName) {
+        try {
+            return URLEncoder.encode(groupName, "UTF-8") + ".lease";
+        } catch (UnsupportedEncodingException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+}
@@ -0,0 +1,193 @@
+package github.abendt.highlander.file;
+
+import github.abendt.highlander.Lease;
+
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.channels.OverlappingFileLockException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * The lease of one group in a memory-mapped file. Readers never lock: the record ends with a checksum that the
+ * writer stores last, and a reader retries until the checksum matches. Writers serialize on the file lock.
+ * <pre>
+ * 0  long checksum
+ * 8  long version
+ * 16 long heartbeat
+ * 24 int  length of the leader id, -1 if the group is free
+ * 28      leader id in UTF-8
+ * </pre>
+ */
+class LeaseFile {
+
+    static final int MAX_LEADER_ID_LENGTH = 256;
+
+    private static final int CHECKSUM = 0;
+    private static final int VERSION = 8;
+    private static final int HEARTBEAT = 16;
+    private static final int LEADER_LENGTH = 24;
+    private static final int LEADER = 28;
+    private static final int SIZE = LEADER + MAX_LEADER_ID_LENGTH;
+
+    private static final int MAX_READ_ATTEMPTS = 10000;
+    private static final Lease TORN = new Lease(null, null, 0, -1);
+
+    private static final long LOCK_RETRY_NANOS = TimeUnit.MICROSECONDS.toNanos(50);
+
+    private final String groupName;
+    private final FileChannel channel;
+    private final MappedByteBuffer buffer;
+
+    LeaseFile(String groupName, Path path) throws IOException {
+        this.groupName = groupName;
+
+        channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+
+        try {
+            buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, SIZE);
+        } catch (IOException e) {
+            channel.close();
+            throw e;
+        }
+    }
+
+    /**
+     * Reads the lease without locking, retrying while a writer changes it.
+     *
+     * @return the stored lease, null if no participant ever claimed the group
+     * @throws IllegalStateException if the record stays inconsistent, e.g. because a writer crashed
+     */
+    Lease read() {
+        for (int attempt = 0; attempt < MAX_READ_ATTEMPTS; ++attempt) {
+            Lease lease = tryRead();
+
+            if (lease != TORN) {
+                return lease;
+            }
+
+            Thread.yield();
+        }
+
+        throw new IllegalStateException("lease file of group '" + groupName + "' is inconsistent");
+    }
+
+    /**
+     * Reads the lease while holding the lock of the file. A record left inconsistent by a crashed writer
+     * is read as a free group, so the next write repairs it.
+     */
+    Lease readLocked() {
+        Lease lease = tryRead();
+
+        if (lease == TORN) {
+            return new Lease(groupName, null, 0, buffer.getLong(VERSION));
+        }
+
+        return lease;
+    }
+
+    private Lease tryRead() {
+        long checksum = buffer.getLong(CHECKSUM);
+        long version = buffer.getLong(VERSION);
+        long heartBeat = buffer.getLong(HEARTBEAT);
+        int leaderLength = buffer.getInt(LEADER_LENGTH);
+
+        if (checksum == 0 && version == 0 && heartBeat == 0 && leaderLength == 0) {
+            return null;
+        }
+
+        if (leaderLength < -1 || leaderLength > MAX_LEADER_ID_LENGTH) {
+            return TORN;
+        }
+
+        byte[] leader = new byte[Math.max(0, leaderLength)];
+
+        for (int i = 0; i < leaderLength; ++i) {
+            leader[i] = buffer.get(LEADER + i);
+        }
+
+        if (checksum != checksum(version, heartBeat, leaderLength, leader)) {
+            return TORN;
+        }
+
+        return new Lease(groupName, leaderLength < 0 ? null : new String(leader, StandardCharsets.UTF_8), heartBeat, version);
+    }
+
+    void write(Lease lease) {
+        byte[] leader = lease.getLeaderId() != null ? lease.getLeaderId().getBytes(StandardCharsets.UTF_8) : null;
+        int leaderLength = leader != null ? leader.length : -1;
+
+        if (leaderLength > MAX_LEADER_ID_LENGTH) {
+            throw new IllegalArgumentException("leader id is longer than " + MAX_LEADER_ID_LENGTH + " bytes: " + lease.getLeaderId());
+        }
+
+        buffer.putLong(CHECKSUM, 0);
+        buffer.putLong(VERSION, lease.getVersion());
+        buffer.putLong(HEARTBEAT, lease.getHeartBeat());
+        buffer.putInt(LEADER_LENGTH, leaderLength);
+
+        for (int i = 0; i < leaderLength; ++i) {
+            buffer.put(LEADER + i, leader[i]);
+        }
+
+        buffer.putLong(CHECKSUM, checksum(lease.getVersion(), lease.getHeartBeat(), leaderLength, leader));
+    }
+
+    /**
+     * Locks the file against the participants of other processes. The caller serializes the participants
+     * of this JVM, the lock is held per JVM.
+     */
+    FileLock lock(long timeoutNanos) throws IOException {
+        long deadline = System.nanoTime() + timeoutNanos;
+
+        while (true) {
+            try {
+                FileLock lock = channel.tryLock(0, SIZE, false);
+
+                if (lock != null) {
+                    return lock;
+                }
+            } catch (OverlappingFileLockException e) {
+                // locked by another store of this JVM
+            }
+
+            if (System.nanoTime() - deadline > 0) {
+                throw new IllegalStateException("lease file of group '" + groupName + "' stayed locked");
+            }
+
+            LockSupport.parkNanos(LOCK_RETRY_NANOS);
+        }
+    }
+
+    void close() throws IOException {
+        channel.close();
+    }
+
+    // FNV-1a, so a torn read is detected without allocating a checksum object
+    private static long checksum(long version, long heartBeat, int leaderLength, byte[] leader) {
+        long hash = 0xcbf29ce484222325L;
+
+        hash = mix(hash, version);
+        hash = mix(hash, heartBeat);
+        hash = mix(hash, leaderLength);
+
+        for (int i = 0; i < leaderLength; ++i) {
+            hash = (hash ^ (leader[i] & 0xff)) * 0x100000001b3L;
+        }
+
+        return hash;
+    }
+
+    private static long mix(long hash, long value) {
+        for (int i = 0; i < 8; ++i) {
+            hash = (hash ^ ((value >>> (8 * i)) & 0xff)) * 0x100000001b3L;
+        }
+
+        return hash;
+    }
+}
@@ -0,0 +1,186 @@
+package github.abendt.highlander.file;
+
+import github.abendt.highlander.ElectionListener;
+import github.abendt.highlander.Lease;
+import github.abendt.highlander.StoreElection;
+import github.abendt.highlander.jdbc.Highlander;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.RandomAccessFile;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.*;
+
+import static org.fest.assertions.api.Assertions.assertThat;
+
+public class FileElectionStoreTest {
+
+    @Rule
+    public final TemporaryFolder folder = new TemporaryFolder();
+
+    private Path directory;
+    private FileElectionStore store1;
+    private FileElectionStore store2;
+
+    @Before
+    public void openStores() {
+        directory = folder.getRoot().toPath();
+
+        // two stores on one directory behave like two processes
+        store1 = new FileElectionStore(directory);
+        store2 = new FileElectionStore(directory);
+    }
+
+    @After
+    public void closeStores() throws Exception {
+        store1.close();
+        store2.close();
+    }
+
+    @Test
+    public void oneParticipantWinsOnEmptyDirectory() {
+        StoreElection election = new StoreElection(store1, "Group");
+
+        assertThat(election.runElection()).isTrue();
+        assertThat(Files.exists(directory.resolve("Group.lease"))).isTrue();
+    }
+
+    @Test
+    public void participantOfOtherStoreLoosesAndSeesLeader() {
+        StoreElection election1 = new StoreElection(store1, "Group");
+        StoreElection election2 = new StoreElection(store2, "Group");
+
+        assertThat(election1.runElection()).isTrue();
+        assertThat(election2.runElection()).isFalse();
+        assertThat(election2.getLeaderId()).isEqualTo(election1.getParticipantId());
+    }
+
+    @Test
+    public void followerReadsRenewalOfLeader() {
+        StoreElection election = new StoreElection(store1, "Group");
+
+        election.runElection();
+        election.runElection();
+
+        Lease lease = store2.load("Group");
+
+        assertThat(lease.getLeaderId()).isEqualTo(election.getParticipantId());
+        assertThat(lease.getVersion()).isEqualTo(1);
+    }
+
+    @Test
+    public void participantCanGiveUpLeadership() {
+        StoreElection election1 = new StoreElection(store1, "Group");
+        StoreElection election2 = new StoreElection(store2, "Group");
+
+        election1.runElection();
+        election1.giveUpLeaderShip();
+
+        assertThat(store2.load("Group").getLeaderId()).isNull();
+        assertThat(election2.runElection()).isTrue();
+    }
+
+    @Test
+    public void groupNameIsEncodedInFileName() {
+        new StoreElection(store1, "../Group/1").runElection();
+
+        assertThat(store2.load("../Group/1")).isNotNull();
+        assertThat(Files.exists(directory.resolve(FileElectionStore.fileName("../Group/1")))).isTrue();
+    }
+
+    @Test
+    public void recordOfCrashedWriterIsRepaired() throws Exception {
+        StoreElection election1 = new StoreElection(store1, "Group");
+        StoreElection election2 = new StoreElection(store2, "Group");
+
+        election1.runElection();
+
+        RandomAccessFile file = new RandomAccessFile(directory.resolve("Group.lease").toFile(), "rw");
+
+        try {
+            // the checksum is written last
+            file.writeLong(0);
+        } finally {
+            file.close();
+        }
+
+        assertThat(election2.runElection()).isTrue();
+        assertThat(store1.load("Group").getLeaderId()).isEqualTo(election2.getParticipantId());
+    }
+
+    @Test
+    public void concurrentParticipantsElectExactlyOneLeader() throws Exception {
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+
+        try {
+            final CyclicBarrier barrier = new CyclicBarrier(8);
+            List<Future<Boolean>> results = new ArrayList<Future<Boolean>>();
+
+            for (int i = 0; i < 8; ++i) {
+                final FileElectionStore store = i % 2 == 0 ? store1 : store2;
+
+                results.add(executor.submit(new Callable<Boolean>() {
+                    @Override
+                    public Boolean call() throws Exception {
+                        StoreElection election = new StoreElection(store, "Group");
+
+                        barrier.await();
+                        return election.runElection();
+                    }
+                }));
+            }
+
+            int leaders = 0;
+
+            for (Future<Boolean> result : results) {
+                if (result.get()) {
+                    ++leaders;
+                }
+            }
+
+            assertThat(leaders).isEqualTo(1);
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+    @Test
+    public void highlanderAnnouncesLeadershipOfLeaseFile() throws Exception {
+        final BlockingQueue<Boolean> events1 = new LinkedBlockingQueue<Boolean>();
+        final BlockingQueue<Boolean> events2 = new LinkedBlockingQueue<Boolean>();
+
+        Highlander highlander1 = newHighlander(store1, events1);
+        Highlander highlander2 = newHighlander(store2, events2);
+
+        highlander1.start();
+        assertThat(events1.poll(5, TimeUnit.SECONDS)).isTrue();
+
+        highlander2.start();
+        assertThat(events2.poll(5, TimeUnit.SECONDS)).isFalse();
+
+        highlander1.stop();
+        assertThat(events1.poll(5, TimeUnit.SECONDS)).isFalse();
+        assertThat(events2.poll(5, TimeUnit.SECONDS)).isTrue();
+
+        highlander2.stop();
+    }
+
+    private Highlander newHighlander(FileElectionStore store, final BlockingQueue<Boolean> events) {
+        Highlander highlander = new Highlander(store, "Group");
+
+        highlander.setListener(new ElectionListener() {
+            @Override
+            public void groupChanged(boolean leader) {
+                events.add(leader);
+            }
+        });
+
+        return highlander;
+    }
+}
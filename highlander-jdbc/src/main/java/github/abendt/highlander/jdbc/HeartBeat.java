@@ -0,0 +1,133 @@
+package github.abendt.highlander.jdbc;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.Random;
+import java.util.concurrent.*;
+
+/**
+ * Runs an election repeatedly with a fixed delay plus a random jitter between the end of one run and the start of
+ * the next. Runs that are late are not caught up, and a failing run does not end the schedule.
+ */
+class HeartBeat {
+
+    private static final Logger LOG = LoggerFactory.getLogger(HeartBeat.class);
+
+    private final ScheduledExecutorService scheduler;
+    private final Executor electionExecutor;
+    private final Runnable election;
+
+    private final int jitter;
+    private volatile int interval;
+    // null for the random of the scheduling thread
+    private volatile Random random;
+
+    // reused for every run, the scheduler allocates nothing else for a heartbeat but its future
+    private final Runnable dispatch = new Runnable() {
+        @Override
+        public void run() {
+            dispatch();
+        }
+    };
+
+    private final Runnable electionRun = new Runnable() {
+        @Override
+        public void run() {
+            runElection();
+        }
+    };
+
+    private volatile long nextDelay = -1;
+    private volatile boolean stopped;
+    private volatile Future<?> nextRun;
+
+    HeartBeat(ScheduledExecutorService scheduler, Executor electionExecutor, Runnable election, int interval, int jitter) {
+        this.scheduler = scheduler;
+        this.electionExecutor = electionExecutor;
+        this.election = election;
+        this.interval = interval;
+        this.jitter = jitter;
+    }
+
+    void start() {
+        scheduleNextRun();
+    }
+
+    void stop() {
+        stopped = true;
+
+        Future<?> run = nextRun;
+
+        if (run != null) {
+            run.cancel(false);
+        }
+    }
+
+    /**
+     * Draws the jitter from the given random, e.g. a seeded one to replay a simulation.
+     */
+    void setRandom(Random random) {
+        this.random = random;
+    }
+
+    /**
+     * Changes the delay between two runs, starting with the next one that is scheduled.
+     */
+    void setInterval(int interval) {
+        this.interval = interval;
+    }
+
+    /**
+     * Schedules the next run after the given delay plus jitter instead of the interval. Only affects the next run.
+     */
+    void delayNextRun(long delay) {
+        nextDelay = Math.max(0, delay);
+    }
+
+    private void scheduleNextRun() {
+        if (stopped) {
+            return;
+        }
+
+        long delay = nextDelay >= 0 ? nextDelay : interval;
+        nextDelay = -1;
+
+        if (jitter > 0) {
+            Random jitterRandom = random;
+            delay += jitterRandom != null ? jitterRandom.nextInt(jitter) : ThreadLocalRandom.current().nextInt(jitter);
+        }
+
+        try {
+            nextRun = scheduler.schedule(dispatch, delay, TimeUnit.MILLISECONDS);
+        } catch (RejectedExecutionException e) {
+            LOG.warn("heartbeat stopped: scheduler does not accept further elections", e);
+        }
+    }
+
+    private void dispatch() {
+        if (electionExecutor == null) {
+            runElection();
+            return;
+        }
+
+        try {
+            electionExecutor.execute(electionRun);
+        } catch (RejectedExecutionException e) {
+            LOG.warn("election executor rejected election, retrying with next heartbeat", e);
+            scheduleNextRun();
+        }
+    }
+
+    private void runElection() {
+        try {
+            if (!stopped) {
+                election.run();
+            }
+        } catch (RuntimeException e) {
+            LOG.warn("election failed", e);
+        } finally {
+            scheduleNextRun();
+        }
+    }
+}
@@ -1,98 +1,896 @@
 package github.abendt.highlander.jdbc;
 
+import github.abendt.highlander.ElectionClock;
+import github.abendt.highlander.ElectionEvent;
 import github.abendt.highlander.ElectionListener;
+import github.abendt.highlander.ElectionMetrics;
+import github.abendt.highlander.ElectionStore;
+import github.abendt.highlander.LatencyHistogram;
+import github.abendt.highlander.LeadershipChange;
+import github.abendt.highlander.LeadershipFeed;
+import github.abendt.highlander.StoreElection;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 
 import javax.sql.DataSource;
 import java.sql.Connection;
 import java.sql.SQLException;
-import java.util.Timer;
-import java.util.TimerTask;
+import java.sql.SQLFeatureNotSupportedException;
+import java.util.Random;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Function;
 
 
 public class Highlander {
 
-    Timer timer;
+    private static final Logger LOG = LoggerFactory.getLogger(Highlander.class);
 
-    int heartBeatInterval = 1000;
+    volatile int heartBeatInterval = 1000;
+    int heartBeatJitter = 100;
     int heartBeatFactor = 3;
 
+    private HighlanderConfig adaptiveConfig;
+    private LatencyHistogram electionLatency;
+
+    private ScheduledExecutorService scheduler;
+    private Executor electionExecutor;
+    private Random jitterRandom;
+    private volatile HeartBeat heartBeat;
+    // counts the calls of stop(), so a start that is still pending when the participant stops does nothing
+    private volatile int stops;
+    // started and not stopped since, as told to the metrics
+    private boolean participating;
+
     private DataSource dataSource;
-    private JdbcElection jdbcElection;
+    PinnedConnection pinnedConnection;
+    private final StoreElection election;
+    // the store if the elections run on the database, for the JDBC specific settings
+    private final JdbcElectionStore jdbcStore;
+    private final String groupName;
+
+    private boolean fastStart;
+    private boolean networkTimeoutSupported = true;
+    private boolean adaptiveFollowerPolling;
+    private int handoffPollInterval;
+    private LeadershipFeed handoffFeed;
+    private volatile LeadershipFeed.Subscription handoffSubscription;
+
+    private ElectionMetrics metrics = ElectionMetrics.NONE;
+    private ElectionClock clock = ElectionClock.SYSTEM;
+    private long leaderSince;
+    private long lastRenewalStarted;
+    private long otherLeaderSeenAt;
 
     private boolean leader;
-    private ElectionListener electionListener;
-    private TimerTask task;
+    private Boolean announcedLeader;
+    private final LocalLease lease = new LocalLease();
+    private final ListenerDispatcher listenerDispatcher = new ListenerDispatcher();
+
+    private final AtomicReference<CompletableFuture<Boolean>> pendingElection = new AtomicReference<CompletableFuture<Boolean>>();
+    private final AtomicReference<CompletableFuture<Boolean>> pendingStart = new AtomicReference<CompletableFuture<Boolean>>();
+    private final AtomicReference<CompletableFuture<Void>> pendingRelease = new AtomicReference<CompletableFuture<Void>>();
 
     public Highlander(DataSource dataSource, String groupName) {
         this.dataSource = dataSource;
-        jdbcElection = new JdbcElection(groupName);
-        jdbcElection.setMaxHeartBeatAge(heartBeatFactor * heartBeatInterval);
+        this.groupName = groupName;
+        jdbcStore = new JdbcElectionStore();
+        election = new StoreElection(jdbcStore, groupName);
+        updateMaxHeartBeatAge();
+    }
+
+    /**
+     * Runs the elections on the given store instead of a database, e.g. on an
+     * {@link github.abendt.highlander.memory.InMemoryElectionStore}. The JDBC specific settings have no effect.
+     */
+    public Highlander(ElectionStore store, String groupName) {
+        this.groupName = groupName;
+        jdbcStore = null;
+        election = new StoreElection(store, groupName);
+        updateMaxHeartBeatAge();
+    }
+
+    /**
+     * Sets the time between two elections. Call before {@link #start()}.
+     */
+    public void setHeartBeatInterval(int heartBeatInterval) {
+        this.heartBeatInterval = heartBeatInterval;
+        updateMaxHeartBeatAge();
+    }
+
+    /**
+     * Sets the number of heartbeat intervals after which the heartbeat of a leader is too old
+     * and another participant may take over. Call before {@link #start()}.
+     */
+    public void setHeartBeatFactor(int heartBeatFactor) {
+        this.heartBeatFactor = heartBeatFactor;
+        updateMaxHeartBeatAge();
+    }
+
+    /**
+     * Applies the heartbeat settings of the given configuration. In adaptive mode the heartbeat interval, and with
+     * it the maximum heartbeat age, follows the election latencies measured by this participant within the bounds
+     * of the configuration, and the local lease lasts the heartbeat factor times the minimum interval. Call before
+     * {@link #start()}.
+     */
+    public void setConfig(HighlanderConfig config) {
+        heartBeatJitter = config.getHeartBeatJitter();
+        heartBeatFactor = config.getHeartBeatFactor();
+        heartBeatInterval = config.getHeartBeatInterval();
+        updateMaxHeartBeatAge();
+
+        adaptiveConfig = config.isAdaptive() ? config : null;
+        electionLatency = config.isAdaptive() ? new LatencyHistogram() : null;
+    }
+
+    /**
+     * @return the current time between two elections
+     */
+    public int getHeartBeatInterval() {
+        return heartBeatInterval;
+    }
+
+    /**
+     * Runs the elections on the given clock, e.g. in virtual time together with a virtual {@link #setScheduler scheduler}.
+     */
+    public void setClock(ElectionClock clock) {
+        this.clock = clock;
+        lease.setClock(clock);
+
+        if (jdbcStore != null) {
+            jdbcStore.setClock(clock);
+            election.setClock(jdbcStore.getClock());
+        } else {
+            election.setClock(clock);
+        }
     }
 
     public void setListener(ElectionListener listener) {
-        this.electionListener = listener;
+        listenerDispatcher.setListener(listener);
+    }
+
+    /**
+     * Records the measurements of the elections, e.g. with {@link github.abendt.highlander.jmx.JmxElectionMetrics}.
+     * The metrics are told when this participant starts and stops, so they can drop the group once every
+     * participant of the group that shares them stopped. Call before {@link #start()}.
+     */
+    public void setMetrics(ElectionMetrics metrics) {
+        this.metrics = metrics != null ? metrics : ElectionMetrics.NONE;
+    }
+
+    /**
+     * Delivers the election events on the given executor so a slow listener does not delay the heartbeat.
+     * Events that are still waiting for delivery are merged into the latest one.
+     */
+    public void setListenerExecutor(Executor listenerExecutor) {
+        listenerDispatcher.setExecutor(listenerExecutor);
+    }
+
+    /**
+     * Advertises the given endpoint of this participant while it is the leader, see {@link JdbcElectionStore#setEndpoint(String)}.
+     * Elections on a store do not advertise endpoints.
+     */
+    public void setEndpoint(String endpoint) {
+        if (jdbcStore != null) {
+            jdbcStore.setEndpoint(endpoint);
+        }
+    }
+
+    /**
+     * Numbers every change of the leader for a {@link JdbcLeadershipFeed}, see {@link JdbcElectionStore#setRecordChanges(boolean)}.
+     */
+    public void setRecordChanges(boolean recordChanges) {
+        if (jdbcStore != null) {
+            jdbcStore.setRecordChanges(recordChanges);
+        }
+    }
+
+    /**
+     * Ages the heartbeats with the clock of the database server, see {@link JdbcElectionStore#setServerClock(boolean)}.
+     * The local lease is measured with the monotonic clock in any case.
+     */
+    public void setServerClock(boolean useServerClock) {
+        if (jdbcStore != null) {
+            jdbcStore.setServerClock(useServerClock);
+            election.setClock(jdbcStore.getClock());
+        }
+    }
+
+    public void setConditionalWrite(boolean conditionalWrite) {
+        if (jdbcStore != null) {
+            jdbcStore.setConditionalWrite(conditionalWrite);
+        }
+    }
+
+    /**
+     * Lets a follower only probe the version, heartbeat and leader of the group with a read instead of running a
+     * full election, until the group is vacant, handed over to this participant or the lease of the leader expired.
+     * Only then does it run a full election to take over. The leader keeps renewing every heartbeat interval.
+     */
+    public void setAdaptiveFollowerPolling(boolean adaptiveFollowerPolling) {
+        this.adaptiveFollowerPolling = adaptiveFollowerPolling;
+    }
+
+    /**
+     * Bounds the time an adaptive follower waits between two probes, so it notices a leader in another JVM that
+     * gave up the group or handed it over to this participant within this interval instead of at the end of the
+     * lease. Off by default, see {@link #setHandoffFeed(LeadershipFeed)} for a handoff without probes.
+     * Followers in the same JVM are woken immediately in any case.
+     */
+    public void setHandoffPollInterval(int handoffPollInterval) {
+        this.handoffPollInterval = handoffPollInterval;
+    }
+
+    /**
+     * Runs an election as soon as the given feed publishes that the leader gave up the group or handed it over to
+     * this participant, e.g. a {@link JdbcLeadershipFeed} on the same database, so a follower takes over from a
+     * leader in another JVM without waiting for the lease to expire. The feed only publishes the changes the
+     * participants record, see {@link #setRecordChanges(boolean)}. Call before {@link #start()}.
+     */
+    public void setHandoffFeed(LeadershipFeed handoffFeed) {
+        this.handoffFeed = handoffFeed;
+    }
+
+    /**
+     * Lets {@link #start()} prepare the group row and the statements, see {@link JdbcElectionStore#warmUp(String)},
+     * and run the first election on the calling thread instead of one heartbeat interval later.
+     */
+    public void setFastStart(boolean fastStart) {
+        this.fastStart = fastStart;
+    }
+
+    public String getParticipantId() {
+        return election.getParticipantId();
+    }
+
+    /**
+     * Keeps one validated connection with prepared statements for the lifetime of this Highlander
+     * instead of borrowing a connection from the {@link DataSource} on every heartbeat. A broken connection
+     * is replaced and its statements are prepared again.
+     */
+    public void setPinnedConnection(boolean pinned) {
+        if (dataSource == null) {
+            return;
+        }
+
+        if (pinned && pinnedConnection == null) {
+            pinnedConnection = new PinnedConnection(dataSource);
+        } else if (!pinned && pinnedConnection != null) {
+            pinnedConnection.close();
+            pinnedConnection = null;
+        }
+
+        jdbcStore.setCacheStatements(pinned);
+    }
+
+    /**
+     * Runs the heartbeats on the given scheduler instead of the {@link HighlanderExecutors#sharedScheduler() shared one}.
+     */
+    public void setScheduler(ScheduledExecutorService scheduler) {
+        this.scheduler = scheduler;
+    }
+
+    /**
+     * Runs the blocking elections on the given executor, e.g. {@link HighlanderExecutors#newVirtualThreadExecutor()},
+     * instead of the scheduler thread.
+     */
+    public void setElectionExecutor(Executor electionExecutor) {
+        this.electionExecutor = electionExecutor;
+    }
+
+    /**
+     * Draws the heartbeat jitter from the given random instead of the random of the scheduler thread, so runs on
+     * a virtual {@link #setScheduler scheduler} with a seeded random repeat exactly. Call before {@link #start()}.
+     */
+    public void setJitterRandom(Random jitterRandom) {
+        this.jitterRandom = jitterRandom;
     }
 
     public void start() {
-        timer = new Timer();
-        task = new TimerTask() {
+        if (fastStart) {
+            try {
+                warmUp();
+            } catch (SQLException | RuntimeException e) {
+                LOG.warn("participant '{}' could not warm up for group '{}'", getParticipantId(), groupName, e);
+            }
+
+            runElection();
+        }
+
+        startHeartBeat();
+    }
+
+    /**
+     * Warms up and runs the first election on the election executor like a {@link #setFastStart(boolean) fast start},
+     * then starts the heartbeat, whether the first election succeeded or not. Starting many groups this way with an
+     * election executor of many threads starts them in parallel. Does nothing if {@link #stop()} is called before.
+     *
+     * @return the result of the first election
+     */
+    public CompletableFuture<Boolean> startAsync() {
+        final int stopsAtStart = stops;
+
+        return runAsync(pendingStart, new Callable<Boolean>() {
+            @Override
+            public Boolean call() throws Exception {
+                synchronized (Highlander.this) {
+                    if (stops != stopsAtStart) {
+                        return false;
+                    }
+
+                    try {
+                        warmUp();
+                        return elect();
+                    } finally {
+                        startHeartBeat();
+                    }
+                }
+            }
+        });
+    }
+
+    private synchronized void startHeartBeat() {
+        if (heartBeat != null) {
+            // started again, the previous heartbeat would keep electing after stop()
+            heartBeat.stop();
+        }
+
+        heartBeat = new HeartBeat(
+                scheduler != null ? scheduler : HighlanderExecutors.sharedScheduler(),
+                electionExecutor,
+                new Runnable() {
+                    @Override
+                    public void run() {
+                        runElection();
+                    }
+                },
+                heartBeatInterval,
+                heartBeatJitter);
+        heartBeat.setRandom(jitterRandom);
+        heartBeat.start();
+
+        if (!participating) {
+            participating = true;
+            metrics.participantStarted(groupName);
+        }
+
+        LocalHandoff.register(groupName, this);
+
+        if (handoffFeed != null && handoffSubscription == null) {
+            handoffFeed.subscribe(handoffSubscriber);
+        }
+    }
+
+    /**
+     * Runs an election on the election executor. Requests made while an election is in flight share its result.
+     */
+    public CompletableFuture<Boolean> electAsync() {
+        return runAsync(pendingElection, new Callable<Boolean>() {
             @Override
-            public void run() {
-                runElection();
+            public Boolean call() throws Exception {
+                return elect();
             }
-        };
-        timer.scheduleAtFixedRate(task, heartBeatInterval, heartBeatInterval);
+        });
+    }
+
+    /**
+     * Gives up the leadership on the election executor. Requests made while a release is in flight share its result.
+     * The heartbeat keeps running, so the leadership may be won again in a later election.
+     */
+    public CompletableFuture<Void> releaseAsync() {
+        return runAsync(pendingRelease, new Callable<Void>() {
+            @Override
+            public Void call() throws Exception {
+                release();
+                return null;
+            }
+        });
+    }
+
+    /**
+     * Tells from the locally cached lease whether this participant is the leader, without accessing the database.
+     * Returns false as soon as the lease of the last confirmed renewal has run out, even while the next renewal
+     * is still in progress.
+     */
+    public boolean isLeader() {
+        return lease.isValid();
+    }
+
+    /**
+     * @return the nanoseconds until the local lease expires, zero or less if it is not valid
+     */
+    long leaseRemainingNanos() {
+        return lease.remainingNanos();
+    }
+
+    /**
+     * @return the version of the group stored by the last confirmed renewal
+     */
+    long leaseVersion() {
+        return lease.version();
     }
 
     public void stop() {
-        if (leader) {
-            electionListener.groupChanged(false);
+        stop(null);
+    }
+
+    /**
+     * Stops taking part in the elections and hands the leadership over to the given participant, see
+     * {@link #getParticipantId()}. Without a successor the leadership is given up for any participant.
+     * Followers in the same JVM run an election immediately.
+     */
+    public void stop(String successorId) {
+        boolean wasParticipating;
+
+        synchronized (this) {
+            stops++;
+            wasParticipating = participating;
+            participating = false;
         }
 
-        if (task != null) {
-            task.cancel();
+        HeartBeat currentHeartBeat = heartBeat;
+
+        if (currentHeartBeat != null) {
+            currentHeartBeat.stop();
         }
 
-        if (timer != null) {
-            timer.cancel();
+        LocalHandoff.unregister(groupName, this);
+
+        LeadershipFeed.Subscription subscription = handoffSubscription;
+
+        if (subscription != null) {
+            // before the release, which the feed would publish to this participant as well
+            handoffSubscription = null;
+            subscription.cancel();
         }
 
         try {
-            Connection connection = dataSource.getConnection();
+            if (successorId == null) {
+                release();
+            } else {
+                handOver(successorId);
+            }
 
-            try {
-                jdbcElection.giveUpLeaderShip(connection);
+            LocalHandoff.wakeFollowers(groupName, this);
+        } catch (SQLException | RuntimeException e) {
+            LOG.warn("participant '{}' could not give up leadership of group '{}'", getParticipantId(), groupName, e);
+        } finally {
+            if (pinnedConnection != null) {
+                jdbcStore.closeStatements();
+                pinnedConnection.close();
+            }
 
-            } finally {
-                connection.close();
+            if (wasParticipating) {
+                metrics.participantStopped(groupName);
             }
-        } catch (SQLException e) {
-            e.printStackTrace();
         }
     }
 
     void runElection() {
+        if (pendingElection.get() != null) {
+            // an election requested with electAsync is in flight, this tick shares its result
+            return;
+        }
+
         try {
+            if (adaptiveFollowerPolling) {
+                long leaseRemaining = probeLeaseAsFollower();
+
+                if (leaseRemaining > 0) {
+                    if (heartBeat != null) {
+                        heartBeat.delayNextRun(handoffPollInterval > 0 ? Math.min(handoffPollInterval, leaseRemaining) : leaseRemaining);
+                    }
+                    return;
+                }
+            }
+
+            elect();
+        } catch (SQLException e) {
+            LOG.warn("participant '{}' could not run election of group '{}'", getParticipantId(), groupName, e);
+        }
+    }
+
+    synchronized void warmUp() throws SQLException {
+        withConnection(warmUp);
+    }
+
+    synchronized boolean elect() throws SQLException {
+        long started = clock.nanoTime();
+        boolean result;
+
+        try {
+            result = withConnection(claimOrRenew);
+        } catch (SQLException | RuntimeException e) {
+            metrics.electionFailed(groupName);
+            adaptToLatency(clock.nanoTime() - started);
+
+            if (leader && !lease.isValid()) {
+                // the renewal could not be confirmed before the lease ran out
+                lease.revoke();
+                metrics.leadershipLost(groupName, clock.nanoTime() - leaderSince);
+                announceResult(false);
+            }
+
+            throw e;
+        }
+
+        recordElection(started, result);
+
+        if (result) {
+            lease.confirm(started, leaseMillis(), version());
+        } else {
+            lease.revoke();
+        }
+
+        announceResult(result);
+
+        return result;
+    }
+
+    /**
+     * @return the milliseconds until the lease of the current leader expires, zero if this participant
+     * is not a follower or may claim the group now
+     */
+    synchronized long probeLeaseAsFollower() throws SQLException {
+        if (!Boolean.FALSE.equals(announcedLeader)) {
+            return 0;
+        }
+
+        return withConnection(leaseProbe);
+    }
+
+    synchronized void release() throws SQLException {
+        lease.revoke();
+
+        if (leader) {
+            metrics.leadershipLost(groupName, clock.nanoTime() - leaderSince);
+            announceResult(false);
+        }
+
+        withConnection(giveUpLeaderShip);
+    }
+
+    synchronized void handOver(final String successorId) throws SQLException {
+        lease.revoke();
+
+        if (leader) {
+            metrics.leadershipLost(groupName, clock.nanoTime() - leaderSince);
+            announceResult(false);
+        }
+
+        withConnection(new ElectionOperation<Boolean>() {
+            @Override
+            public Boolean run() {
+                return election.handOverLeaderShip(successorId);
+            }
+        });
+    }
+
+    private <T> CompletableFuture<T> runAsync(final AtomicReference<CompletableFuture<T>> pending, final Callable<T> action) {
+        while (true) {
+            CompletableFuture<T> inFlight = pending.get();
+
+            if (inFlight != null) {
+                return inFlight.thenApply(Function.<T>identity());
+            }
+
+            final CompletableFuture<T> future = new CompletableFuture<T>();
+
+            if (!pending.compareAndSet(null, future)) {
+                continue;
+            }
+
+            try {
+                asyncExecutor().execute(new Runnable() {
+                    @Override
+                    public void run() {
+                        try {
+                            T result = action.call();
+                            pending.compareAndSet(future, null);
+                            future.complete(result);
+                        } catch (Throwable e) {
+                            pending.compareAndSet(future, null);
+                            future.completeExceptionally(e);
+                        }
+                    }
+                });
+            } catch (RejectedExecutionException e) {
+                pending.compareAndSet(future, null);
+                future.completeExceptionally(e);
+            }
+
+            return future.thenApply(Function.<T>identity());
+        }
+    }
+
+    private Executor asyncExecutor() {
+        if (electionExecutor != null) {
+            return electionExecutor;
+        }
+
+        return scheduler != null ? scheduler : HighlanderExecutors.sharedScheduler();
+    }
+
+    private void recordElection(long started, boolean result) {
+        long finished = clock.nanoTime();
+
+        metrics.electionCompleted(groupName, finished - started, roundTrips(), result);
+        adaptToLatency(finished - started);
+
+        if (versionConflicts() > 0) {
+            metrics.versionConflicts(groupName, versionConflicts());
+        }
+
+        if (result && leader) {
+            metrics.heartBeatLag(groupName, TimeUnit.NANOSECONDS.toMillis(started - lastRenewalStarted), maxHeartBeatAge());
+        } else if (result) {
+            metrics.leadershipGained(groupName, otherLeaderSeenAt != 0 ? finished - otherLeaderSeenAt : -1);
+            leaderSince = finished;
+        } else if (leader) {
+            metrics.leadershipLost(groupName, finished - leaderSince);
+        }
+
+        if (result) {
+            lastRenewalStarted = started;
+        } else if (observedLeaderId() != null) {
+            otherLeaderSeenAt = finished;
+        }
+    }
+
+    /**
+     * Derives the heartbeat interval from the latencies of the last elections once the adaptation window is full.
+     * Failed elections count with the time they took, so a database that times out lengthens the interval.
+     */
+    private void adaptToLatency(long latencyNanos) {
+        if (adaptiveConfig == null) {
+            return;
+        }
+
+        electionLatency.record(TimeUnit.NANOSECONDS.toMicros(latencyNanos));
+
+        if (electionLatency.getCount() < adaptiveConfig.getAdaptationWindow()) {
+            return;
+        }
+
+        int interval = adaptiveConfig.adaptedInterval(electionLatency.getPercentile(99));
+        electionLatency = new LatencyHistogram();
+
+        if (interval == heartBeatInterval) {
+            return;
+        }
+
+        LOG.debug("participant '{}' adapts heartbeat interval of group '{}' from {} to {} ms",
+                getParticipantId(), groupName, heartBeatInterval, interval);
+
+        heartBeatInterval = interval;
+        updateMaxHeartBeatAge();
+
+        if (heartBeat != null) {
+            heartBeat.setInterval(interval);
+        }
+    }
+
+    private <T> T withConnection(ElectionOperation<T> operation) throws SQLException {
+        if (dataSource == null) {
+            return operation.run();
+        }
+
+        long deadline = deadline();
+        jdbcStore.setDeadline(deadline);
+
+        if (pinnedConnection == null) {
+            long acquisitionStarted = clock.nanoTime();
             Connection connection = dataSource.getConnection();
+            metrics.connectionAcquired(groupName, clock.nanoTime() - acquisitionStarted);
 
             try {
-                boolean result = jdbcElection.runElection(connection);
+                int previousNetworkTimeout = setNetworkTimeout(connection, deadline);
 
-                announceResult(result);
+                try {
+                    return runOn(connection, operation);
+                } finally {
+                    if (previousNetworkTimeout >= 0) {
+                        // the connection goes back to the pool
+                        connection.setNetworkTimeout(HighlanderExecutors.sharedScheduler(), previousNetworkTimeout);
+                    }
+                }
             } finally {
                 connection.close();
             }
-        } catch (SQLException e) {
-            e.printStackTrace();
+        }
+
+        try {
+            long acquisitionStarted = clock.nanoTime();
+            Connection connection = pinnedConnection.get();
+            metrics.connectionAcquired(groupName, clock.nanoTime() - acquisitionStarted);
+
+            setNetworkTimeout(connection, deadline);
+            return runOn(connection, operation);
+        } catch (RuntimeException e) {
+            if (!pinnedConnection.isBrokenBy(e)) {
+                throw e;
+            }
+
+            // reconnect and prepare the statements again, the next heartbeat retries if there is no time left
+            pinnedConnection.invalidate();
+
+            if (clock.nanoTime() - deadline >= 0) {
+                throw e;
+            }
+
+            Connection connection = pinnedConnection.get();
+            setNetworkTimeout(connection, deadline);
+            return runOn(connection, operation);
+        }
+    }
+
+    private <T> T runOn(Connection connection, ElectionOperation<T> operation) {
+        jdbcStore.begin(connection);
+
+        try {
+            return operation.run();
+        } finally {
+            jdbcStore.end();
+        }
+    }
+
+    /**
+     * @return the end of the remaining lease of a leader, so a renewal that cannot be confirmed in time fails,
+     * otherwise the time after which a heartbeat becomes too old
+     */
+    private long deadline() {
+        long now = clock.nanoTime();
+        long leaseRemaining = lease.remainingNanos();
+
+        if (leader && leaseRemaining > 0) {
+            return now + leaseRemaining;
+        }
+
+        return now + TimeUnit.MILLISECONDS.toNanos(maxHeartBeatAge());
+    }
+
+    /**
+     * Bounds the time the driver waits for the database, with millisecond precision unlike the query timeout.
+     *
+     * @return the previous network timeout, -1 if the driver does not support network timeouts
+     */
+    private int setNetworkTimeout(Connection connection, long deadline) throws SQLException {
+        if (!networkTimeoutSupported) {
+            return -1;
+        }
+
+        try {
+            int previousNetworkTimeout = connection.getNetworkTimeout();
+            long timeout = Math.max(1, TimeUnit.NANOSECONDS.toMillis(deadline - clock.nanoTime()));
+
+            connection.setNetworkTimeout(HighlanderExecutors.sharedScheduler(), (int) Math.min(Integer.MAX_VALUE, timeout));
+
+            return previousNetworkTimeout;
+        } catch (SQLFeatureNotSupportedException | AbstractMethodError e) {
+            LOG.debug("driver does not support network timeouts, elections are bounded by query timeouts only: {}", e.toString());
+            networkTimeoutSupported = false;
+            return -1;
         }
     }
 
     private void announceResult(boolean result) {
         leader = result;
 
-        if (electionListener != null) {
-            electionListener.groupChanged(result);
+        if (announcedLeader != null && announcedLeader == result) {
+            return;
         }
+
+        announcedLeader = result;
+
+        String leaderId = observedLeaderId();
+
+        if (!result && getParticipantId().equals(leaderId)) {
+            // the leadership is being given up
+            leaderId = null;
+        }
+
+        listenerDispatcher.dispatch(new ElectionEvent(
+                groupName,
+                result ? getParticipantId() : leaderId,
+                result,
+                version(),
+                clock.currentTimeMillis()));
+    }
+
+    private String observedLeaderId() {
+        return election.getLeaderId();
     }
 
+    private void updateMaxHeartBeatAge() {
+        election.setMaxHeartBeatAge(heartBeatFactor * heartBeatInterval);
+    }
+
+    private long version() {
+        return election.getVersion();
+    }
+
+    private int roundTrips() {
+        return jdbcStore != null ? jdbcStore.getRoundTrips() : election.getRoundTrips();
+    }
+
+    private int versionConflicts() {
+        return election.getVersionConflicts();
+    }
+
+    /**
+     * @return the milliseconds after the start of a confirmed renewal until another participant may take over
+     */
+    private int leaseMillis() {
+        int lease = adaptiveConfig != null ? adaptiveConfig.guaranteedLease() : maxHeartBeatAge();
+
+        return (int) (lease - election.getClockUncertainty());
+    }
+
+    private int maxHeartBeatAge() {
+        return election.getMaxHeartBeatAge();
+    }
+
+    /**
+     * An operation of the election, run on a connection of the data source if the elections run on the database.
+     */
+    private interface ElectionOperation<T> {
+        T run();
+    }
+
+    private final ElectionOperation<Void> warmUp = new ElectionOperation<Void>() {
+        @Override
+        public Void run() {
+            if (jdbcStore != null) {
+                jdbcStore.warmUp(groupName);
+            }
+            return null;
+        }
+    };
+
+    private final LeadershipFeed.Subscriber handoffSubscriber = new LeadershipFeed.Subscriber() {
+        @Override
+        public void onSubscribe(LeadershipFeed.Subscription subscription) {
+            handoffSubscription = subscription;
+            subscription.request(Long.MAX_VALUE);
+        }
+
+        @Override
+        public void onChange(LeadershipChange change) {
+            if (!groupName.equals(change.getGroupName()) || handoffSubscription == null || lease.isValid()) {
+                return;
+            }
+
+            if (change.getLeaderId() == null || change.getLeaderId().equals(getParticipantId())) {
+                electAsync();
+            }
+        }
+
+        @Override
+        public void onError(Throwable error) {
+            handoffSubscription = null;
+            LOG.warn("participant '{}' no longer receives the handoffs of group '{}'", getParticipantId(), groupName, error);
+        }
+    };
+
+    private final ElectionOperation<Boolean> claimOrRenew = new ElectionOperation<Boolean>() {
+        @Override
+        public Boolean run() {
+            return election.runElection();
+        }
+    };
+
+    private final ElectionOperation<Long> leaseProbe = new ElectionOperation<Long>() {
+        @Override
+        public Long run() {
+            return election.probeLease();
+        }
+    };
+
+    private final ElectionOperation<Void> giveUpLeaderShip = new ElectionOperation<Void>() {
+        @Override
+        public Void run() {
+            election.giveUpLeaderShip();
+            return null;
+        }
+    };
 }
@@ -0,0 +1,185 @@
+package github.abendt.highlander.jdbc;
+
+/**
+ * The heartbeat settings of a {@link Highlander}, see {@link Highlander#setConfig(HighlanderConfig)}.
+ * <p>
+ * In adaptive mode a participant derives its heartbeat interval from the 99th percentile of its election latencies,
+ * multiplied by the latency multiple and kept within the given bounds, and waits the heartbeat factor times its
+ * interval before it takes over from a silent leader. Participants that measure different latencies end up with
+ * different intervals, so the bounds have to keep every interval, plus jitter, below the heartbeat factor times the
+ * lowest one. Then no participant considers the heartbeat of a renewing leader too old.
+ */
+public final class HighlanderConfig {
+
+    private final int heartBeatInterval;
+    private final int heartBeatFactor;
+    private final int heartBeatJitter;
+
+    private final boolean adaptive;
+    private final int minHeartBeatInterval;
+    private final int maxHeartBeatInterval;
+    private final int latencyMultiple;
+    private final int adaptationWindow;
+
+    private HighlanderConfig(Builder builder) {
+        adaptive = builder.adaptive;
+        heartBeatFactor = builder.heartBeatFactor;
+        heartBeatJitter = builder.heartBeatJitter;
+        minHeartBeatInterval = adaptive ? builder.minHeartBeatInterval : builder.heartBeatInterval;
+        maxHeartBeatInterval = adaptive ? builder.maxHeartBeatInterval : builder.heartBeatInterval;
+        heartBeatInterval = Math.max(minHeartBeatInterval, Math.min(maxHeartBeatInterval, builder.heartBeatInterval));
+        latencyMultiple = builder.latencyMultiple;
+        adaptationWindow = builder.adaptationWindow;
+    }
+
+    public static Builder builder() {
+        return new Builder();
+    }
+
+    /**
+     * @return the interval to start with
+     */
+    public int getHeartBeatInterval() {
+        return heartBeatInterval;
+    }
+
+    public int getHeartBeatFactor() {
+        return heartBeatFactor;
+    }
+
+    public int getHeartBeatJitter() {
+        return heartBeatJitter;
+    }
+
+    public boolean isAdaptive() {
+        return adaptive;
+    }
+
+    public int getMinHeartBeatInterval() {
+        return minHeartBeatInterval;
+    }
+
+    public int getMaxHeartBeatInterval() {
+        return maxHeartBeatInterval;
+    }
+
+    public int getLatencyMultiple() {
+        return latencyMultiple;
+    }
+
+    /**
+     * @return the number of elections whose latencies are measured before the interval is derived again
+     */
+    public int getAdaptationWindow() {
+        return adaptationWindow;
+    }
+
+    /**
+     * @return the interval for the given 99th percentile of the election latency in microseconds
+     */
+    int adaptedInterval(long latencyP99Micros) {
+        long interval = (latencyP99Micros * latencyMultiple + 999) / 1000;
+
+        return (int) Math.max(minHeartBeatInterval, Math.min(maxHeartBeatInterval, interval));
+    }
+
+    /**
+     * @return the lease a leader may rely on, the age after which a participant with the lowest interval takes over
+     */
+    int guaranteedLease() {
+        return heartBeatFactor * minHeartBeatInterval;
+    }
+
+    public static class Builder {
+
+        private int heartBeatInterval = 1000;
+        private int heartBeatFactor = 3;
+        private int heartBeatJitter = 100;
+
+        private boolean adaptive;
+        private int minHeartBeatInterval;
+        private int maxHeartBeatInterval;
+        private int latencyMultiple = 10;
+        private int adaptationWindow = 20;
+
+        private Builder() {
+        }
+
+        /**
+         * Sets the time between two elections, the interval to start with in adaptive mode.
+         */
+        public Builder heartBeatInterval(int heartBeatInterval) {
+            this.heartBeatInterval = heartBeatInterval;
+            return this;
+        }
+
+        /**
+         * Sets the number of heartbeat intervals after which the heartbeat of a leader is too old.
+         */
+        public Builder heartBeatFactor(int heartBeatFactor) {
+            this.heartBeatFactor = heartBeatFactor;
+            return this;
+        }
+
+        /**
+         * Sets the upper bound of the random delay added to every interval.
+         */
+        public Builder heartBeatJitter(int heartBeatJitter) {
+            this.heartBeatJitter = heartBeatJitter;
+            return this;
+        }
+
+        /**
+         * Derives the interval from the measured election latencies, within the given bounds.
+         */
+        public Builder adaptive(int minHeartBeatInterval, int maxHeartBeatInterval) {
+            this.adaptive = true;
+            this.minHeartBeatInterval = minHeartBeatInterval;
+            this.maxHeartBeatInterval = maxHeartBeatInterval;
+            return this;
+        }
+
+        /**
+         * Sets how many times the 99th percentile of the election latency an adaptive interval is long.
+         */
+        public Builder latencyMultiple(int latencyMultiple) {
+            this.latencyMultiple = latencyMultiple;
+            return this;
+        }
+
+        /**
+         * Sets the number of elections measured before an adaptive interval is derived again.
+         */
+        public Builder adaptationWindow(int adaptationWindow) {
+            this.adaptationWindow = adaptationWindow;
+            return this;
+        }
+
+        /**
+         * @throws IllegalArgumentException if the settings could let a participant take over from a renewing leader
+         */
+        public HighlanderConfig build() {
+            if (heartBeatInterval <= 0 || heartBeatJitter < 0 || latencyMultiple <= 0 || adaptationWindow <= 0) {
+                throw new IllegalArgumentException("heartbeat settings must be positive");
+            }
+
+            if (heartBeatFactor < 2) {
+                throw new IllegalArgumentException("heartbeat factor must be at least 2: " + heartBeatFactor);
+            }
+
+            if (adaptive) {
+                if (minHeartBeatInterval <= 0 || minHeartBeatInterval > maxHeartBeatInterval) {
+                    throw new IllegalArgumentException("invalid interval bounds: " + minHeartBeatInterval + " to " + maxHeartBeatInterval);
+                }
+
+                if (maxHeartBeatInterval + heartBeatJitter >= heartBeatFactor * minHeartBeatInterval) {
+                    throw new IllegalArgumentException("the maximum interval " + maxHeartBeatInterval + " plus jitter "
+                            + heartBeatJitter + " must be below " + heartBeatFactor + " times the minimum interval "
+                            + minHeartBeatInterval + ", otherwise a participant could take over from a renewing leader");
+                }
+            }
+
+            return new HighlanderConfig(this);
+        }
+    }
+}
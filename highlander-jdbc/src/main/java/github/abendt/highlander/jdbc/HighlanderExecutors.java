@@ -0,0 +1,58 @@
+package github.abendt.highlander.jdbc;
+
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Executors for running the heartbeats of many {@link Highlander}s on few threads.
+ */
+public final class HighlanderExecutors {
+
+    private static ScheduledExecutorService sharedScheduler;
+
+    private HighlanderExecutors() {
+    }
+
+    /**
+     * @return the JVM wide scheduler that is used by all Highlanders without a scheduler of their own
+     */
+    public static synchronized ScheduledExecutorService sharedScheduler() {
+        if (sharedScheduler == null) {
+            int threads = Math.max(2, Runtime.getRuntime().availableProcessors());
+            ScheduledThreadPoolExecutor scheduler = new ScheduledThreadPoolExecutor(threads, daemonThreads("highlander-"));
+            scheduler.setRemoveOnCancelPolicy(true);
+            sharedScheduler = scheduler;
+        }
+
+        return sharedScheduler;
+    }
+
+    /**
+     * Creates an executor that runs every election on a new virtual thread, so blocking JDBC calls only
+     * occupy a carrier thread while they make progress.
+     *
+     * @throws UnsupportedOperationException if the running JVM has no virtual threads
+     */
+    public static ExecutorService newVirtualThreadExecutor() {
+        try {
+            return (ExecutorService) Executors.class.getMethod("newVirtualThreadPerTaskExecutor").invoke(null);
+        } catch (NoSuchMethodException e) {
+            throw new UnsupportedOperationException("virtual threads require Java 21 or later", e);
+        } catch (ReflectiveOperationException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    static ThreadFactory daemonThreads(final String namePrefix) {
+        final AtomicInteger count = new AtomicInteger();
+
+        return new ThreadFactory() {
+            @Override
+            public Thread newThread(Runnable runnable) {
+                Thread thread = new Thread(runnable, namePrefix + count.incrementAndGet());
+                thread.setDaemon(true);
+                return thread;
+            }
+        };
+    }
+}
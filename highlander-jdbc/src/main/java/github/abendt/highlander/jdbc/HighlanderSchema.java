@@ -0,0 +1,318 @@
+package github.abendt.highlander.jdbc;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.sql.DataSource;
+import java.sql.*;
+import java.util.*;
+
+/**
+ * Creates and validates the {@code HIGHLANDER} table. Every heartbeat updates a row of it, so the layout of each
+ * dialect keeps these updates cheap:
+ * <ul>
+ * <li>Postgres: a table with a low fillfactor, so the updates are HOT and do not bloat the table. No index but the
+ * primary key, as an index on an updated column would prevent HOT updates. An unlogged table saves the WAL writes
+ * of the heartbeats, see {@link #setUnlogged(boolean)}.</li>
+ * <li>MySQL: an InnoDB table whose primary key clusters the rows, so a probe reads the row from the primary key.
+ * Its binary collation compares the group names byte by byte.</li>
+ * <li>H2: a memory table with an index that covers the follower probe.</li>
+ * </ul>
+ * The {@code ENDPOINT} column is optional, it is only needed to advertise endpoints with
+ * {@link JdbcElectionStore#setEndpoint(String)}. So is the {@code CHANGESEQ} column, which only changes with the leader
+ * if {@link JdbcElectionStore#setRecordChanges(boolean)} is enabled. Its index does not prevent HOT renewals on Postgres.
+ */
+public class HighlanderSchema {
+
+    private static final Logger LOG = LoggerFactory.getLogger(HighlanderSchema.class);
+
+    static final String TABLE = "HIGHLANDER";
+    static final String PROBE_INDEX = "HIGHLANDER_PROBE";
+    static final String CREATE_PROBE_INDEX = "CREATE INDEX " + PROBE_INDEX + " ON HIGHLANDER (GROUPNAME, VERSION, HEARTBEAT, ID)";
+    static final List<String> COLUMNS = Collections.unmodifiableList(Arrays.asList("GROUPNAME", "ID", "HEARTBEAT", "VERSION"));
+    static final String ENDPOINT_COLUMN = "ENDPOINT";
+    static final String CHANGES_INDEX = "HIGHLANDER_CHANGES";
+    static final String CREATE_CHANGES_INDEX = "CREATE INDEX " + CHANGES_INDEX + " ON HIGHLANDER (CHANGESEQ)";
+    static final String CHANGE_SEQUENCE = "HIGHLANDER_CHANGESEQ";
+
+    public enum Dialect {
+
+        POSTGRES("CREATE TABLE HIGHLANDER " +
+                "(GROUPNAME     VARCHAR(255) NOT NULL, " +
+                " ID            VARCHAR(255), " +
+                " HEARTBEAT     TIMESTAMP, " +
+                " VERSION       INTEGER NOT NULL, " +
+                " ENDPOINT      VARCHAR(255), " +
+                " CHANGESEQ     BIGINT, " +
+                " PRIMARY KEY ( GROUPNAME )) " +
+                "WITH (fillfactor=50)", null,
+                "CREATE SEQUENCE IF NOT EXISTS HIGHLANDER_CHANGESEQ", "nextval('HIGHLANDER_CHANGESEQ')",
+                "SELECT CURRENT_TIMESTAMP"),
+
+        MYSQL("CREATE TABLE HIGHLANDER " +
+                "(GROUPNAME     VARCHAR(191) NOT NULL, " +
+                " ID            VARCHAR(255), " +
+                " HEARTBEAT     DATETIME(3), " +
+                " VERSION       INTEGER NOT NULL, " +
+                " ENDPOINT      VARCHAR(255), " +
+                " CHANGESEQ     BIGINT, " +
+                " PRIMARY KEY ( GROUPNAME )) " +
+                "ENGINE=InnoDB DEFAULT CHARSET=utf8mb4 COLLATE=utf8mb4_bin", null,
+                null, null,
+                "SELECT CURRENT_TIMESTAMP(3)"),
+
+        H2("CREATE MEMORY TABLE HIGHLANDER " +
+                "(GROUPNAME     VARCHAR(255) NOT NULL, " +
+                " ID            VARCHAR(255), " +
+                " HEARTBEAT     TIMESTAMP, " +
+                " VERSION       INTEGER NOT NULL, " +
+                " ENDPOINT      VARCHAR(255), " +
+                " CHANGESEQ     BIGINT, " +
+                " PRIMARY KEY ( GROUPNAME ))", CREATE_PROBE_INDEX,
+                "CREATE SEQUENCE IF NOT EXISTS HIGHLANDER_CHANGESEQ", "NEXT VALUE FOR HIGHLANDER_CHANGESEQ",
+                "SELECT CURRENT_TIMESTAMP"),
+
+        GENERIC("CREATE TABLE HIGHLANDER " +
+                "(GROUPNAME     VARCHAR(255) NOT NULL, " +
+                " ID            VARCHAR(255), " +
+                " HEARTBEAT     TIMESTAMP, " +
+                " VERSION       INTEGER NOT NULL, " +
+                " ENDPOINT      VARCHAR(255), " +
+                " CHANGESEQ     BIGINT, " +
+                " PRIMARY KEY ( GROUPNAME ))", CREATE_PROBE_INDEX,
+                "CREATE SEQUENCE HIGHLANDER_CHANGESEQ", "NEXT VALUE FOR HIGHLANDER_CHANGESEQ",
+                "SELECT CURRENT_TIMESTAMP");
+
+        private final String createTable;
+        private final String createProbeIndex;
+        private final String createChangeSequence;
+        private final String nextChangeSequence;
+        private final String selectCurrentTimestamp;
+
+        Dialect(String createTable, String createProbeIndex, String createChangeSequence, String nextChangeSequence,
+                String selectCurrentTimestamp) {
+            this.createTable = createTable;
+            this.createProbeIndex = createProbeIndex;
+            this.createChangeSequence = createChangeSequence;
+            this.nextChangeSequence = nextChangeSequence;
+            this.selectCurrentTimestamp = selectCurrentTimestamp;
+        }
+
+        public String getCreateTable() {
+            return createTable;
+        }
+
+        /**
+         * @return the DDL of an unlogged table, null if the dialect has none
+         */
+        public String getCreateUnloggedTable() {
+            return this == POSTGRES ? createTable.replaceFirst("CREATE TABLE", "CREATE UNLOGGED TABLE") : null;
+        }
+
+        /**
+         * @return the DDL of the index that covers {@link JdbcElectionStore#FIND_SQL}, null if the dialect does not need one
+         */
+        public String getCreateProbeIndex() {
+            return createProbeIndex;
+        }
+
+        /**
+         * @return the DDL of the sequence that numbers the leadership changes, null if the dialect has no sequences
+         */
+        public String getCreateChangeSequence() {
+            return createChangeSequence;
+        }
+
+        /**
+         * @return the expression that draws the next number of the change sequence, null if the dialect has no sequences
+         */
+        public String getNextChangeSequence() {
+            return nextChangeSequence;
+        }
+
+        /**
+         * @return the query of the current time of the database server with millisecond precision
+         */
+        public String getSelectCurrentTimestamp() {
+            return selectCurrentTimestamp;
+        }
+
+        public static Dialect detect(DatabaseMetaData metaData) throws SQLException {
+            String product = metaData.getDatabaseProductName().toLowerCase(Locale.ROOT);
+
+            if (product.contains("postgres")) {
+                return POSTGRES;
+            } else if (product.contains("mysql") || product.contains("mariadb")) {
+                return MYSQL;
+            } else if (product.contains("h2")) {
+                return H2;
+            }
+
+            return GENERIC;
+        }
+    }
+
+    private final DataSource dataSource;
+    private Dialect dialect;
+    private boolean unlogged;
+
+    public HighlanderSchema(DataSource dataSource) {
+        this.dataSource = dataSource;
+    }
+
+    /**
+     * Uses the layout of the given dialect instead of the one detected from the database.
+     */
+    public void setDialect(Dialect dialect) {
+        this.dialect = dialect;
+    }
+
+    /**
+     * Creates an unlogged table on Postgres, which saves the WAL writes of the heartbeats. Postgres truncates an
+     * unlogged table after a crash and does not replicate it, so every group loses its leader after a crash or a
+     * failover to a standby and the participants elect one again. Has no effect on the other dialects.
+     */
+    public void setUnlogged(boolean unlogged) {
+        this.unlogged = unlogged;
+    }
+
+    /**
+     * Creates the table unless it exists, and validates it.
+     *
+     * @return true if the table was created
+     */
+    public boolean createIfMissing() throws SQLException {
+        Connection connection = dataSource.getConnection();
+
+        try {
+            if (tableExists(connection)) {
+                validate(connection);
+                return false;
+            }
+
+            Dialect currentDialect = dialect != null ? dialect : Dialect.detect(connection.getMetaData());
+
+            String createTable = unlogged && currentDialect.getCreateUnloggedTable() != null
+                    ? currentDialect.getCreateUnloggedTable() : currentDialect.getCreateTable();
+
+            try {
+                execute(connection, createTable);
+            } catch (SQLException e) {
+                if (!tableExists(connection)) {
+                    throw e;
+                }
+
+                // the participant that created the table creates the index and the sequence as well
+                LOG.debug("table {} was created concurrently", TABLE, e);
+                return false;
+            }
+
+            if (currentDialect.getCreateProbeIndex() != null) {
+                execute(connection, currentDialect.getCreateProbeIndex());
+            }
+
+            if (currentDialect.getCreateChangeSequence() != null) {
+                try {
+                    execute(connection, currentDialect.getCreateChangeSequence());
+                } catch (SQLException e) {
+                    if (!changeSequenceExists(connection, currentDialect)) {
+                        throw e;
+                    }
+
+                    // left over from a table that was dropped
+                    LOG.debug("sequence {} exists already", CHANGE_SEQUENCE, e);
+                }
+
+                execute(connection, CREATE_CHANGES_INDEX);
+            }
+
+            LOG.info("created table {} for dialect {}", TABLE, currentDialect);
+            return true;
+        } finally {
+            connection.close();
+        }
+    }
+
+    /**
+     * @throws IllegalStateException if the table or one of its columns is missing
+     */
+    public void validate() throws SQLException {
+        Connection connection = dataSource.getConnection();
+
+        try {
+            validate(connection);
+        } finally {
+            connection.close();
+        }
+    }
+
+    private void validate(Connection connection) throws SQLException {
+        Set<String> missingColumns = new LinkedHashSet<String>(COLUMNS);
+        missingColumns.removeAll(columns(connection));
+
+        if (missingColumns.size() == COLUMNS.size()) {
+            throw new IllegalStateException("table " + TABLE + " does not exist");
+        }
+
+        if (!missingColumns.isEmpty()) {
+            throw new IllegalStateException("table " + TABLE + " misses the columns " + missingColumns);
+        }
+    }
+
+    /**
+     * @return the upper case names of the columns of the table, empty if it does not exist
+     */
+    static Set<String> columns(Connection connection) throws SQLException {
+        DatabaseMetaData metaData = connection.getMetaData();
+        Set<String> columns = new HashSet<String>();
+
+        ResultSet rs = metaData.getColumns(null, null, storedName(metaData, TABLE), null);
+
+        try {
+            while (rs.next()) {
+                columns.add(rs.getString("COLUMN_NAME").toUpperCase(Locale.ROOT));
+            }
+        } finally {
+            rs.close();
+        }
+
+        return columns;
+    }
+
+    private static boolean tableExists(Connection connection) throws SQLException {
+        DatabaseMetaData metaData = connection.getMetaData();
+        ResultSet rs = metaData.getTables(null, null, storedName(metaData, TABLE), null);
+
+        try {
+            return rs.next();
+        } finally {
+            rs.close();
+        }
+    }
+
+    /**
+     * Draws no number, the table was just created and is empty.
+     */
+    private static boolean changeSequenceExists(Connection connection, Dialect dialect) {
+        try {
+            execute(connection, "SELECT " + dialect.getNextChangeSequence() + " FROM HIGHLANDER WHERE 1=0");
+            return true;
+        } catch (SQLException e) {
+            return false;
+        }
+    }
+
+    private static String storedName(DatabaseMetaData metaData, String name) throws SQLException {
+        return metaData.storesLowerCaseIdentifiers() ? name.toLowerCase(Locale.ROOT) : name;
+    }
+
+    private static void execute(Connection connection, String ddl) throws SQLException {
+        Statement st = connection.createStatement();
+
+        try {
+            st.execute(ddl);
+        } finally {
+            st.close();
+        }
+    }
+}
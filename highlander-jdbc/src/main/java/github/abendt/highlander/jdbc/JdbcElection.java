@@ -1,228 +1,198 @@
 package github.abendt.highlander.jdbc;
 
-import org.slf4j.Logger;
-import org.slf4j.LoggerFactory;
+import github.abendt.highlander.ElectionClock;
+import github.abendt.highlander.StoreElection;
 
-import java.sql.*;
-import java.util.Calendar;
-import java.util.Date;
+import java.sql.Connection;
+import java.sql.SQLTimeoutException;
 import java.util.UUID;
 
+/**
+ * Elects the leader of one group for one participant on the database, a {@link StoreElection} on a
+ * {@link JdbcElectionStore} whose operations run on the connection given to each call.
+ */
 public class JdbcElection {
 
-    private static final Logger LOG = LoggerFactory.getLogger(JdbcElection.class);
-
-    int maxHeartBeatAge = 1000 * 10;
-    Connection connection;
-    String groupName;
-    String participantId = UUID.randomUUID().toString();
+    final JdbcElectionStore store = new JdbcElectionStore();
+    private final StoreElection election;
 
     public JdbcElection(String groupName) {
-        this.groupName = groupName;
+        this(groupName, UUID.randomUUID().toString());
     }
 
-    public void setMaxHeartBeatAge(int maxHeartBeatAge) {
-        this.maxHeartBeatAge = maxHeartBeatAge;
+    public JdbcElection(String groupName, String participantId) {
+        election = new StoreElection(store, groupName, participantId);
     }
 
-    public void giveUpLeaderShip(Connection connection) {
-        this.connection = connection;
-
-        try {
-            Election election = findElection(groupName);
-
-            while (true) {
-                if (!election.isParticipantCurrentGroupLeader(participantId)) {
-                    return;
-                }
-
-                election = updateGroupLeader(election, null);
-            }
-        } catch (SQLException e) {
-            throw new RuntimeException(e);
-        }
+    public void setMaxHeartBeatAge(int maxHeartBeatAge) {
+        election.setMaxHeartBeatAge(maxHeartBeatAge);
     }
 
+    public void setClock(ElectionClock clock) {
+        store.setClock(clock);
+        election.setClock(store.getClock());
+    }
 
-    private class Election {
-        String electionGroupName;
-        String electedParticipant;
-        Date lastHeartBeat;
-        int version;
-
-        boolean isParticipantCurrentGroupLeader(String participantId) {
-            return participantId.equals(electedParticipant);
-        }
+    /**
+     * Stamps and ages the heartbeats with the {@link ServerClock clock of the database server} instead of the local
+     * wall clock, and considers a heartbeat too old only after the uncertainty of the server clock on top of the
+     * maximum heartbeat age. All participants of a group have to use the same mode.
+     */
+    public void setServerClock(boolean useServerClock) {
+        store.setServerClock(useServerClock);
+        election.setClock(store.getClock());
+    }
 
-        boolean hasNoCurrentGroupLeader() {
-            return electedParticipant == null;
-        }
+    void setServerClock(ServerClock serverClock) {
+        store.setServerClock(serverClock);
+        election.setClock(store.getClock());
+    }
 
-        boolean isHeartBeatTooOld() {
-            if (lastHeartBeat == null) {
-                return true;
-            }
+    /**
+     * @see JdbcElectionStore#setEndpoint(String)
+     */
+    public void setEndpoint(String endpoint) {
+        store.setEndpoint(endpoint);
+    }
 
-            Calendar cal = Calendar.getInstance();
-            cal.add(Calendar.MILLISECOND, -maxHeartBeatAge);
+    /**
+     * @see JdbcElectionStore#setRecordChanges(boolean)
+     */
+    public void setRecordChanges(boolean recordChanges) {
+        store.setRecordChanges(recordChanges);
+    }
 
-            return cal.getTime().after(lastHeartBeat);
-        }
+    /**
+     * @see JdbcElectionStore#setConditionalWrite(boolean)
+     */
+    public void setConditionalWrite(boolean conditionalWrite) {
+        store.setConditionalWrite(conditionalWrite);
+    }
 
+    /**
+     * Keeps the prepared statements of the last used connection open and reuses them for the next elections
+     * on the same connection. Call {@link #closeStatements()} when the connection is no longer used.
+     */
+    public void setCacheStatements(boolean cacheStatements) {
+        store.setCacheStatements(cacheStatements);
     }
 
-    public boolean runElection(Connection connection) {
-        this.connection = connection;
+    public void closeStatements() {
+        store.closeStatements();
+    }
 
-        LOG.debug("participant '{}' begins election for group '{}'", participantId, groupName);
+    /**
+     * Bounds the following operations by a deadline in {@link ElectionClock#nanoTime()}, zero for none. Every statement
+     * gets a query timeout of the time left, and a statement whose deadline passed is not sent but fails with a
+     * {@link SQLTimeoutException}.
+     */
+    public void setDeadline(long deadline) {
+        store.setDeadline(deadline);
+    }
 
-        try {
-            Election election = loadOrInsertElection(groupName, participantId);
-
-            while (true) {
-                if (election.hasNoCurrentGroupLeader()) {
-                    LOG.debug("group '{}' has no leader. participant '{}' requests leadership", groupName, participantId);
-                    election = updateGroupLeader(election, participantId);
-                    continue;
-                }
-
-                if (election.isHeartBeatTooOld()) {
-                    LOG.debug("group '{}': heartbeat '{}' is too old. participant '{}' requests leadership", groupName, election.lastHeartBeat, participantId);
-                    election = updateGroupLeader(election, participantId);
-                    continue;
-                }
-
-                if (election.isParticipantCurrentGroupLeader(participantId)) {
-                    election = updateGroupLeader(election, participantId);
-                }
-
-                LOG.debug("participant '{}' is the leader of '{}'", election.electedParticipant, groupName);
-                return election.isParticipantCurrentGroupLeader(participantId);
-            }
-        } catch (SQLException e) {
-            throw new RuntimeException(e);
-        }
+    public String getParticipantId() {
+        return election.getParticipantId();
     }
 
-    private Election updateGroupLeader(Election election, String participantId) throws SQLException {
-        election.electedParticipant = participantId;
-        return updateElection(election);
+    public int getMaxHeartBeatAge() {
+        return election.getMaxHeartBeatAge();
     }
 
-    private Election updateElection(Election election) throws SQLException {
+    /**
+     * @return the leader of the group as observed by the last election, null if the group had no leader
+     */
+    public String getLeaderId() {
+        return election.getLeaderId();
+    }
 
-        StringBuilder sql = new StringBuilder("UPDATE HIGHLANDER SET ");
+    /**
+     * @return the version of the group as observed by the last election
+     */
+    public long getVersion() {
+        return election.getVersion();
+    }
 
-        if (election.electedParticipant != null) {
-            sql.append("ID=?, ");
-        } else {
-            sql.append("ID=NULL, ");
-        }
+    /**
+     * @return the statements sent to the database by the last operation
+     */
+    public int getRoundTrips() {
+        return store.getRoundTrips();
+    }
 
-        sql.append("HEARTBEAT=?, VERSION=? WHERE GROUPNAME=? AND VERSION=?");
+    /**
+     * @return how often the last operation found the version of the group changed by another participant
+     */
+    public int getVersionConflicts() {
+        return election.getVersionConflicts();
+    }
 
-        int paramIndex = 1;
+    /**
+     * @see StoreElection#getClockUncertainty()
+     */
+    public long getClockUncertainty() {
+        return election.getClockUncertainty();
+    }
 
-        PreparedStatement st = connection.prepareStatement(sql.toString());
+    /**
+     * @see JdbcElectionStore#warmUp(String)
+     */
+    public void warmUp(Connection connection) {
+        store.begin(connection);
 
         try {
-            int incrementedVersion = election.version + 1;
-
-            if (election.electedParticipant != null) {
-                st.setString(paramIndex++, participantId);
-            }
-
-            st.setTimestamp(paramIndex++, timestamp(new Date()));
-            st.setInt(paramIndex++, incrementedVersion);
-            st.setString(paramIndex++, election.electionGroupName);
-            st.setInt(paramIndex++, election.version);
-
-            st.execute();
-
-            return findElection(election.electionGroupName);
+            store.warmUp(election.getGroupName());
         } finally {
-            st.close();
+            store.end();
         }
     }
 
-    private Election findElection(final String groupName) throws SQLException {
-        Statement statement = connection.createStatement();
+    public boolean runElection(Connection connection) {
+        store.begin(connection);
 
         try {
-            final ResultSet rs = statement.executeQuery("SELECT ID, HEARTBEAT, VERSION FROM HIGHLANDER WHERE GROUPNAME = '" + groupName + "'");
-
-            try {
-                if (!rs.next()) {
-                    return null;
-                }
-
-                return newElection(
-                        groupName,
-                        rs.getString("ID"),
-                        rs.getTimestamp("HEARTBEAT"),
-                        rs.getInt("VERSION"));
-            } finally {
-                rs.close();
-            }
+            return election.runElection();
         } finally {
-            statement.close();
+            store.end();
         }
     }
 
-    private Election loadOrInsertElection(String groupName, String id) throws SQLException {
-
-        Election election = findElection(groupName);
-
-        if (election != null) {
-            return election;
-        }
+    /**
+     * @see StoreElection#probeLease()
+     */
+    public long probeLease(Connection connection) {
+        store.begin(connection);
 
         try {
-            return insertElection(groupName, id);
-        } catch (SQLException e) {
-            if (isConstraintViolation(e)) {
-                return findElection(groupName);
-            }
-            throw new RuntimeException(e);
+            return election.probeLease();
+        } finally {
+            store.end();
         }
     }
 
-    private boolean isConstraintViolation(SQLException e) {
-        return e.getSQLState().startsWith("23");
-    }
-
-    private Election insertElection(final String groupName, final String id) throws SQLException {
-        PreparedStatement st = connection.prepareStatement("INSERT INTO HIGHLANDER (GROUPNAME, ID, HEARTBEAT, VERSION) VALUES (?, ?, ?, ?)");
+    public void giveUpLeaderShip(Connection connection) {
+        store.begin(connection);
 
         try {
-            final Date newHeartBeat = new Date();
-            final int newVersion = 0;
-
-            st.setString(1, groupName);
-            st.setString(2, id);
-            st.setTimestamp(3, timestamp(newHeartBeat));
-            st.setInt(4, newVersion);
-
-            st.execute();
-
-            return newElection(groupName, id, newHeartBeat, newVersion);
+            election.giveUpLeaderShip();
         } finally {
-            st.close();
+            store.end();
         }
     }
 
-    private Election newElection(final String groupName, final String id, final Date heartBeat, final int newVersion) {
-        return new Election() {
-            {
-                electionGroupName = groupName;
-                electedParticipant = id;
-                lastHeartBeat = heartBeat;
-                version = newVersion;
-            }
-        };
-    }
+    /**
+     * Makes the given participant the leader of the group if this participant is the leader. The successor
+     * holds a fresh heartbeat and becomes aware of its leadership with its next election. If it does not run
+     * an election the heartbeat becomes too old as usual.
+     *
+     * @return true if the leadership was handed over
+     */
+    public boolean handOverLeaderShip(Connection connection, String successorId) {
+        store.begin(connection);
 
-    private Timestamp timestamp(Date date) {
-        return new Timestamp(date.getTime());
+        try {
+            return election.handOverLeaderShip(successorId);
+        } finally {
+            store.end();
+        }
     }
 }
@@ -0,0 +1,704 @@
+package github.abendt.highlander.jdbc;
+
+import github.abendt.highlander.ElectionClock;
+import github.abendt.highlander.ElectionEvent;
+import github.abendt.highlander.ElectionStore;
+import github.abendt.highlander.Lease;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.sql.DataSource;
+import java.sql.*;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Keeps the leases in the {@code HIGHLANDER} table, see {@link HighlanderSchema}. Every change is a compare-and-set
+ * on the {@code VERSION} column of the group row. In {@link #setConditionalWrite(boolean) conditional write mode}
+ * a claim is decided by the update count of a single UPDATE instead of reading the row first.
+ * <p>
+ * A {@link github.abendt.highlander.StoreElection} on this store runs the elections of {@link Highlander} and
+ * {@link JdbcElection}. The operations run on the connection bound by the participant, or on a connection borrowed
+ * from the data source for each operation.
+ */
+public class JdbcElectionStore implements ElectionStore {
+
+    private static final Logger LOG = LoggerFactory.getLogger(JdbcElectionStore.class);
+
+    static final String CLAIM_OR_RENEW_SQL = "UPDATE HIGHLANDER SET ID=?, HEARTBEAT=?, VERSION=VERSION+1 " +
+            "WHERE GROUPNAME=? AND (ID=? OR ID IS NULL OR HEARTBEAT IS NULL OR HEARTBEAT<?)";
+
+    static final String CLAIM_WITH_ENDPOINT_SQL = "UPDATE HIGHLANDER SET ENDPOINT=?, ID=?, HEARTBEAT=?, VERSION=VERSION+1 " +
+            "WHERE GROUPNAME=? AND (ID=? OR ID IS NULL OR HEARTBEAT IS NULL OR HEARTBEAT<?)";
+
+    static final String RENEW_SQL = "UPDATE HIGHLANDER SET HEARTBEAT=?, VERSION=VERSION+1 " +
+            "WHERE GROUPNAME=? AND ID=? AND VERSION=?";
+
+    static final String RELEASE_SQL = "UPDATE HIGHLANDER SET ID=NULL, HEARTBEAT=NULL, VERSION=VERSION+1 " +
+            "WHERE GROUPNAME=? AND ID=? AND VERSION=?";
+
+    static final String HAND_OVER_SQL = "UPDATE HIGHLANDER SET ID=?, HEARTBEAT=?, VERSION=VERSION+1 " +
+            "WHERE GROUPNAME=? AND ID=? AND VERSION=?";
+
+    static final String HAND_OVER_WITH_ENDPOINT_SQL = "UPDATE HIGHLANDER SET ENDPOINT=NULL, ID=?, HEARTBEAT=?, VERSION=VERSION+1 " +
+            "WHERE GROUPNAME=? AND ID=? AND VERSION=?";
+
+    static final String INSERT_SQL = "INSERT INTO HIGHLANDER (GROUPNAME, ID, HEARTBEAT, VERSION) VALUES (?, ?, ?, ?)";
+
+    static final String INSERT_WITH_ENDPOINT_SQL = "INSERT INTO HIGHLANDER (ENDPOINT, GROUPNAME, ID, HEARTBEAT, VERSION) VALUES (?, ?, ?, ?, ?)";
+
+    static final String INSERT_VACANT_SQL = "INSERT INTO HIGHLANDER (GROUPNAME, VERSION) VALUES (?, 0)";
+
+    static final String FIND_SQL = "SELECT ID, HEARTBEAT, VERSION FROM HIGHLANDER WHERE GROUPNAME=?";
+
+    static final String UPDATE_SQL = "UPDATE HIGHLANDER SET ID=?, HEARTBEAT=?, VERSION=VERSION+1 WHERE GROUPNAME=? AND VERSION=?";
+
+    private static final String UPDATE_WITH_ENDPOINT_SQL = "UPDATE HIGHLANDER SET ENDPOINT=?, ID=?, HEARTBEAT=?, VERSION=VERSION+1 WHERE GROUPNAME=? AND VERSION=?";
+
+    private final DataSource dataSource;
+    Connection connection;
+    String endpoint;
+    boolean recordChanges;
+    String nextChangeSequence;
+    boolean conditionalWrite;
+
+    int roundTrips;
+
+    long deadline;
+    ElectionClock clock = ElectionClock.SYSTEM;
+    ServerClock serverClock;
+
+    final StatementCache statements = new StatementCache();
+
+    private final Set<String> knownGroups = new HashSet<String>();
+    private final Map<String, Observation> observations = new HashMap<String, Observation>();
+
+    // reused by every operation, so a renewal allocates nothing beyond what the driver allocates
+    private final Timestamp heartBeatParameter = new Timestamp(0);
+    private final Timestamp expiryParameter = new Timestamp(0);
+    private final Map<String, String> recordingSql = new HashMap<String, String>();
+
+    /**
+     * Borrows a connection from the given data source for every operation.
+     */
+    public JdbcElectionStore(DataSource dataSource) {
+        this.dataSource = dataSource;
+    }
+
+    /**
+     * Runs the operations on the connection {@link #begin(Connection) bound} by the participant.
+     */
+    JdbcElectionStore() {
+        this(null);
+    }
+
+    public void setClock(ElectionClock clock) {
+        this.clock = clock;
+
+        if (serverClock != null) {
+            serverClock = new ServerClock(clock);
+        }
+    }
+
+    /**
+     * Stamps and ages the heartbeats with the {@link ServerClock clock of the database server} instead of the local
+     * wall clock, see {@link #getClock()}. All participants of a group have to use the same mode.
+     */
+    public void setServerClock(boolean useServerClock) {
+        serverClock = useServerClock ? new ServerClock(clock) : null;
+    }
+
+    /**
+     * Shares the given server clock, so elections on the same database measure its offset once.
+     */
+    void setServerClock(ServerClock serverClock) {
+        this.serverClock = serverClock;
+    }
+
+    /**
+     * @return the clock the elections on this store stamp and age the heartbeats with, either the local or the
+     * server clock, whose uncertainty counts on top of the maximum heartbeat age
+     */
+    public ElectionClock getClock() {
+        return serverClock != null ? serverClock : clock;
+    }
+
+    /**
+     * Advertises the given endpoint in the {@code ENDPOINT} column whenever a participant claims the leadership,
+     * for a {@link JdbcLeaderDirectory}. Renewals leave the column alone, a hand-over clears it until the successor
+     * claims the group. If one participant of a group advertises an endpoint, all of them should.
+     */
+    public void setEndpoint(String endpoint) {
+        this.endpoint = endpoint;
+    }
+
+    /**
+     * Numbers every change of the leader from the change sequence in the {@code CHANGESEQ} column, so a
+     * {@link JdbcLeadershipFeed} reads only the groups that changed. Renewals leave the column alone. The sequence
+     * is detected from the database, see {@link HighlanderSchema.Dialect#getNextChangeSequence()}.
+     */
+    public void setRecordChanges(boolean recordChanges) {
+        this.recordChanges = recordChanges;
+    }
+
+    /**
+     * In conditional write mode a single UPDATE claims the leadership and its update count decides the claim.
+     * The group row is only inserted on a cold start.
+     */
+    public void setConditionalWrite(boolean conditionalWrite) {
+        this.conditionalWrite = conditionalWrite;
+    }
+
+    /**
+     * Keeps the prepared statements of the last used connection open and reuses them for the next operations
+     * on the same connection. Call {@link #closeStatements()} when the connection is no longer used.
+     */
+    public void setCacheStatements(boolean cacheStatements) {
+        statements.setEnabled(cacheStatements);
+    }
+
+    public void closeStatements() {
+        statements.close();
+    }
+
+    /**
+     * Bounds the following operations by a deadline in {@link ElectionClock#nanoTime()}, zero for none. Every statement
+     * gets a query timeout of the time left, and a statement whose deadline passed is not sent but fails with a
+     * {@link SQLTimeoutException}.
+     */
+    public void setDeadline(long deadline) {
+        this.deadline = deadline;
+    }
+
+    /**
+     * @return the statements sent to the database since the connection was bound
+     */
+    public int getRoundTrips() {
+        return roundTrips;
+    }
+
+    /**
+     * Binds the connection the following operations run on until {@link #end()}, and measures the server clock
+     * if it is due.
+     */
+    synchronized void begin(Connection connection) {
+        this.connection = connection;
+        roundTrips = 0;
+
+        try {
+            synchronizeClock();
+        } catch (SQLException e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+    synchronized void end() {
+        connection = null;
+    }
+
+    /**
+     * Prepares the statements of the first election, which are kept if statements are cached, and creates the
+     * group row without a leader unless it exists. The first election then claims the group without racing other
+     * participants for the insert, in conditional write mode with a single UPDATE.
+     */
+    public synchronized void warmUp(String groupName) {
+        try {
+            Connection borrowed = borrowConnection();
+
+            try {
+                if (conditionalWrite) {
+                    statements.release(prepare(recordingChange(endpoint != null ? CLAIM_WITH_ENDPOINT_SQL : CLAIM_OR_RENEW_SQL)));
+                } else {
+                    statements.release(prepare(recordingChange(endpoint != null ? UPDATE_WITH_ENDPOINT_SQL : UPDATE_SQL)));
+                }
+
+                statements.release(prepare(RENEW_SQL));
+                statements.release(prepare(FIND_SQL));
+
+                if (!knownGroups.contains(groupName)) {
+                    insertVacant(groupName);
+                    knownGroups.add(groupName);
+                }
+            } finally {
+                returnConnection(borrowed);
+            }
+        } catch (SQLException e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+    @Override
+    public synchronized Lease load(String groupName) {
+        try {
+            Connection borrowed = borrowConnection();
+
+            try {
+                return find(groupName, clock.nanoTime());
+            } finally {
+                returnConnection(borrowed);
+            }
+        } catch (SQLException e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+    @Override
+    public synchronized Lease claim(String groupName, String participantId, long now, long maxHeartBeatAge) {
+        try {
+            Connection borrowed = borrowConnection();
+
+            try {
+                while (true) {
+                    Lease lease = conditionalWrite
+                            ? claimConditionally(groupName, participantId, now, maxHeartBeatAge)
+                            : claimOptimistically(groupName, participantId, now, maxHeartBeatAge);
+
+                    // null if the row was deleted while it was claimed
+                    if (lease != null) {
+                        return lease;
+                    }
+                }
+            } finally {
+                returnConnection(borrowed);
+            }
+        } catch (SQLException e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+    @Override
+    public synchronized Lease renew(Lease lease, long now) {
+        long version = renew(lease.getGroupName(), lease.getLeaderId(), lease.getVersion(), now);
+
+        if (version == ElectionEvent.UNKNOWN_VERSION) {
+            return load(lease.getGroupName());
+        }
+
+        return new Lease(lease.getGroupName(), lease.getLeaderId(), now, version);
+    }
+
+    @Override
+    public synchronized long renew(String groupName, String leaderId, long version, long now) {
+        try {
+            Connection borrowed = borrowConnection();
+
+            try {
+                PreparedStatement st = prepare(RENEW_SQL);
+
+                try {
+                    st.setTimestamp(1, timestamp(heartBeatParameter, now));
+                    st.setString(2, groupName);
+                    st.setString(3, leaderId);
+                    st.setInt(4, (int) version);
+
+                    roundTrips++;
+                    if (st.executeUpdate() != 1) {
+                        LOG.debug("group '{}' was changed by another participant than '{}'", groupName, leaderId);
+                        return ElectionEvent.UNKNOWN_VERSION;
+                    }
+
+                    return version + 1;
+                } finally {
+                    statements.release(st);
+                }
+            } finally {
+                returnConnection(borrowed);
+            }
+        } catch (SQLException e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+    @Override
+    public synchronized Lease release(Lease lease, String successorId, long now) {
+        try {
+            Connection borrowed = borrowConnection();
+
+            try {
+                long startedAt = clock.nanoTime();
+                String groupName = lease.getGroupName();
+                String sql = successorId == null ? RELEASE_SQL : endpoint != null ? HAND_OVER_WITH_ENDPOINT_SQL : HAND_OVER_SQL;
+                PreparedStatement st = prepare(recordingChange(sql));
+
+                try {
+                    int paramIndex = 1;
+
+                    if (successorId != null) {
+                        st.setString(paramIndex++, successorId);
+                        st.setTimestamp(paramIndex++, timestamp(heartBeatParameter, now));
+                    }
+
+                    st.setString(paramIndex++, groupName);
+                    st.setString(paramIndex++, lease.getLeaderId());
+                    st.setInt(paramIndex, (int) lease.getVersion());
+
+                    roundTrips++;
+                    if (st.executeUpdate() == 1) {
+                        return observed(new Lease(groupName, successorId, successorId != null ? now : 0, lease.getVersion() + 1), startedAt);
+                    }
+                } finally {
+                    statements.release(st);
+                }
+
+                return find(groupName, startedAt);
+            } finally {
+                returnConnection(borrowed);
+            }
+        } catch (SQLException e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+    /**
+     * @return the lease after the claim, null if the row was deleted meanwhile
+     */
+    private Lease claimConditionally(String groupName, String participantId, long now, long maxHeartBeatAge) throws SQLException {
+        long startedAt = clock.nanoTime();
+
+        if (updateIfClaimable(groupName, participantId, now, maxHeartBeatAge)) {
+            knownGroups.add(groupName);
+
+            LOG.debug("participant '{}' is the leader of '{}'", participantId, groupName);
+            // the update count decided the claim, the version is read afterwards
+            return find(groupName, startedAt);
+        }
+
+        if (knownGroups.contains(groupName)) {
+            Lease lease = cachedLease(groupName, participantId, now, maxHeartBeatAge);
+
+            if (lease == null) {
+                lease = find(groupName, startedAt);
+            }
+
+            if (lease != null) {
+                LOG.debug("participant '{}' is not the leader of '{}'", participantId, groupName);
+                return lease;
+            }
+
+            // the row was deleted since, e.g. by an operator
+            knownGroups.remove(groupName);
+        }
+
+        if (insert(groupName, participantId, now)) {
+            return observed(new Lease(groupName, participantId, now, 0), startedAt);
+        }
+
+        return find(groupName, startedAt);
+    }
+
+    /**
+     * @return the lease after the claim, null if the row was deleted meanwhile
+     */
+    private Lease claimOptimistically(String groupName, String participantId, long now, long maxHeartBeatAge) throws SQLException {
+        long startedAt = clock.nanoTime();
+        Lease current = find(groupName, startedAt);
+
+        if (current == null) {
+            return insert(groupName, participantId, now) ? observed(new Lease(groupName, participantId, now, 0), startedAt) : null;
+        }
+
+        while (true) {
+            if (!current.isHeldBy(participantId) && !current.isClaimable(now, maxHeartBeatAge)) {
+                return current;
+            }
+
+            if (current.getLeaderId() == null) {
+                LOG.debug("group '{}' has no leader. participant '{}' requests leadership", groupName, participantId);
+            } else if (!current.isHeldBy(participantId)) {
+                LOG.debug("group '{}': heartbeat '{}' is too old. participant '{}' requests leadership", groupName, current.getHeartBeat(), participantId);
+            }
+
+            if (update(groupName, participantId, now, current.getVersion(), !current.isHeldBy(participantId))) {
+                return observed(new Lease(groupName, participantId, now, current.getVersion() + 1), startedAt);
+            }
+
+            LOG.debug("group '{}' was changed by another participant. participant '{}' reloads election", groupName, participantId);
+
+            startedAt = clock.nanoTime();
+            current = find(groupName, startedAt);
+
+            if (current == null) {
+                return null;
+            }
+        }
+    }
+
+    /**
+     * @return the lease read by the last operation on the group if it still tells the leader: another participant
+     * holds it, a claim would not find it too old, and the leader had to renew it at most once since
+     */
+    private Lease cachedLease(String groupName, String participantId, long now, long maxHeartBeatAge) {
+        Observation observation = observations.get(groupName);
+
+        if (observation == null) {
+            return null;
+        }
+
+        Lease lease = observation.lease;
+
+        if (lease.getLeaderId() == null || lease.isHeldBy(participantId) || lease.isClaimable(now, maxHeartBeatAge)) {
+            return null;
+        }
+
+        return clock.nanoTime() - observation.observedAt < TimeUnit.MILLISECONDS.toNanos(maxHeartBeatAge) ? lease : null;
+    }
+
+    private Lease observed(Lease lease, long observedAt) {
+        observations.put(lease.getGroupName(), new Observation(lease, observedAt));
+        return lease;
+    }
+
+    private boolean updateIfClaimable(String groupName, String participantId, long now, long maxHeartBeatAge) throws SQLException {
+        String sql = endpoint != null ? CLAIM_WITH_ENDPOINT_SQL : CLAIM_OR_RENEW_SQL;
+        PreparedStatement st = prepare(recordingChange(sql));
+
+        try {
+            int paramIndex = 1;
+
+            if (endpoint != null) {
+                st.setString(paramIndex++, endpoint);
+            }
+
+            st.setString(paramIndex++, participantId);
+            st.setTimestamp(paramIndex++, timestamp(heartBeatParameter, now));
+            st.setString(paramIndex++, groupName);
+            st.setString(paramIndex++, participantId);
+            st.setTimestamp(paramIndex, timestamp(expiryParameter, now - maxHeartBeatAge));
+
+            roundTrips++;
+            return st.executeUpdate() == 1;
+        } finally {
+            statements.release(st);
+        }
+    }
+
+    private boolean update(String groupName, String participantId, long now, long version, boolean leaderChanges) throws SQLException {
+        boolean withEndpoint = leaderChanges && endpoint != null;
+        String sql = withEndpoint ? UPDATE_WITH_ENDPOINT_SQL : UPDATE_SQL;
+        PreparedStatement st = prepare(leaderChanges ? recordingChange(sql) : sql);
+
+        try {
+            int paramIndex = 1;
+
+            if (withEndpoint) {
+                st.setString(paramIndex++, endpoint);
+            }
+
+            st.setString(paramIndex++, participantId);
+            st.setTimestamp(paramIndex++, timestamp(heartBeatParameter, now));
+            st.setString(paramIndex++, groupName);
+            st.setInt(paramIndex, (int) version);
+
+            roundTrips++;
+            return st.executeUpdate() == 1;
+        } finally {
+            statements.release(st);
+        }
+    }
+
+    private Lease find(String groupName, long startedAt) throws SQLException {
+        PreparedStatement st = prepare(FIND_SQL);
+
+        try {
+            st.setString(1, groupName);
+
+            roundTrips++;
+            ResultSet rs = st.executeQuery();
+
+            try {
+                if (!rs.next()) {
+                    observations.remove(groupName);
+                    return null;
+                }
+
+                knownGroups.add(groupName);
+
+                // by index, as a lookup by label may allocate in the driver
+                String leaderId = rs.getString(1);
+                Timestamp heartBeat = rs.getTimestamp(2);
+
+                return observed(new Lease(groupName, leaderId, heartBeat != null ? heartBeat.getTime() : 0, rs.getInt(3)), startedAt);
+            } finally {
+                rs.close();
+            }
+        } finally {
+            statements.release(st);
+        }
+    }
+
+    /**
+     * @return true if the participant inserted the row of the group, false if another participant was faster
+     */
+    private boolean insert(String groupName, String participantId, long now) throws SQLException {
+        LOG.debug("group '{}' is not known yet. participant '{}' requests leadership", groupName, participantId);
+
+        PreparedStatement st = prepare(recordingChange(endpoint != null ? INSERT_WITH_ENDPOINT_SQL : INSERT_SQL));
+
+        try {
+            int paramIndex = 1;
+
+            if (endpoint != null) {
+                st.setString(paramIndex++, endpoint);
+            }
+
+            st.setString(paramIndex++, groupName);
+            st.setString(paramIndex++, participantId);
+            st.setTimestamp(paramIndex++, timestamp(heartBeatParameter, now));
+            st.setInt(paramIndex, 0);
+
+            roundTrips++;
+            st.execute();
+
+            knownGroups.add(groupName);
+            return true;
+        } catch (SQLException e) {
+            if (isConstraintViolation(e)) {
+                knownGroups.add(groupName);
+                return false;
+            }
+            throw e;
+        } finally {
+            statements.release(st);
+        }
+    }
+
+    private void insertVacant(String groupName) throws SQLException {
+        PreparedStatement st = prepare(INSERT_VACANT_SQL);
+
+        try {
+            st.setString(1, groupName);
+
+            roundTrips++;
+            st.execute();
+        } catch (SQLException e) {
+            if (!isConstraintViolation(e)) {
+                throw e;
+            }
+        } finally {
+            statements.release(st);
+        }
+    }
+
+    static boolean isConstraintViolation(SQLException e) {
+        return e.getSQLState().startsWith("23");
+    }
+
+    /**
+     * @return a connection of the data source that the caller returns, null if a connection is bound
+     */
+    private Connection borrowConnection() throws SQLException {
+        if (connection != null) {
+            return null;
+        }
+
+        if (dataSource == null) {
+            throw new IllegalStateException("no connection bound to the election store");
+        }
+
+        connection = dataSource.getConnection();
+
+        try {
+            synchronizeClock();
+        } catch (SQLException e) {
+            returnConnection(connection);
+            throw e;
+        }
+
+        return connection;
+    }
+
+    private void returnConnection(Connection borrowed) throws SQLException {
+        if (borrowed != null) {
+            connection = null;
+            borrowed.close();
+        }
+    }
+
+    private PreparedStatement prepare(String sql) throws SQLException {
+        int queryTimeout = deadline != 0 ? queryTimeoutSeconds(deadline, clock.nanoTime()) : 0;
+        PreparedStatement st = statements.prepare(connection, sql);
+
+        try {
+            // a cached statement keeps the timeout of its previous use
+            st.setQueryTimeout(queryTimeout);
+        } catch (SQLException e) {
+            statements.release(st);
+            throw e;
+        }
+
+        return st;
+    }
+
+    /**
+     * @return the seconds until the deadline rounded up, as query timeouts are given in seconds
+     * @throws SQLTimeoutException if the deadline passed
+     */
+    static int queryTimeoutSeconds(long deadline, long now) throws SQLTimeoutException {
+        long remaining = deadline - now;
+
+        if (remaining <= 0) {
+            throw new SQLTimeoutException("deadline of election passed " + TimeUnit.NANOSECONDS.toMillis(-remaining) + " ms ago");
+        }
+
+        return (int) Math.min(Integer.MAX_VALUE, (remaining + TimeUnit.SECONDS.toNanos(1) - 1) / TimeUnit.SECONDS.toNanos(1));
+    }
+
+    private void synchronizeClock() throws SQLException {
+        if (serverClock != null && serverClock.synchronizeIfDue(connection)) {
+            roundTrips++;
+        }
+    }
+
+    /**
+     * @return the given statement that changes the leader, extended to number the change if changes are recorded
+     */
+    private String recordingChange(String sql) throws SQLException {
+        if (!recordChanges) {
+            return sql;
+        }
+
+        if (nextChangeSequence == null) {
+            nextChangeSequence = HighlanderSchema.Dialect.detect(connection.getMetaData()).getNextChangeSequence();
+
+            if (nextChangeSequence == null) {
+                throw new SQLFeatureNotSupportedException("database has no sequence to number the leadership changes");
+            }
+        }
+
+        String result = recordingSql.get(sql);
+
+        if (result == null) {
+            result = sql.startsWith("INSERT")
+                    ? sql.replace("HIGHLANDER (", "HIGHLANDER (CHANGESEQ, ").replace("VALUES (", "VALUES (" + nextChangeSequence + ", ")
+                    : sql.replace(" WHERE ", ", CHANGESEQ=" + nextChangeSequence + " WHERE ");
+            recordingSql.put(sql, result);
+        }
+
+        return result;
+    }
+
+    /**
+     * Reuses the given parameter, the drivers copy the value when it is bound.
+     */
+    private static Timestamp timestamp(Timestamp parameter, long millis) {
+        parameter.setTime(millis);
+        return parameter;
+    }
+
+    /**
+     * A lease as read by an operation that started at the given {@link ElectionClock#nanoTime()}.
+     */
+    private static final class Observation {
+
+        final Lease lease;
+        final long observedAt;
+
+        Observation(Lease lease, long observedAt) {
+            this.lease = lease;
+            this.observedAt = observedAt;
+        }
+    }
+}
@@ -0,0 +1,200 @@
+package github.abendt.highlander.jdbc;
+
+import github.abendt.highlander.ElectionClock;
+import github.abendt.highlander.Leader;
+import github.abendt.highlander.LeaderDirectory;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ScheduledExecutorService;
+
+/**
+ * Reads the leaders of all groups from the {@code HIGHLANDER} table with a single query every refresh interval
+ * and answers lookups from memory. An entry expires when the lease it observed would expire, at its heartbeat plus
+ * the maximum heartbeat age, so a leader that stopped renewing is not returned any longer even if refreshes fail.
+ * The age has to match the participants, best with {@link #setConfig(HighlanderConfig) their configuration}. A longer
+ * age returns leaders that stopped renewing and may have been replaced, a shorter one drops renewing leaders.
+ * <p>
+ * The endpoints advertised with {@link Highlander#setEndpoint(String)} are read if the table has an
+ * {@code ENDPOINT} column.
+ */
+public class JdbcLeaderDirectory implements LeaderDirectory {
+
+    private static final Logger LOG = LoggerFactory.getLogger(JdbcLeaderDirectory.class);
+
+    static final String FIND_LEADERS_SQL = "SELECT GROUPNAME, ID, HEARTBEAT, VERSION FROM HIGHLANDER " +
+            "WHERE ID IS NOT NULL AND HEARTBEAT IS NOT NULL";
+
+    static final String FIND_LEADERS_WITH_ENDPOINT_SQL = "SELECT GROUPNAME, ID, HEARTBEAT, VERSION, ENDPOINT FROM HIGHLANDER " +
+            "WHERE ID IS NOT NULL AND HEARTBEAT IS NOT NULL";
+
+    int refreshInterval = 1000;
+    int maxHeartBeatAge = 3000;
+
+    private final DataSource dataSource;
+    private ScheduledExecutorService scheduler;
+    private ElectionClock clock = ElectionClock.SYSTEM;
+    private ServerClock serverClock;
+    private HeartBeat refresh;
+    private Boolean endpointColumn;
+
+    private volatile Map<String, Leader> leaders = Collections.emptyMap();
+
+    public JdbcLeaderDirectory(DataSource dataSource) {
+        this.dataSource = dataSource;
+    }
+
+    /**
+     * Sets the time between two refreshes. Call before {@link #start()}.
+     */
+    public void setRefreshInterval(int refreshInterval) {
+        this.refreshInterval = refreshInterval;
+    }
+
+    /**
+     * Sets the age after which the heartbeat of a leader is too old, the heartbeat interval times the heartbeat
+     * factor of the participants.
+     */
+    public void setMaxHeartBeatAge(int maxHeartBeatAge) {
+        this.maxHeartBeatAge = maxHeartBeatAge;
+    }
+
+    /**
+     * Expires the entries with the lease a leader configured like this may rely on, the heartbeat factor times the
+     * minimum heartbeat interval, see {@link Highlander#setConfig(HighlanderConfig)}.
+     */
+    public void setConfig(HighlanderConfig config) {
+        this.maxHeartBeatAge = config.guaranteedLease();
+    }
+
+    /**
+     * @see Highlander#setScheduler(ScheduledExecutorService)
+     */
+    public void setScheduler(ScheduledExecutorService scheduler) {
+        this.scheduler = scheduler;
+    }
+
+    public void setClock(ElectionClock clock) {
+        this.clock = clock;
+
+        if (serverClock != null) {
+            serverClock = new ServerClock(clock);
+        }
+    }
+
+    /**
+     * Expires the entries with the clock of the database server, for participants that use
+     * {@link Highlander#setServerClock(boolean)}.
+     */
+    public void setServerClock(boolean useServerClock) {
+        serverClock = useServerClock ? new ServerClock(clock) : null;
+    }
+
+    /**
+     * Reads the leaders once, so lookups are answered right away, and then refreshes them every refresh interval.
+     */
+    public void start() {
+        refreshQuietly();
+
+        refresh = new HeartBeat(
+                scheduler != null ? scheduler : HighlanderExecutors.sharedScheduler(),
+                null,
+                new Runnable() {
+                    @Override
+                    public void run() {
+                        refreshQuietly();
+                    }
+                },
+                refreshInterval,
+                0);
+        refresh.start();
+    }
+
+    public void stop() {
+        if (refresh != null) {
+            refresh.stop();
+        }
+    }
+
+    @Override
+    public Leader getLeader(String groupName) {
+        Leader leader = leaders.get(groupName);
+        ElectionClock currentClock = serverClock != null ? serverClock : clock;
+
+        if (leader == null || currentClock.currentTimeMillis() >= leader.getExpiresAt()) {
+            return null;
+        }
+
+        return leader;
+    }
+
+    /**
+     * @return the leader id of the group, null if it has no leader
+     */
+    public String getLeaderId(String groupName) {
+        Leader leader = getLeader(groupName);
+        return leader != null ? leader.getLeaderId() : null;
+    }
+
+    /**
+     * Reads the leaders of all groups and replaces the cached ones.
+     */
+    public void refresh() throws SQLException {
+        Connection connection = dataSource.getConnection();
+
+        try {
+            if (serverClock != null) {
+                serverClock.synchronizeIfDue(connection);
+            }
+
+            if (endpointColumn == null) {
+                endpointColumn = HighlanderSchema.columns(connection).contains(HighlanderSchema.ENDPOINT_COLUMN);
+            }
+
+            PreparedStatement st = connection.prepareStatement(endpointColumn ? FIND_LEADERS_WITH_ENDPOINT_SQL : FIND_LEADERS_SQL);
+
+            try {
+                ResultSet rs = st.executeQuery();
+
+                try {
+                    Map<String, Leader> result = new HashMap<String, Leader>();
+
+                    while (rs.next()) {
+                        String groupName = rs.getString(1);
+
+                        result.put(groupName, new Leader(
+                                groupName,
+                                rs.getString(2),
+                                endpointColumn ? rs.getString(5) : null,
+                                rs.getInt(4),
+                                rs.getTimestamp(3).getTime() + maxHeartBeatAge));
+                    }
+
+                    leaders = Collections.unmodifiableMap(result);
+                } finally {
+                    rs.close();
+                }
+            } finally {
+                st.close();
+            }
+        } finally {
+            connection.close();
+        }
+    }
+
+    private void refreshQuietly() {
+        try {
+            refresh();
+        } catch (SQLException e) {
+            LOG.warn("could not refresh the leaders, keeping the cached ones until their leases expire", e);
+        }
+    }
+}
@@ -0,0 +1,241 @@
+package github.abendt.highlander.jdbc;
+
+import github.abendt.highlander.LeadershipChange;
+import github.abendt.highlander.LeadershipFeed;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.*;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ScheduledExecutorService;
+
+/**
+ * Polls the changes of the leaders of all groups from the {@code HIGHLANDER} table and publishes them. Every poll
+ * reads only the rows whose {@code CHANGESEQ} is newer than the last one seen, which the participants number with
+ * {@link Highlander#setRecordChanges(boolean)}, so renewals cost the feed nothing. Groups of participants that do not
+ * record their changes are not published.
+ * <p>
+ * A change that draws its number before, but commits after a newer change would be passed over, so every poll
+ * reads again the changes of a look-back window below the last seen number. Changes seen before are skipped.
+ */
+public class JdbcLeadershipFeed implements LeadershipFeed {
+
+    private static final Logger LOG = LoggerFactory.getLogger(JdbcLeadershipFeed.class);
+
+    static final String FIND_CHANGES_SQL = "SELECT CHANGESEQ, GROUPNAME, ID, VERSION FROM HIGHLANDER " +
+            "WHERE CHANGESEQ>? ORDER BY CHANGESEQ";
+
+    int pollInterval = 1000;
+    int lookBack = 1000;
+
+    private final DataSource dataSource;
+    private ScheduledExecutorService scheduler;
+    private HeartBeat poll;
+
+    private long lastSeen;
+    private final Map<String, LeadershipChange> groups = new HashMap<String, LeadershipChange>();
+    private final List<FeedSubscription> subscriptions = new CopyOnWriteArrayList<FeedSubscription>();
+
+    public JdbcLeadershipFeed(DataSource dataSource) {
+        this.dataSource = dataSource;
+    }
+
+    /**
+     * Sets the time between two polls. Call before {@link #start()}.
+     */
+    public void setPollInterval(int pollInterval) {
+        this.pollInterval = pollInterval;
+    }
+
+    /**
+     * Sets the number of changes below the last seen one that are read again, which bounds the number of
+     * concurrent changes whose commits may overtake each other.
+     */
+    public void setLookBack(int lookBack) {
+        this.lookBack = lookBack;
+    }
+
+    /**
+     * @see Highlander#setScheduler(ScheduledExecutorService)
+     */
+    public void setScheduler(ScheduledExecutorService scheduler) {
+        this.scheduler = scheduler;
+    }
+
+    public void start() {
+        poll = new HeartBeat(
+                scheduler != null ? scheduler : HighlanderExecutors.sharedScheduler(),
+                null,
+                new Runnable() {
+                    @Override
+                    public void run() {
+                        try {
+                            poll();
+                        } catch (SQLException e) {
+                            LOG.warn("could not poll the leadership changes", e);
+                        }
+                    }
+                },
+                pollInterval,
+                0);
+        poll.start();
+    }
+
+    public void stop() {
+        if (poll != null) {
+            poll.stop();
+        }
+    }
+
+    /**
+     * The subscriber first receives the current leaders known to the feed.
+     */
+    @Override
+    public synchronized void subscribe(Subscriber subscriber) {
+        FeedSubscription subscription = new FeedSubscription(subscriber);
+
+        for (LeadershipChange change : groups.values()) {
+            if (change.getLeaderId() != null) {
+                subscription.offer(change);
+            }
+        }
+
+        subscriptions.add(subscription);
+        subscriber.onSubscribe(subscription);
+    }
+
+    /**
+     * Reads the changes since the last poll and delivers them as far as they were requested.
+     */
+    public synchronized void poll() throws SQLException {
+        Connection connection = dataSource.getConnection();
+
+        try {
+            PreparedStatement st = connection.prepareStatement(FIND_CHANGES_SQL);
+
+            try {
+                st.setLong(1, lastSeen - lookBack);
+
+                ResultSet rs = st.executeQuery();
+
+                try {
+                    while (rs.next()) {
+                        seen(new LeadershipChange(rs.getString(2), rs.getString(3), rs.getInt(4), rs.getLong(1)));
+                    }
+                } finally {
+                    rs.close();
+                }
+            } finally {
+                st.close();
+            }
+        } finally {
+            connection.close();
+        }
+
+        for (FeedSubscription subscription : subscriptions) {
+            subscription.drain();
+        }
+    }
+
+    private void seen(LeadershipChange change) {
+        LeadershipChange known = groups.get(change.getGroupName());
+
+        if (known != null && known.getChangeSequence() >= change.getChangeSequence()) {
+            return;
+        }
+
+        lastSeen = Math.max(lastSeen, change.getChangeSequence());
+        groups.put(change.getGroupName(), change);
+
+        String knownLeader = known != null ? known.getLeaderId() : null;
+
+        if (knownLeader == null ? change.getLeaderId() == null : knownLeader.equals(change.getLeaderId())) {
+            // e.g. a leader that renewed its lease late
+            return;
+        }
+
+        for (FeedSubscription subscription : subscriptions) {
+            subscription.offer(change);
+        }
+    }
+
+    private class FeedSubscription implements Subscription {
+
+        private final Subscriber subscriber;
+
+        // the latest undelivered change of each group, in the order of the changes
+        private final LinkedHashMap<String, LeadershipChange> pending = new LinkedHashMap<String, LeadershipChange>();
+        private long requested;
+        private boolean draining;
+        private volatile boolean cancelled;
+
+        FeedSubscription(Subscriber subscriber) {
+            this.subscriber = subscriber;
+        }
+
+        @Override
+        public void request(long n) {
+            if (n <= 0) {
+                cancel();
+                subscriber.onError(new IllegalArgumentException("requested changes must be positive: " + n));
+                return;
+            }
+
+            synchronized (this) {
+                requested = requested + n < 0 ? Long.MAX_VALUE : requested + n;
+            }
+
+            drain();
+        }
+
+        @Override
+        public void cancel() {
+            cancelled = true;
+            subscriptions.remove(this);
+        }
+
+        synchronized void offer(LeadershipChange change) {
+            if (cancelled) {
+                return;
+            }
+
+            pending.remove(change.getGroupName());
+            pending.put(change.getGroupName(), change);
+        }
+
+        synchronized void drain() {
+            if (draining) {
+                // the subscriber requested more while receiving a change, the running loop delivers them
+                return;
+            }
+
+            draining = true;
+
+            try {
+                while (!cancelled && requested > 0 && !pending.isEmpty()) {
+                    Iterator<LeadershipChange> changes = pending.values().iterator();
+                    LeadershipChange change = changes.next();
+                    changes.remove();
+
+                    if (requested != Long.MAX_VALUE) {
+                        requested--;
+                    }
+
+                    try {
+                        subscriber.onChange(change);
+                    } catch (RuntimeException e) {
+                        LOG.warn("subscriber failed, cancelling its subscription", e);
+                        cancel();
+                    }
+                }
+            } finally {
+                draining = false;
+            }
+        }
+    }
+}
@@ -0,0 +1,314 @@
+package github.abendt.highlander.jdbc;
+
+import github.abendt.highlander.ElectionClock;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.sql.*;
+import java.util.*;
+
+/**
+ * Runs the conditional write election of {@link JdbcElectionStore} for many groups of one participant.
+ * All groups are claimed or renewed with one batched statement per election.
+ */
+public class JdbcMultiGroupElection {
+
+    private static final Logger LOG = LoggerFactory.getLogger(JdbcMultiGroupElection.class);
+
+    private static final String FIND_LED_GROUPS_SQL = "SELECT GROUPNAME FROM HIGHLANDER WHERE ID=?";
+
+    private static final String GIVE_UP_SQL = "UPDATE HIGHLANDER SET ID=NULL, HEARTBEAT=NULL, VERSION=VERSION+1 " +
+            "WHERE GROUPNAME=? AND ID=?";
+
+    int maxHeartBeatAge = 1000 * 10;
+    Connection connection;
+    String participantId = UUID.randomUUID().toString();
+    int roundTrips;
+
+    long deadline;
+    ElectionClock clock = ElectionClock.SYSTEM;
+    ServerClock serverClock;
+
+    private final List<String> groupNames;
+    private final Set<String> knownGroups = new HashSet<String>();
+    // led by this participant after the last election
+    private Set<String> ledGroups = Collections.emptySet();
+
+    final StatementCache statements = new StatementCache();
+
+    // reused by every election, the drivers copy the value when it is bound
+    private final Timestamp heartBeatParameter = new Timestamp(0);
+    private final Timestamp expiryParameter = new Timestamp(0);
+
+    public JdbcMultiGroupElection(Collection<String> groupNames) {
+        this.groupNames = new ArrayList<String>(new LinkedHashSet<String>(groupNames));
+    }
+
+    public void setMaxHeartBeatAge(int maxHeartBeatAge) {
+        this.maxHeartBeatAge = maxHeartBeatAge;
+    }
+
+    public void setClock(ElectionClock clock) {
+        this.clock = clock;
+
+        if (serverClock != null) {
+            serverClock = new ServerClock(clock);
+        }
+    }
+
+    /**
+     * @see JdbcElectionStore#setServerClock(boolean)
+     */
+    public void setServerClock(boolean useServerClock) {
+        serverClock = useServerClock ? new ServerClock(clock) : null;
+    }
+
+    /**
+     * @see JdbcElectionStore#setDeadline(long)
+     */
+    public void setDeadline(long deadline) {
+        this.deadline = deadline;
+    }
+
+    /**
+     * @return the milliseconds the clock that stamps the heartbeats may be off, by which a leader shortens the
+     * lease it relies on
+     */
+    public long getClockUncertainty() {
+        return serverClock != null ? serverClock.getUncertainty() : 0;
+    }
+
+    public String getParticipantId() {
+        return participantId;
+    }
+
+    public void setCacheStatements(boolean cacheStatements) {
+        statements.setEnabled(cacheStatements);
+    }
+
+    public void closeStatements() {
+        statements.close();
+    }
+
+    public List<String> getGroupNames() {
+        return Collections.unmodifiableList(groupNames);
+    }
+
+    /**
+     * @return the statements and batches sent to the database by the last operation
+     */
+    public int getRoundTrips() {
+        return roundTrips;
+    }
+
+    /**
+     * @return the names of all groups this participant is the leader of
+     */
+    public Set<String> runElection(Connection connection) {
+        this.connection = connection;
+        this.roundTrips = 0;
+
+        LOG.debug("participant '{}' begins election for {} groups", participantId, groupNames.size());
+
+        try {
+            synchronizeClock();
+
+            Set<String> ledGroups = new HashSet<String>();
+            List<String> undecidedGroups = new ArrayList<String>();
+
+            int[] counts = claimOrRenewLeadership();
+
+            for (int i = 0; i < counts.length; ++i) {
+                String groupName = groupNames.get(i);
+
+                if (counts[i] == Statement.SUCCESS_NO_INFO) {
+                    undecidedGroups.add(groupName);
+                } else if (counts[i] > 0) {
+                    knownGroups.add(groupName);
+                    ledGroups.add(groupName);
+                } else {
+                    lost(groupName);
+                    insertIfUnknown(groupName, ledGroups);
+                }
+            }
+
+            if (!undecidedGroups.isEmpty()) {
+                // the driver did not tell which updates matched, the groups that are not led may not exist yet
+                Set<String> ledUndecidedGroups = findLedGroups(undecidedGroups);
+                ledGroups.addAll(ledUndecidedGroups);
+
+                for (String groupName : undecidedGroups) {
+                    if (!ledUndecidedGroups.contains(groupName)) {
+                        lost(groupName);
+                        insertIfUnknown(groupName, ledGroups);
+                    }
+                }
+            }
+
+            LOG.debug("participant '{}' is the leader of {}", participantId, ledGroups);
+            this.ledGroups = ledGroups;
+            return ledGroups;
+        } catch (SQLException e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+    public void giveUpLeaderShip(Connection connection) {
+        this.connection = connection;
+        this.roundTrips = 0;
+
+        try {
+            synchronizeClock();
+            ledGroups = Collections.emptySet();
+
+            PreparedStatement st = prepare(GIVE_UP_SQL);
+
+            try {
+                for (String groupName : groupNames) {
+                    st.setString(1, groupName);
+                    st.setString(2, participantId);
+                    st.addBatch();
+                }
+
+                roundTrips++;
+                st.executeBatch();
+            } finally {
+                statements.release(st);
+            }
+        } catch (SQLException e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+    private int[] claimOrRenewLeadership() throws SQLException {
+        PreparedStatement st = prepare(JdbcElectionStore.CLAIM_OR_RENEW_SQL);
+
+        try {
+            long now = currentTimeMillis();
+            Timestamp heartBeat = timestamp(heartBeatParameter, now);
+            Timestamp oldestValidHeartBeat = timestamp(expiryParameter, now - maxHeartBeatAge - getClockUncertainty());
+
+            for (String groupName : groupNames) {
+                st.setString(1, participantId);
+                st.setTimestamp(2, heartBeat);
+                st.setString(3, groupName);
+                st.setString(4, participantId);
+                st.setTimestamp(5, oldestValidHeartBeat);
+                st.addBatch();
+            }
+
+            roundTrips++;
+            return st.executeBatch();
+        } finally {
+            statements.release(st);
+        }
+    }
+
+    private Set<String> findLedGroups(List<String> candidates) throws SQLException {
+        PreparedStatement st = prepare(FIND_LED_GROUPS_SQL);
+
+        try {
+            st.setString(1, participantId);
+
+            roundTrips++;
+            ResultSet rs = st.executeQuery();
+
+            try {
+                Set<String> ledGroups = new HashSet<String>();
+
+                while (rs.next()) {
+                    String groupName = rs.getString(1);
+
+                    if (candidates.contains(groupName)) {
+                        knownGroups.add(groupName);
+                        ledGroups.add(groupName);
+                    }
+                }
+
+                return ledGroups;
+            } finally {
+                rs.close();
+            }
+        } finally {
+            statements.release(st);
+        }
+    }
+
+    /**
+     * Forgets a group this participant led before the update found no row to renew, as the row may have been
+     * deleted, e.g. by an operator. The next insert tells.
+     */
+    private void lost(String groupName) {
+        if (ledGroups.contains(groupName)) {
+            knownGroups.remove(groupName);
+        }
+    }
+
+    private void insertIfUnknown(String groupName, Set<String> ledGroups) throws SQLException {
+        if (knownGroups.contains(groupName)) {
+            return;
+        }
+
+        if (insertElection(groupName)) {
+            ledGroups.add(groupName);
+        }
+        knownGroups.add(groupName);
+    }
+
+    private boolean insertElection(String groupName) throws SQLException {
+        LOG.debug("group '{}' is not known yet. participant '{}' requests leadership", groupName, participantId);
+
+        PreparedStatement st = prepare(JdbcElectionStore.INSERT_SQL);
+
+        try {
+            st.setString(1, groupName);
+            st.setString(2, participantId);
+            st.setTimestamp(3, timestamp(heartBeatParameter, currentTimeMillis()));
+            st.setInt(4, 0);
+
+            roundTrips++;
+            st.execute();
+            return true;
+        } catch (SQLException e) {
+            if (JdbcElectionStore.isConstraintViolation(e)) {
+                return false;
+            }
+            throw e;
+        } finally {
+            statements.release(st);
+        }
+    }
+
+    private PreparedStatement prepare(String sql) throws SQLException {
+        int queryTimeout = deadline != 0 ? JdbcElectionStore.queryTimeoutSeconds(deadline, clock.nanoTime()) : 0;
+        PreparedStatement st = statements.prepare(connection, sql);
+
+        try {
+            // a cached statement keeps the timeout of its previous use
+            st.setQueryTimeout(queryTimeout);
+        } catch (SQLException e) {
+            statements.release(st);
+            throw e;
+        }
+
+        return st;
+    }
+
+    private void synchronizeClock() throws SQLException {
+        if (serverClock != null && serverClock.synchronizeIfDue(connection)) {
+            roundTrips++;
+        }
+    }
+
+    /**
+     * @return the time of the heartbeats, either of the local or of the server clock
+     */
+    private long currentTimeMillis() {
+        return serverClock != null ? serverClock.currentTimeMillis() : clock.currentTimeMillis();
+    }
+
+    private static Timestamp timestamp(Timestamp parameter, long millis) {
+        parameter.setTime(millis);
+        return parameter;
+    }
+}
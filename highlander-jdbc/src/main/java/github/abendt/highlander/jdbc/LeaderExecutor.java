@@ -0,0 +1,289 @@
+package github.abendt.highlander.jdbc;
+
+import github.abendt.highlander.ElectionEvent;
+import github.abendt.highlander.ElectionListener;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.*;
+
+/**
+ * Runs tasks and periodic jobs only while a {@link Highlander} is the leader. They are started once per term
+ * of leadership and interrupted as soon as the leadership is lost, or as soon as the local lease runs out
+ * because a renewal is late, whichever comes first. A job does not start a run without a valid lease.
+ * <p>
+ * The lease is checked on a thread of its own, so tasks that occupy every thread of the executor cannot delay
+ * their interruption.
+ * <p>
+ * The executor becomes the listener of the Highlander; events are forwarded to {@link #setListener(ElectionListener)}.
+ */
+public class LeaderExecutor implements ElectionListener {
+
+    private static final Logger LOG = LoggerFactory.getLogger(LeaderExecutor.class);
+
+    private final Highlander highlander;
+    private final ScheduledExecutorService executor;
+    private final boolean ownExecutor;
+    private final ScheduledExecutorService watchdogScheduler =
+            Executors.newSingleThreadScheduledExecutor(HighlanderExecutors.daemonThreads("highlander-watchdog-"));
+
+    private volatile ElectionListener listener;
+    private long cancellationMargin;
+
+    private final List<Task> tasks = new ArrayList<Task>();
+    private boolean announcedLeader;
+    private boolean leading;
+    private volatile long fencingVersion = ElectionEvent.UNKNOWN_VERSION;
+    private ScheduledFuture<?> watchdog;
+    private boolean shutdown;
+
+    /**
+     * Runs the tasks on two daemon threads of its own.
+     */
+    public LeaderExecutor(Highlander highlander) {
+        this(highlander, new ScheduledThreadPoolExecutor(2, HighlanderExecutors.daemonThreads("highlander-leader-")), true);
+    }
+
+    /**
+     * Runs the tasks on the given executor, which needs a thread for every task that runs until it is interrupted.
+     */
+    public LeaderExecutor(Highlander highlander, ScheduledExecutorService executor) {
+        this(highlander, executor, false);
+    }
+
+    private LeaderExecutor(Highlander highlander, ScheduledExecutorService executor, boolean ownExecutor) {
+        this.highlander = highlander;
+        this.executor = executor;
+        this.ownExecutor = ownExecutor;
+
+        highlander.setListener(this);
+    }
+
+    public void setListener(ElectionListener listener) {
+        this.listener = listener;
+    }
+
+    /**
+     * Interrupts the tasks the given time before the local lease runs out, so they stop before another
+     * participant may take over.
+     */
+    public synchronized void setCancellationMargin(long cancellationMarginMillis) {
+        this.cancellationMargin = TimeUnit.MILLISECONDS.toNanos(cancellationMarginMillis);
+    }
+
+    /**
+     * Runs the task once in every term of leadership. It should return when interrupted.
+     */
+    public synchronized void submit(Runnable task) {
+        register(new Task(task, 0, 0));
+    }
+
+    /**
+     * Runs the job periodically while this participant is the leader. The period restarts in every term.
+     */
+    public synchronized void scheduleAtFixedRate(Runnable job, long initialDelay, long period, TimeUnit unit) {
+        if (period <= 0) {
+            throw new IllegalArgumentException("period must be positive: " + period);
+        }
+
+        register(new Task(job, unit.toNanos(initialDelay), unit.toNanos(period)));
+    }
+
+    /**
+     * @return the version of the group when this participant became the leader, to be passed along with writes
+     * so their target can reject the writes of a stale leader. {@link ElectionEvent#UNKNOWN_VERSION} while
+     * this participant is not the leader.
+     */
+    public long getFencingVersion() {
+        return fencingVersion;
+    }
+
+    /**
+     * @return true while the tasks are running
+     */
+    public synchronized boolean isLeading() {
+        return leading;
+    }
+
+    /**
+     * Interrupts the tasks and stops starting them. Does not stop the Highlander.
+     */
+    public synchronized void shutdown() {
+        shutdown = true;
+        cancelWatchdog();
+        interruptTasks();
+
+        watchdogScheduler.shutdownNow();
+
+        if (ownExecutor) {
+            executor.shutdownNow();
+        }
+    }
+
+    @Override
+    public void groupChanged(boolean leader) {
+        electionChanged(new ElectionEvent(null, null, leader, ElectionEvent.UNKNOWN_VERSION, System.currentTimeMillis()));
+    }
+
+    @Override
+    public void electionChanged(ElectionEvent event) {
+        synchronized (this) {
+            announcedLeader = event.isLeader();
+
+            if (announcedLeader) {
+                startTasks();
+            } else {
+                cancelWatchdog();
+                interruptTasks();
+            }
+        }
+
+        ElectionListener currentListener = listener;
+
+        if (currentListener != null) {
+            currentListener.electionChanged(event);
+        }
+    }
+
+    private void register(Task task) {
+        tasks.add(task);
+
+        if (leading) {
+            start(task);
+        }
+    }
+
+    private void startTasks() {
+        if (shutdown || leading) {
+            return;
+        }
+
+        cancelWatchdog();
+
+        if (!hasValidLease()) {
+            scheduleWatchdog(TimeUnit.MILLISECONDS.toNanos(highlander.heartBeatInterval));
+            return;
+        }
+
+        leading = true;
+        fencingVersion = highlander.leaseVersion();
+
+        LOG.debug("participant '{}' starts {} tasks with fencing version {}", highlander.getParticipantId(), tasks.size(), fencingVersion);
+
+        for (Task task : tasks) {
+            start(task);
+        }
+
+        scheduleWatchdog(highlander.leaseRemainingNanos() - cancellationMargin);
+    }
+
+    private void interruptTasks() {
+        if (!leading) {
+            return;
+        }
+
+        leading = false;
+        fencingVersion = ElectionEvent.UNKNOWN_VERSION;
+
+        LOG.debug("participant '{}' interrupts {} tasks", highlander.getParticipantId(), tasks.size());
+
+        for (Task task : tasks) {
+            if (task.future != null) {
+                task.future.cancel(true);
+                task.future = null;
+            }
+        }
+    }
+
+    private void start(final Task task) {
+        if (task.period == 0) {
+            task.future = executor.submit(new Runnable() {
+                @Override
+                public void run() {
+                    runTask(task);
+                }
+            });
+        } else {
+            task.future = executor.scheduleAtFixedRate(new Runnable() {
+                @Override
+                public void run() {
+                    if (hasValidLease()) {
+                        runTask(task);
+                    }
+                }
+            }, task.initialDelay, task.period, TimeUnit.NANOSECONDS);
+        }
+    }
+
+    private void runTask(Task task) {
+        try {
+            task.runnable.run();
+        } catch (RuntimeException e) {
+            // keep a periodic job scheduled
+            LOG.warn("task of participant '{}' failed", highlander.getParticipantId(), e);
+        }
+    }
+
+    private boolean hasValidLease() {
+        return highlander.leaseRemainingNanos() - cancellationMargin > 0;
+    }
+
+    /**
+     * Checks the lease of an announced leader when it could run out, and keeps checking every heartbeat interval
+     * after it ran out, as a late renewal that succeeds after all is not announced again.
+     */
+    private synchronized void checkLease() {
+        watchdog = null;
+
+        if (shutdown || !announcedLeader) {
+            return;
+        }
+
+        if (!leading) {
+            startTasks();
+            return;
+        }
+
+        if (hasValidLease()) {
+            scheduleWatchdog(highlander.leaseRemainingNanos() - cancellationMargin);
+            return;
+        }
+
+        LOG.warn("renewal of participant '{}' is late, interrupting the tasks", highlander.getParticipantId());
+
+        interruptTasks();
+        scheduleWatchdog(TimeUnit.MILLISECONDS.toNanos(highlander.heartBeatInterval));
+    }
+
+    private void scheduleWatchdog(long delay) {
+        watchdog = watchdogScheduler.schedule(new Runnable() {
+            @Override
+            public void run() {
+                checkLease();
+            }
+        }, Math.max(0, delay), TimeUnit.NANOSECONDS);
+    }
+
+    private void cancelWatchdog() {
+        if (watchdog != null) {
+            watchdog.cancel(false);
+            watchdog = null;
+        }
+    }
+
+    private static final class Task {
+
+        private final Runnable runnable;
+        private final long initialDelay;
+        private final long period;
+        private Future<?> future;
+
+        private Task(Runnable runnable, long initialDelay, long period) {
+            this.runnable = runnable;
+            this.initialDelay = initialDelay;
+            this.period = period;
+        }
+    }
+}
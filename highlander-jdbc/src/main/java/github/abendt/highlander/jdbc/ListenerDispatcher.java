@@ -0,0 +1,86 @@
+package github.abendt.highlander.jdbc;
+
+import github.abendt.highlander.ElectionEvent;
+import github.abendt.highlander.ElectionListener;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Delivers election events to a listener, either on the calling thread or on an executor. Events that are
+ * waiting for delivery on the executor are merged: only the latest one is delivered, and only if it differs
+ * from the leadership that was delivered last.
+ */
+class ListenerDispatcher {
+
+    private static final Logger LOG = LoggerFactory.getLogger(ListenerDispatcher.class);
+
+    private volatile ElectionListener listener;
+    private volatile Executor executor;
+
+    private final AtomicReference<ElectionEvent> pendingEvent = new AtomicReference<ElectionEvent>();
+    private ElectionEvent deliveredEvent;
+
+    private final Runnable delivery = new Runnable() {
+        @Override
+        public void run() {
+            deliverPendingEvent();
+        }
+    };
+
+    void setListener(ElectionListener listener) {
+        this.listener = listener;
+    }
+
+    void setExecutor(Executor executor) {
+        this.executor = executor;
+    }
+
+    void dispatch(ElectionEvent event) {
+        Executor currentExecutor = executor;
+
+        if (currentExecutor == null) {
+            deliver(event);
+            return;
+        }
+
+        if (pendingEvent.getAndSet(event) != null) {
+            // merged into the delivery that is already scheduled
+            return;
+        }
+
+        try {
+            currentExecutor.execute(delivery);
+        } catch (RejectedExecutionException e) {
+            LOG.warn("listener executor rejected election event, delivering on calling thread", e);
+            deliverPendingEvent();
+        }
+    }
+
+    private synchronized void deliverPendingEvent() {
+        ElectionEvent event = pendingEvent.getAndSet(null);
+
+        if (event == null) {
+            return;
+        }
+
+        if (deliveredEvent != null && deliveredEvent.isLeader() == event.isLeader()) {
+            return;
+        }
+
+        deliver(event);
+    }
+
+    private synchronized void deliver(ElectionEvent event) {
+        deliveredEvent = event;
+
+        ElectionListener currentListener = listener;
+
+        if (currentListener != null) {
+            currentListener.electionChanged(event);
+        }
+    }
+}
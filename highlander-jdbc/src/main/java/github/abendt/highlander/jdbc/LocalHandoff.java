@@ -0,0 +1,55 @@
+package github.abendt.highlander.jdbc;
+
+import java.util.Collections;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * The running Highlanders of this JVM by group, so a leader that gives up its group can wake the followers
+ * of the group immediately instead of letting them wait for their next heartbeat.
+ */
+class LocalHandoff {
+
+    private static final ConcurrentMap<String, Set<Highlander>> RUNNING = new ConcurrentHashMap<String, Set<Highlander>>();
+
+    private LocalHandoff() {
+    }
+
+    static void register(String groupName, Highlander highlander) {
+        Set<Highlander> highlanders = RUNNING.get(groupName);
+
+        if (highlanders == null) {
+            Set<Highlander> newHighlanders = Collections.newSetFromMap(new ConcurrentHashMap<Highlander, Boolean>());
+            highlanders = RUNNING.putIfAbsent(groupName, newHighlanders);
+
+            if (highlanders == null) {
+                highlanders = newHighlanders;
+            }
+        }
+
+        highlanders.add(highlander);
+    }
+
+    static void unregister(String groupName, Highlander highlander) {
+        Set<Highlander> highlanders = RUNNING.get(groupName);
+
+        if (highlanders != null) {
+            highlanders.remove(highlander);
+        }
+    }
+
+    static void wakeFollowers(String groupName, Highlander leader) {
+        Set<Highlander> highlanders = RUNNING.get(groupName);
+
+        if (highlanders == null) {
+            return;
+        }
+
+        for (Highlander highlander : highlanders) {
+            if (highlander != leader) {
+                highlander.electAsync();
+            }
+        }
+    }
+}
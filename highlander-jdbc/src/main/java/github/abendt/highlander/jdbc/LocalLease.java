@@ -0,0 +1,68 @@
+package github.abendt.highlander.jdbc;
+
+import github.abendt.highlander.ElectionClock;
+import github.abendt.highlander.ElectionEvent;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The leadership as known locally. A confirmed lease is valid until the heartbeat of its renewal could be
+ * considered too old by the other participants, measured from the start of the renewal with {@link ElectionClock#nanoTime()}.
+ * It may be read from any thread without locking.
+ */
+class LocalLease {
+
+    private volatile ElectionClock clock = ElectionClock.SYSTEM;
+
+    // published as a whole, so a reader never pairs the expiry of one renewal with the version of another,
+    // null while the lease is not held
+    private volatile Grant grant;
+
+    void setClock(ElectionClock clock) {
+        this.clock = clock;
+    }
+
+    void confirm(long renewalStartedAt, int maxHeartBeatAge) {
+        confirm(renewalStartedAt, maxHeartBeatAge, ElectionEvent.UNKNOWN_VERSION);
+    }
+
+    void confirm(long renewalStartedAt, int maxHeartBeatAge, long version) {
+        grant = new Grant(renewalStartedAt + TimeUnit.MILLISECONDS.toNanos(maxHeartBeatAge), version);
+    }
+
+    void revoke() {
+        grant = null;
+    }
+
+    boolean isValid() {
+        Grant current = grant;
+        return current != null && clock.nanoTime() - current.expiresAt < 0;
+    }
+
+    /**
+     * @return the version of the group stored by the confirmed renewal
+     */
+    long version() {
+        Grant current = grant;
+        return current != null ? current.version : ElectionEvent.UNKNOWN_VERSION;
+    }
+
+    /**
+     * @return the nanoseconds until the lease expires, zero or less if it is not valid
+     */
+    long remainingNanos() {
+        Grant current = grant;
+        return current != null ? current.expiresAt - clock.nanoTime() : 0;
+    }
+
+    private static final class Grant {
+
+        final long expiresAt;
+        final long version;
+
+        Grant(long expiresAt, long version) {
+            this.expiresAt = expiresAt;
+            this.version = version;
+        }
+    }
+}
@@ -0,0 +1,305 @@
+package github.abendt.highlander.jdbc;
+
+import github.abendt.highlander.ElectionClock;
+import github.abendt.highlander.ElectionEvent;
+import github.abendt.highlander.ElectionListener;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.*;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Elects one participant for many groups with a single heartbeat, connection and batched statement per tick.
+ */
+public class MultiGroupHighlander {
+
+    private static final Logger LOG = LoggerFactory.getLogger(MultiGroupHighlander.class);
+
+    int heartBeatInterval = 1000;
+    int heartBeatJitter = 100;
+    int heartBeatFactor = 3;
+
+    private ScheduledExecutorService scheduler;
+    private Executor electionExecutor;
+    private HeartBeat heartBeat;
+
+    private DataSource dataSource;
+    private PinnedConnection pinnedConnection;
+    private JdbcMultiGroupElection jdbcElection;
+
+    private ElectionClock clock = ElectionClock.SYSTEM;
+    private volatile Set<String> ledGroups = Collections.emptySet();
+    private boolean elected;
+    private final Map<String, LocalLease> leases = new HashMap<String, LocalLease>();
+    private final Map<String, ElectionListener> electionListeners = new HashMap<String, ElectionListener>();
+
+    public MultiGroupHighlander(DataSource dataSource, Collection<String> groupNames) {
+        this.dataSource = dataSource;
+        jdbcElection = new JdbcMultiGroupElection(groupNames);
+        jdbcElection.setMaxHeartBeatAge(maxHeartBeatAge());
+
+        for (String groupName : jdbcElection.getGroupNames()) {
+            leases.put(groupName, new LocalLease());
+        }
+    }
+
+    public void setListener(String groupName, ElectionListener listener) {
+        synchronized (electionListeners) {
+            electionListeners.put(groupName, listener);
+        }
+    }
+
+    /**
+     * @see Highlander#setClock(ElectionClock)
+     */
+    public void setClock(ElectionClock clock) {
+        this.clock = clock;
+        jdbcElection.setClock(clock);
+
+        for (LocalLease lease : leases.values()) {
+            lease.setClock(clock);
+        }
+    }
+
+    /**
+     * @see Highlander#setServerClock(boolean)
+     */
+    public void setServerClock(boolean useServerClock) {
+        jdbcElection.setServerClock(useServerClock);
+    }
+
+    /**
+     * @see Highlander#setPinnedConnection(boolean)
+     */
+    public void setPinnedConnection(boolean pinned) {
+        if (pinned && pinnedConnection == null) {
+            pinnedConnection = new PinnedConnection(dataSource);
+        } else if (!pinned && pinnedConnection != null) {
+            pinnedConnection.close();
+            pinnedConnection = null;
+        }
+
+        jdbcElection.setCacheStatements(pinned);
+    }
+
+    /**
+     * Runs the heartbeats on the given scheduler instead of the {@link HighlanderExecutors#sharedScheduler() shared one}.
+     */
+    public void setScheduler(ScheduledExecutorService scheduler) {
+        this.scheduler = scheduler;
+    }
+
+    /**
+     * Runs the blocking elections on the given executor, e.g. {@link HighlanderExecutors#newVirtualThreadExecutor()},
+     * instead of the scheduler thread.
+     */
+    public void setElectionExecutor(Executor electionExecutor) {
+        this.electionExecutor = electionExecutor;
+    }
+
+    /**
+     * Tells from the locally cached lease of the group whether this participant is its leader, see
+     * {@link Highlander#isLeader()}.
+     */
+    public boolean isLeader(String groupName) {
+        LocalLease lease = leases.get(groupName);
+        return lease != null && lease.isValid();
+    }
+
+    public void start() {
+        heartBeat = new HeartBeat(
+                scheduler != null ? scheduler : HighlanderExecutors.sharedScheduler(),
+                electionExecutor,
+                new Runnable() {
+                    @Override
+                    public void run() {
+                        runElection();
+                    }
+                },
+                heartBeatInterval,
+                heartBeatJitter);
+        heartBeat.start();
+    }
+
+    public void stop() {
+        if (heartBeat != null) {
+            // before the loss is announced, so no election wins the groups again
+            heartBeat.stop();
+        }
+
+        synchronized (this) {
+            for (String groupName : ledGroups) {
+                leases.get(groupName).revoke();
+                announceResult(groupName, false);
+            }
+            ledGroups = Collections.emptySet();
+        }
+
+        if (pinnedConnection != null) {
+            try {
+                jdbcElection.giveUpLeaderShip(pinnedConnection.get());
+            } catch (SQLException | RuntimeException e) {
+                LOG.warn("participant '{}' could not give up leadership", jdbcElection.participantId, e);
+            } finally {
+                jdbcElection.closeStatements();
+                pinnedConnection.close();
+            }
+            return;
+        }
+
+        try {
+            Connection connection = dataSource.getConnection();
+
+            try {
+                jdbcElection.setDeadline(clock.nanoTime() + TimeUnit.MILLISECONDS.toNanos(maxHeartBeatAge()));
+                jdbcElection.giveUpLeaderShip(connection);
+            } finally {
+                connection.close();
+            }
+        } catch (SQLException | RuntimeException e) {
+            LOG.warn("participant '{}' could not give up leadership", jdbcElection.participantId, e);
+        }
+    }
+
+    synchronized void runElection() {
+        long started = clock.nanoTime();
+        jdbcElection.setDeadline(deadline(started));
+
+        if (pinnedConnection != null) {
+            runElectionOnPinnedConnection(started);
+            return;
+        }
+
+        try {
+            Connection connection = dataSource.getConnection();
+
+            try {
+                Set<String> result = jdbcElection.runElection(connection);
+
+                announceResult(started, result);
+            } finally {
+                connection.close();
+            }
+        } catch (SQLException | RuntimeException e) {
+            LOG.warn("participant '{}' could not run election", jdbcElection.participantId, e);
+            expireLeases();
+        }
+    }
+
+    private void runElectionOnPinnedConnection(long started) {
+        try {
+            Set<String> result;
+
+            try {
+                result = jdbcElection.runElection(pinnedConnection.get());
+            } catch (RuntimeException e) {
+                if (!pinnedConnection.isBrokenBy(e)) {
+                    throw e;
+                }
+
+                // reconnect and prepare the statements again
+                pinnedConnection.invalidate();
+                result = jdbcElection.runElection(pinnedConnection.get());
+            }
+
+            announceResult(started, result);
+        } catch (SQLException | RuntimeException e) {
+            pinnedConnection.invalidate();
+            LOG.warn("participant '{}' could not run election", jdbcElection.participantId, e);
+            expireLeases();
+        }
+    }
+
+    /**
+     * @return the end of the leases of the led groups, which were all renewed together, so a renewal that cannot be
+     * confirmed in time fails, otherwise the time after which a heartbeat becomes too old
+     */
+    private long deadline(long now) {
+        long deadline = now + TimeUnit.MILLISECONDS.toNanos(maxHeartBeatAge());
+
+        for (String groupName : ledGroups) {
+            long leaseRemaining = leases.get(groupName).remainingNanos();
+
+            if (leaseRemaining > 0 && now + leaseRemaining - deadline < 0) {
+                deadline = now + leaseRemaining;
+            }
+        }
+
+        return deadline;
+    }
+
+    /**
+     * Announces the loss of the groups whose renewal could not be confirmed before their lease ran out.
+     */
+    private void expireLeases() {
+        Set<String> stillLed = new HashSet<String>(ledGroups);
+
+        for (String groupName : ledGroups) {
+            LocalLease lease = leases.get(groupName);
+
+            if (!lease.isValid()) {
+                lease.revoke();
+                stillLed.remove(groupName);
+                announceResult(groupName, false);
+            }
+        }
+
+        ledGroups = stillLed;
+    }
+
+    private void announceResult(long started, Set<String> result) {
+        Set<String> previouslyLedGroups = ledGroups;
+        boolean firstElection = !elected;
+
+        ledGroups = result;
+        elected = true;
+
+        for (String groupName : jdbcElection.getGroupNames()) {
+            boolean leader = result.contains(groupName);
+
+            if (leader) {
+                leases.get(groupName).confirm(started, leaseMillis());
+            } else {
+                leases.get(groupName).revoke();
+            }
+
+            if (firstElection || leader != previouslyLedGroups.contains(groupName)) {
+                announceResult(groupName, leader);
+            }
+        }
+    }
+
+    private void announceResult(String groupName, boolean result) {
+        ElectionListener electionListener;
+
+        synchronized (electionListeners) {
+            electionListener = electionListeners.get(groupName);
+        }
+
+        if (electionListener != null) {
+            electionListener.electionChanged(new ElectionEvent(
+                    groupName,
+                    result ? jdbcElection.participantId : null,
+                    result,
+                    ElectionEvent.UNKNOWN_VERSION,
+                    clock.currentTimeMillis()));
+        }
+    }
+
+    /**
+     * @return the milliseconds after the start of a confirmed renewal until another participant may take over
+     */
+    private int leaseMillis() {
+        return (int) (maxHeartBeatAge() - jdbcElection.getClockUncertainty());
+    }
+
+    private int maxHeartBeatAge() {
+        return heartBeatFactor * heartBeatInterval;
+    }
+}
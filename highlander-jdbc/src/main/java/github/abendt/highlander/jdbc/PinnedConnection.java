@@ -0,0 +1,76 @@
+package github.abendt.highlander.jdbc;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.SQLException;
+
+/**
+ * Holds one validated connection of a {@link DataSource} until it breaks or is closed.
+ */
+class PinnedConnection {
+
+    int validationTimeout = 1;
+
+    private final DataSource dataSource;
+    private Connection connection;
+
+    PinnedConnection(DataSource dataSource) {
+        this.dataSource = dataSource;
+    }
+
+    synchronized Connection get() throws SQLException {
+        if (connection == null) {
+            Connection newConnection = dataSource.getConnection();
+
+            if (!newConnection.isValid(validationTimeout)) {
+                closeQuietly(newConnection);
+                throw new SQLException("connection is not valid", "08003");
+            }
+
+            connection = newConnection;
+        }
+
+        return connection;
+    }
+
+    synchronized void invalidate() {
+        if (connection != null) {
+            closeQuietly(connection);
+            connection = null;
+        }
+    }
+
+    void close() {
+        invalidate();
+    }
+
+    /**
+     * @return true if the given failure of an operation on the connection broke it, as told by an SQL state of
+     * class 08 or by a failed validation. Other failures, like a constraint violation, keep the connection.
+     */
+    synchronized boolean isBrokenBy(RuntimeException e) {
+        if (!(e.getCause() instanceof SQLException) || connection == null) {
+            return false;
+        }
+
+        String sqlState = ((SQLException) e.getCause()).getSQLState();
+
+        if (sqlState != null && sqlState.startsWith("08")) {
+            return true;
+        }
+
+        try {
+            return !connection.isValid(validationTimeout);
+        } catch (SQLException validationFailure) {
+            return true;
+        }
+    }
+
+    private static void closeQuietly(Connection connection) {
+        try {
+            connection.close();
+        } catch (SQLException e) {
+            // the connection is broken already
+        }
+    }
+}
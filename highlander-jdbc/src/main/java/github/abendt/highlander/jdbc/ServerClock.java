@@ -0,0 +1,127 @@
+package github.abendt.highlander.jdbc;
+
+import github.abendt.highlander.ElectionClock;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The clock of the database server, extrapolated with the monotonic local clock from a measured offset. Participants
+ * on hosts whose clocks are skewed agree on the age of a heartbeat as long as they all use the server clock, so the
+ * heartbeat factor can be small. The offset is measured again after the resync interval, and is off by at most the
+ * {@link #getUncertainty() uncertainty} of the measurement.
+ * <p>
+ * Until the first measurement the local clock is used.
+ */
+public class ServerClock implements ElectionClock {
+
+    long resyncInterval = TimeUnit.MINUTES.toNanos(1);
+
+    private final ElectionClock localClock;
+    private String selectCurrentTimestamp;
+
+    // published as a whole, so a reader never pairs the server time of one measurement with the base of another
+    private volatile Measurement measurement;
+
+    public ServerClock(ElectionClock localClock) {
+        this.localClock = localClock;
+    }
+
+    /**
+     * Sets the time after which the offset to the server clock is measured again.
+     */
+    public void setResyncInterval(long resyncIntervalMillis) {
+        this.resyncInterval = TimeUnit.MILLISECONDS.toNanos(resyncIntervalMillis);
+    }
+
+    @Override
+    public long currentTimeMillis() {
+        Measurement current = measurement;
+
+        if (current == null) {
+            return localClock.currentTimeMillis();
+        }
+
+        return current.serverTime + TimeUnit.NANOSECONDS.toMillis(localClock.nanoTime() - current.nanoTime);
+    }
+
+    @Override
+    public long nanoTime() {
+        return localClock.nanoTime();
+    }
+
+    /**
+     * @return the milliseconds the server clock may be off, half the round trip of the measurement plus the precision
+     * of the timestamp, zero before the first measurement
+     */
+    @Override
+    public long getUncertainty() {
+        Measurement current = measurement;
+        return current != null ? current.uncertainty : 0;
+    }
+
+    /**
+     * Measures the offset unless it was measured within the resync interval.
+     *
+     * @return true if the server was queried
+     */
+    public boolean synchronizeIfDue(Connection connection) throws SQLException {
+        Measurement current = measurement;
+
+        if (current != null && localClock.nanoTime() - current.nanoTime < resyncInterval) {
+            return false;
+        }
+
+        synchronize(connection);
+        return true;
+    }
+
+    public synchronized void synchronize(Connection connection) throws SQLException {
+        if (selectCurrentTimestamp == null) {
+            selectCurrentTimestamp = HighlanderSchema.Dialect.detect(connection.getMetaData()).getSelectCurrentTimestamp();
+        }
+
+        PreparedStatement st = connection.prepareStatement(selectCurrentTimestamp);
+
+        try {
+            long sent = localClock.nanoTime();
+            ResultSet rs = st.executeQuery();
+            long received = localClock.nanoTime();
+
+            try {
+                rs.next();
+                measured(rs.getTimestamp(1).getTime(), sent, received);
+            } finally {
+                rs.close();
+            }
+        } finally {
+            st.close();
+        }
+    }
+
+    /**
+     * Takes the server time read between the given local nano times as the new offset.
+     */
+    void measured(long serverTime, long sent, long received) {
+        long roundTrip = received - sent;
+
+        // the server read its clock about halfway through the round trip
+        measurement = new Measurement(serverTime, sent + roundTrip / 2, TimeUnit.NANOSECONDS.toMillis(roundTrip / 2) + 1);
+    }
+
+    private static final class Measurement {
+
+        final long serverTime;
+        final long nanoTime;
+        final long uncertainty;
+
+        Measurement(long serverTime, long nanoTime, long uncertainty) {
+            this.serverTime = serverTime;
+            this.nanoTime = nanoTime;
+            this.uncertainty = uncertainty;
+        }
+    }
+}
@@ -0,0 +1,488 @@
+package github.abendt.highlander.jdbc;
+
+import github.abendt.highlander.ElectionClock;
+import github.abendt.highlander.ShardListener;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.sql.DataSource;
+import java.sql.*;
+import java.util.*;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Splits a group into shards, each with a lease of its own in the {@code HIGHLANDER} table, and lets every
+ * participant own a fair share of them. The participants announce themselves with a membership row whose
+ * heartbeat is renewed with the shards. On every heartbeat a participant renews its shards, releases the shards
+ * above its share when members joined, and claims free or expired shards up to its share. The shards are split
+ * evenly, the members first in the order of their ids own one more if the shards do not divide by the members.
+ * <p>
+ * A shard is owned until the lease of its last confirmed renewal runs out, also if the database cannot be reached.
+ * <p>
+ * The rows are named {@code <group>#<shard>} and {@code <group>@<participant id>}. A participant deletes its
+ * membership row when it stops, and the rows of members that stopped renewing are purged.
+ */
+public class ShardedHighlander {
+
+    private static final Logger LOG = LoggerFactory.getLogger(ShardedHighlander.class);
+
+    static final String FIND_MEMBERS_SQL = "SELECT GROUPNAME, ID, HEARTBEAT FROM HIGHLANDER " +
+            "WHERE GROUPNAME LIKE ? ESCAPE '!' ORDER BY ID";
+
+    static final String DELETE_MEMBER_SQL = "DELETE FROM HIGHLANDER WHERE GROUPNAME=? AND ID=?";
+
+    static final String PURGE_MEMBER_SQL = "DELETE FROM HIGHLANDER " +
+            "WHERE GROUPNAME=? AND (ID IS NULL OR HEARTBEAT IS NULL OR HEARTBEAT<?)";
+
+    int heartBeatInterval = 1000;
+    int heartBeatJitter = 100;
+    int heartBeatFactor = 3;
+
+    private ScheduledExecutorService scheduler;
+    private Executor electionExecutor;
+    private HeartBeat heartBeat;
+
+    private final DataSource dataSource;
+    private final String groupName;
+    private final String participantId;
+    private final JdbcElection membership;
+    private final JdbcElection[] shards;
+    private final LocalLease[] shardLeases;
+
+    private ElectionClock clock = ElectionClock.SYSTEM;
+    private ServerClock serverClock;
+    private long deadline;
+
+    private volatile Set<Integer> ownedShards = Collections.emptySet();
+    private boolean elected;
+    private volatile ShardListener listener;
+
+    public ShardedHighlander(DataSource dataSource, String groupName, int shardCount) {
+        if (shardCount <= 0) {
+            throw new IllegalArgumentException("shard count must be positive: " + shardCount);
+        }
+
+        this.dataSource = dataSource;
+        this.groupName = groupName;
+        this.participantId = UUID.randomUUID().toString();
+
+        membership = newElection(memberGroupName(groupName, participantId));
+        shards = new JdbcElection[shardCount];
+        shardLeases = new LocalLease[shardCount];
+
+        for (int shard = 0; shard < shardCount; ++shard) {
+            shards[shard] = newElection(shardGroupName(groupName, shard));
+            shardLeases[shard] = new LocalLease();
+        }
+    }
+
+    /**
+     * @see Highlander#setHeartBeatInterval(int)
+     */
+    public void setHeartBeatInterval(int heartBeatInterval) {
+        this.heartBeatInterval = heartBeatInterval;
+        updateMaxHeartBeatAge();
+    }
+
+    /**
+     * @see Highlander#setHeartBeatFactor(int)
+     */
+    public void setHeartBeatFactor(int heartBeatFactor) {
+        this.heartBeatFactor = heartBeatFactor;
+        updateMaxHeartBeatAge();
+    }
+
+    /**
+     * @see Highlander#setClock(ElectionClock)
+     */
+    public void setClock(ElectionClock clock) {
+        this.clock = clock;
+
+        if (serverClock != null) {
+            serverClock = new ServerClock(clock);
+        }
+
+        for (JdbcElection election : elections()) {
+            election.setClock(clock);
+            election.setServerClock(serverClock);
+        }
+
+        for (LocalLease lease : shardLeases) {
+            lease.setClock(clock);
+        }
+    }
+
+    /**
+     * Ages the heartbeats of the shards and of the memberships with the clock of the database server, see
+     * {@link Highlander#setServerClock(boolean)}. The offset is measured once for all of them.
+     */
+    public void setServerClock(boolean useServerClock) {
+        serverClock = useServerClock ? new ServerClock(clock) : null;
+
+        for (JdbcElection election : elections()) {
+            election.setServerClock(serverClock);
+        }
+    }
+
+    public void setListener(ShardListener listener) {
+        this.listener = listener;
+    }
+
+    /**
+     * @see Highlander#setScheduler(ScheduledExecutorService)
+     */
+    public void setScheduler(ScheduledExecutorService scheduler) {
+        this.scheduler = scheduler;
+    }
+
+    /**
+     * @see Highlander#setElectionExecutor(Executor)
+     */
+    public void setElectionExecutor(Executor electionExecutor) {
+        this.electionExecutor = electionExecutor;
+    }
+
+    public String getParticipantId() {
+        return participantId;
+    }
+
+    public int getShardCount() {
+        return shards.length;
+    }
+
+    /**
+     * @return the shards owned after the last election whose leases are still valid, without accessing the database
+     */
+    public Set<Integer> getOwnedShards() {
+        Set<Integer> owned = ownedShards;
+
+        for (int shard : owned) {
+            if (!shardLeases[shard].isValid()) {
+                return validShards(owned);
+            }
+        }
+
+        return owned;
+    }
+
+    public void start() {
+        heartBeat = new HeartBeat(
+                scheduler != null ? scheduler : HighlanderExecutors.sharedScheduler(),
+                electionExecutor,
+                new Runnable() {
+                    @Override
+                    public void run() {
+                        runElection();
+                    }
+                },
+                heartBeatInterval,
+                heartBeatJitter);
+        heartBeat.start();
+    }
+
+    /**
+     * Releases the shards and the membership, so the other participants take over the shards on their next heartbeat.
+     */
+    public void stop() {
+        if (heartBeat != null) {
+            heartBeat.stop();
+        }
+
+        try {
+            release();
+        } catch (SQLException | RuntimeException e) {
+            LOG.warn("participant '{}' could not release the shards of group '{}'", participantId, groupName, e);
+        }
+    }
+
+    void runElection() {
+        try {
+            elect();
+        } catch (SQLException | RuntimeException e) {
+            LOG.warn("participant '{}' could not run election of group '{}'", participantId, groupName, e);
+            announceValidShards();
+        }
+    }
+
+    synchronized Set<Integer> elect() throws SQLException {
+        long started = clock.nanoTime();
+        setDeadline(deadline(started));
+        Connection connection = dataSource.getConnection();
+
+        try {
+            membership.runElection(connection);
+
+            int fairShare = fairShare(connection);
+            TreeSet<Integer> result = new TreeSet<Integer>();
+
+            for (int shard : ownedShards) {
+                if (shards[shard].runElection(connection)) {
+                    shardLeases[shard].confirm(started, leaseMillis());
+                    result.add(shard);
+                } else {
+                    shardLeases[shard].revoke();
+                }
+            }
+
+            while (result.size() > fairShare) {
+                int surplus = result.pollLast();
+
+                LOG.debug("participant '{}' releases shard {} of group '{}'", participantId, surplus, groupName);
+                shardLeases[surplus].revoke();
+                shards[surplus].giveUpLeaderShip(connection);
+            }
+
+            // participants start looking at different shards to avoid claiming the same ones
+            int offset = (participantId.hashCode() & Integer.MAX_VALUE) % shards.length;
+
+            for (int i = 0; i < shards.length && result.size() < fairShare; ++i) {
+                int shard = (offset + i) % shards.length;
+
+                if (!result.contains(shard) && shards[shard].runElection(connection)) {
+                    shardLeases[shard].confirm(started, leaseMillis());
+                    result.add(shard);
+                }
+            }
+
+            announceResult(Collections.unmodifiableSet(result));
+
+            return ownedShards;
+        } finally {
+            connection.close();
+        }
+    }
+
+    synchronized void release() throws SQLException {
+        setDeadline(clock.nanoTime() + TimeUnit.MILLISECONDS.toNanos(maxHeartBeatAge()));
+        Connection connection = dataSource.getConnection();
+
+        try {
+            for (int shard : ownedShards) {
+                shardLeases[shard].revoke();
+                shards[shard].giveUpLeaderShip(connection);
+            }
+
+            deleteMembership(connection);
+        } finally {
+            connection.close();
+        }
+
+        announceResult(Collections.<Integer>emptySet());
+    }
+
+    /**
+     * Reads the membership rows and purges those that expired twice over, so neither stopped nor crashed members
+     * accumulate in the table.
+     *
+     * @return the number of shards of this participant, the shards divided by the members with a valid heartbeat,
+     * one more for the first members in the order of their ids
+     */
+    private int fairShare(Connection connection) throws SQLException {
+        long now = currentTimeMillis();
+        long maxHeartBeatAge = maxHeartBeatAge() + clockUncertainty();
+        List<String> members = new ArrayList<String>();
+        List<String> expiredRows = new ArrayList<String>();
+
+        PreparedStatement st = prepare(connection, FIND_MEMBERS_SQL);
+
+        try {
+            st.setString(1, escapeLike(groupName) + "@%");
+
+            ResultSet rs = st.executeQuery();
+
+            try {
+                while (rs.next()) {
+                    String id = rs.getString(2);
+                    Timestamp heartBeat = rs.getTimestamp(3);
+
+                    if (id != null && heartBeat != null && heartBeat.getTime() >= now - maxHeartBeatAge) {
+                        members.add(id);
+                    } else if (id == null || heartBeat == null || heartBeat.getTime() < now - 2 * maxHeartBeatAge) {
+                        expiredRows.add(rs.getString(1));
+                    }
+                }
+            } finally {
+                rs.close();
+            }
+        } finally {
+            st.close();
+        }
+
+        for (String expiredRow : expiredRows) {
+            purgeMembership(connection, expiredRow, now - 2 * maxHeartBeatAge);
+        }
+
+        if (!members.contains(participantId)) {
+            // this participant just renewed its membership, a concurrent purge may have missed that
+            members.add(participantId);
+            Collections.sort(members);
+        }
+
+        int rank = members.indexOf(participantId);
+
+        return shards.length / members.size() + (rank < shards.length % members.size() ? 1 : 0);
+    }
+
+    private void purgeMembership(Connection connection, String rowName, long expiredBefore) throws SQLException {
+        PreparedStatement st = prepare(connection, PURGE_MEMBER_SQL);
+
+        try {
+            st.setString(1, rowName);
+            st.setTimestamp(2, new Timestamp(expiredBefore));
+
+            if (st.executeUpdate() > 0) {
+                LOG.debug("participant '{}' purged expired membership row '{}'", participantId, rowName);
+            }
+        } finally {
+            st.close();
+        }
+    }
+
+    private void deleteMembership(Connection connection) throws SQLException {
+        PreparedStatement st = prepare(connection, DELETE_MEMBER_SQL);
+
+        try {
+            st.setString(1, memberGroupName(groupName, participantId));
+            st.setString(2, participantId);
+            st.executeUpdate();
+        } finally {
+            st.close();
+        }
+    }
+
+    /**
+     * @return the statement with a query timeout of the time left until the deadline
+     */
+    private PreparedStatement prepare(Connection connection, String sql) throws SQLException {
+        int queryTimeout = JdbcElectionStore.queryTimeoutSeconds(deadline, clock.nanoTime());
+        PreparedStatement st = connection.prepareStatement(sql);
+
+        try {
+            st.setQueryTimeout(queryTimeout);
+        } catch (SQLException e) {
+            st.close();
+            throw e;
+        }
+
+        return st;
+    }
+
+    /**
+     * @return the end of the remaining leases of the owned shards, which were renewed together, so a renewal that
+     * cannot be confirmed in time fails, otherwise the time after which a heartbeat becomes too old
+     */
+    private long deadline(long now) {
+        long deadline = now + TimeUnit.MILLISECONDS.toNanos(maxHeartBeatAge());
+
+        for (int shard : ownedShards) {
+            long leaseRemaining = shardLeases[shard].remainingNanos();
+
+            if (leaseRemaining > 0 && now + leaseRemaining - deadline < 0) {
+                deadline = now + leaseRemaining;
+            }
+        }
+
+        return deadline;
+    }
+
+    private void setDeadline(long deadline) {
+        this.deadline = deadline;
+
+        for (JdbcElection election : elections()) {
+            election.setDeadline(deadline);
+        }
+    }
+
+    /**
+     * Announces the loss of the shards whose leases ran out while they could not be renewed.
+     */
+    private synchronized void announceValidShards() {
+        Set<Integer> valid = getOwnedShards();
+
+        if (valid != ownedShards) {
+            announceResult(valid);
+        }
+    }
+
+    private Set<Integer> validShards(Set<Integer> shards) {
+        TreeSet<Integer> valid = new TreeSet<Integer>();
+
+        for (int shard : shards) {
+            if (shardLeases[shard].isValid()) {
+                valid.add(shard);
+            }
+        }
+
+        return Collections.unmodifiableSet(valid);
+    }
+
+    private void announceResult(Set<Integer> result) {
+        boolean changed = !elected || !result.equals(ownedShards);
+
+        ownedShards = result;
+        elected = true;
+
+        ShardListener currentListener = listener;
+
+        if (changed && currentListener != null) {
+            currentListener.shardsChanged(groupName, result);
+        }
+    }
+
+    private JdbcElection newElection(String rowName) {
+        JdbcElection election = new JdbcElection(rowName, participantId);
+        election.setConditionalWrite(true);
+        election.setMaxHeartBeatAge(maxHeartBeatAge());
+        return election;
+    }
+
+    private void updateMaxHeartBeatAge() {
+        membership.setMaxHeartBeatAge(maxHeartBeatAge());
+
+        for (JdbcElection shard : shards) {
+            shard.setMaxHeartBeatAge(maxHeartBeatAge());
+        }
+    }
+
+    private List<JdbcElection> elections() {
+        List<JdbcElection> elections = new ArrayList<JdbcElection>(Arrays.asList(shards));
+        elections.add(membership);
+        return elections;
+    }
+
+    /**
+     * @return the time of the heartbeats, either of the local or of the server clock
+     */
+    private long currentTimeMillis() {
+        return serverClock != null ? serverClock.currentTimeMillis() : clock.currentTimeMillis();
+    }
+
+    private long clockUncertainty() {
+        return serverClock != null ? serverClock.getUncertainty() : 0;
+    }
+
+    /**
+     * @return the milliseconds after the start of a confirmed renewal until another participant may take over
+     */
+    private int leaseMillis() {
+        return (int) (maxHeartBeatAge() - clockUncertainty());
+    }
+
+    private int maxHeartBeatAge() {
+        return heartBeatFactor * heartBeatInterval;
+    }
+
+    static String shardGroupName(String groupName, int shard) {
+        return groupName + "#" + shard;
+    }
+
+    static String memberGroupName(String groupName, String participantId) {
+        return groupName + "@" + participantId;
+    }
+
+    private static String escapeLike(String value) {
+        return value.replace("!", "!!").replace("%", "!%").replace("_", "!_");
+    }
+}
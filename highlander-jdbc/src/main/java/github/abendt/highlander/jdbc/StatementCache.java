@@ -0,0 +1,65 @@
+package github.abendt.highlander.jdbc;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Keeps the prepared statements of one connection so they are prepared once and reused.
+ * The statements are re-prepared when a different connection is used.
+ */
+class StatementCache {
+
+    private boolean enabled;
+    private Connection connection;
+    private final Map<String, PreparedStatement> statements = new HashMap<String, PreparedStatement>();
+
+    void setEnabled(boolean enabled) {
+        this.enabled = enabled;
+
+        if (!enabled) {
+            close();
+        }
+    }
+
+    PreparedStatement prepare(Connection connection, String sql) throws SQLException {
+        if (!enabled) {
+            return connection.prepareStatement(sql);
+        }
+
+        if (connection != this.connection) {
+            close();
+            this.connection = connection;
+        }
+
+        PreparedStatement st = statements.get(sql);
+
+        if (st == null) {
+            st = connection.prepareStatement(sql);
+            statements.put(sql, st);
+        }
+
+        return st;
+    }
+
+    void release(PreparedStatement st) throws SQLException {
+        if (!enabled) {
+            st.close();
+        }
+    }
+
+    void close() {
+        for (PreparedStatement st : statements.values()) {
+            try {
+                st.close();
+            } catch (SQLException e) {
+                // the statement belongs to a broken or closed connection
+            }
+        }
+
+        statements.clear();
+        connection = null;
+    }
+}
@@ -0,0 +1,207 @@
+package github.abendt.highlander.jdbc;
+
+import javax.sql.DataSource;
+import java.io.PrintWriter;
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.*;
+import java.util.Random;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.logging.Logger;
+
+/**
+ * Wraps the connections and statements of a {@link DataSource} and injects faults into the statements: a random
+ * latency, stalls, dropped connections and updates that are applied but reported as failed, like a commit whose
+ * acknowledgement got lost.
+ */
+class FaultInjectingDataSource implements DataSource {
+
+    private final DataSource dataSource;
+    private final Random random;
+
+    private volatile int maxLatency;
+    private volatile double dropRate;
+    private volatile double commitFailureRate;
+    private volatile long stalledUntil;
+
+    private final AtomicLong statements = new AtomicLong();
+    private final AtomicLong faults = new AtomicLong();
+
+    FaultInjectingDataSource(DataSource dataSource, long seed) {
+        this.dataSource = dataSource;
+        this.random = new Random(seed);
+    }
+
+    /**
+     * Delays every statement by a random latency up to the given milliseconds.
+     */
+    void setMaxLatency(int maxLatency) {
+        this.maxLatency = maxLatency;
+    }
+
+    /**
+     * Breaks the connection of the given fraction of the statements before they are sent.
+     */
+    void setDropRate(double dropRate) {
+        this.dropRate = dropRate;
+    }
+
+    /**
+     * Reports the given fraction of the updates as failed after they were applied.
+     */
+    void setCommitFailureRate(double commitFailureRate) {
+        this.commitFailureRate = commitFailureRate;
+    }
+
+    /**
+     * Blocks new connections and statements for the given milliseconds, as if the database stopped answering.
+     */
+    void stall(long millis) {
+        stalledUntil = System.nanoTime() + millis * 1000000L;
+    }
+
+    long getStatements() {
+        return statements.get();
+    }
+
+    long getFaults() {
+        return faults.get();
+    }
+
+    @Override
+    public Connection getConnection() throws SQLException {
+        awaitStall();
+        return wrap(dataSource.getConnection());
+    }
+
+    @Override
+    public Connection getConnection(String username, String password) throws SQLException {
+        awaitStall();
+        return wrap(dataSource.getConnection(username, password));
+    }
+
+    private Connection wrap(final Connection connection) {
+        return (Connection) Proxy.newProxyInstance(getClass().getClassLoader(), new Class<?>[]{Connection.class}, new InvocationHandler() {
+
+            private volatile boolean dropped;
+
+            @Override
+            public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+                String name = method.getName();
+
+                if (dropped && !name.equals("close") && !name.equals("isClosed")) {
+                    if (name.equals("isValid")) {
+                        return false;
+                    }
+                    throw new SQLNonTransientConnectionException("connection was dropped", "08006");
+                }
+
+                Object result = invokeUnwrapped(connection, method, args);
+
+                if (name.equals("prepareStatement") || name.equals("createStatement")) {
+                    return wrap((Statement) result, name.equals("prepareStatement") ? PreparedStatement.class : Statement.class);
+                }
+
+                return result;
+            }
+
+            private Statement wrap(final Statement statement, Class<? extends Statement> type) {
+                return (Statement) Proxy.newProxyInstance(getClass().getClassLoader(), new Class<?>[]{type}, new InvocationHandler() {
+                    @Override
+                    public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+                        String name = method.getName();
+
+                        if (!name.startsWith("execute")) {
+                            return invokeUnwrapped(statement, method, args);
+                        }
+
+                        if (dropped) {
+                            throw new SQLNonTransientConnectionException("connection was dropped", "08006");
+                        }
+
+                        statements.incrementAndGet();
+                        awaitStall();
+                        sleep(maxLatency > 0 ? random.nextInt(maxLatency + 1) : 0);
+
+                        if (random.nextDouble() < dropRate) {
+                            faults.incrementAndGet();
+                            dropped = true;
+                            connection.close();
+                            throw new SQLNonTransientConnectionException("connection was dropped", "08006");
+                        }
+
+                        Object result = invokeUnwrapped(statement, method, args);
+
+                        if (!name.equals("executeQuery") && random.nextDouble() < commitFailureRate) {
+                            faults.incrementAndGet();
+                            throw new SQLTransientConnectionException("update was applied, but its acknowledgement was lost", "08007");
+                        }
+
+                        return result;
+                    }
+                });
+            }
+        });
+    }
+
+    private static Object invokeUnwrapped(Object target, Method method, Object[] args) throws Throwable {
+        try {
+            return method.invoke(target, args);
+        } catch (InvocationTargetException e) {
+            throw e.getCause();
+        }
+    }
+
+    private void awaitStall() {
+        sleep((stalledUntil - System.nanoTime()) / 1000000L);
+    }
+
+    private static void sleep(long millis) {
+        if (millis <= 0) {
+            return;
+        }
+
+        try {
+            Thread.sleep(millis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    @Override
+    public PrintWriter getLogWriter() throws SQLException {
+        return dataSource.getLogWriter();
+    }
+
+    @Override
+    public void setLogWriter(PrintWriter out) throws SQLException {
+        dataSource.setLogWriter(out);
+    }
+
+    @Override
+    public void setLoginTimeout(int seconds) throws SQLException {
+        dataSource.setLoginTimeout(seconds);
+    }
+
+    @Override
+    public int getLoginTimeout() throws SQLException {
+        return dataSource.getLoginTimeout();
+    }
+
+    @Override
+    public Logger getParentLogger() throws SQLFeatureNotSupportedException {
+        return dataSource.getParentLogger();
+    }
+
+    @Override
+    public <T> T unwrap(Class<T> iface) throws SQLException {
+        return dataSource.unwrap(iface);
+    }
+
+    @Override
+    public boolean isWrapperFor(Class<?> iface) throws SQLException {
+        return dataSource.isWrapperFor(iface);
+    }
+}
@@ -0,0 +1,142 @@
+package github.abendt.highlander.jdbc;
+
+import org.junit.After;
+import org.junit.Test;
+
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static com.jayway.awaitility.Awaitility.await;
+import static org.fest.assertions.api.Assertions.assertThat;
+
+public class HeartBeatTest {
+
+    private final ScheduledExecutorService scheduler = Executors.newSingleThreadScheduledExecutor();
+    private final ExecutorService electionExecutor = Executors.newCachedThreadPool(HighlanderExecutors.daemonThreads("election-"));
+
+    private final AtomicInteger runs = new AtomicInteger();
+
+    @After
+    public void shutdownExecutors() {
+        scheduler.shutdownNow();
+        electionExecutor.shutdownNow();
+    }
+
+    @Test
+    public void failingElectionDoesNotEndHeartBeat() {
+        HeartBeat heartBeat = new HeartBeat(scheduler, null, new Runnable() {
+            @Override
+            public void run() {
+                runs.incrementAndGet();
+                throw new IllegalStateException("election failed");
+            }
+        }, 10, 5);
+
+        heartBeat.start();
+
+        await().until(runsReached(3));
+
+        heartBeat.stop();
+    }
+
+    @Test
+    public void electionRunsOnElectionExecutor() {
+        final BlockingQueue<Thread> threads = new LinkedBlockingQueue<Thread>();
+
+        HeartBeat heartBeat = new HeartBeat(scheduler, electionExecutor, new Runnable() {
+            @Override
+            public void run() {
+                threads.add(Thread.currentThread());
+                runs.incrementAndGet();
+            }
+        }, 10, 0);
+
+        heartBeat.start();
+
+        await().until(runsReached(2));
+
+        heartBeat.stop();
+
+        assertThat(threads).isNotEmpty();
+        for (Thread thread : threads) {
+            assertThat(thread.getName()).startsWith("election-");
+        }
+    }
+
+    @Test
+    public void nextRunCanBeDelayed() throws Exception {
+        final HeartBeat[] heartBeat = new HeartBeat[1];
+
+        heartBeat[0] = new HeartBeat(scheduler, null, new Runnable() {
+            @Override
+            public void run() {
+                runs.incrementAndGet();
+                heartBeat[0].delayNextRun(10000);
+            }
+        }, 10, 0);
+
+        heartBeat[0].start();
+
+        await().until(runsReached(1));
+        Thread.sleep(100);
+        heartBeat[0].stop();
+
+        assertThat(runs.get()).isEqualTo(1);
+    }
+
+    @Test
+    public void stoppedHeartBeatDoesNotRunElection() throws Exception {
+        HeartBeat heartBeat = new HeartBeat(scheduler, null, new Runnable() {
+            @Override
+            public void run() {
+                runs.incrementAndGet();
+            }
+        }, 10, 0);
+
+        heartBeat.start();
+        heartBeat.stop();
+
+        Thread.sleep(50);
+
+        assertThat(runs.get()).isEqualTo(0);
+    }
+
+    @Test
+    public void jitterIsDrawnFromGivenRandom() {
+        final List<Long> delays = new CopyOnWriteArrayList<Long>();
+        ScheduledExecutorService recordingScheduler = new ScheduledThreadPoolExecutor(1) {
+            @Override
+            public ScheduledFuture<?> schedule(Runnable command, long delay, TimeUnit unit) {
+                delays.add(delay);
+                return super.schedule(command, delay, unit);
+            }
+        };
+
+        try {
+            HeartBeat heartBeat = new HeartBeat(recordingScheduler, null, new Runnable() {
+                @Override
+                public void run() {
+                }
+            }, 10000, 1000);
+            heartBeat.setRandom(new Random(42));
+
+            heartBeat.start();
+            heartBeat.stop();
+
+            assertThat(delays).containsExactly(10000L + new Random(42).nextInt(1000));
+        } finally {
+            recordingScheduler.shutdownNow();
+        }
+    }
+
+    private Callable<Boolean> runsReached(final int count) {
+        return new Callable<Boolean>() {
+            @Override
+            public Boolean call() throws Exception {
+                return runs.get() >= count;
+            }
+        };
+    }
+}
@@ -0,0 +1,58 @@
+package github.abendt.highlander.jdbc;
+
+import org.junit.Test;
+
+import static org.fest.assertions.api.Assertions.assertThat;
+
+public class HighlanderConfigTest {
+
+    @Test
+    public void defaultsMatchHighlander() {
+        HighlanderConfig config = HighlanderConfig.builder().build();
+
+        assertThat(config.getHeartBeatInterval()).isEqualTo(1000);
+        assertThat(config.getHeartBeatFactor()).isEqualTo(3);
+        assertThat(config.getHeartBeatJitter()).isEqualTo(100);
+        assertThat(config.isAdaptive()).isFalse();
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void rejectsMaximumIntervalThatOutlastsTheShortestLease() {
+        // a leader renewing every 300 ms looks dead to a participant waiting 3 x 100 ms
+        HighlanderConfig.builder()
+                .heartBeatFactor(3)
+                .heartBeatJitter(0)
+                .adaptive(100, 300)
+                .build();
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void jitterCountsAgainstTheShortestLease() {
+        HighlanderConfig.builder()
+                .heartBeatFactor(3)
+                .heartBeatJitter(50)
+                .adaptive(100, 250)
+                .build();
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void rejectsHeartBeatFactorBelowTwo() {
+        HighlanderConfig.builder().heartBeatFactor(1).build();
+    }
+
+    @Test
+    public void adaptedIntervalStaysWithinBounds() {
+        HighlanderConfig config = HighlanderConfig.builder()
+                .heartBeatInterval(2000)
+                .heartBeatJitter(10)
+                .latencyMultiple(10)
+                .adaptive(100, 250)
+                .build();
+
+        assertThat(config.getHeartBeatInterval()).isEqualTo(250);
+        assertThat(config.adaptedInterval(1500)).isEqualTo(100);
+        assertThat(config.adaptedInterval(18000)).isEqualTo(180);
+        assertThat(config.adaptedInterval(400000)).isEqualTo(250);
+        assertThat(config.guaranteedLease()).isEqualTo(300);
+    }
+}
@@ -13,13 +13,6 @@ class HighlanderInMemoryDbRule extends ExternalResource {
 
     private String dbUrl = "jdbc:h2:mem:highlander";
 
-    private String sql = "CREATE TABLE HIGHLANDER " +
-            "(GROUPNAME     VARCHAR(255) not NULL, " +
-            " ID            VARCHAR(255), " +
-            " HEARTBEAT     TIMESTAMP, " +
-            " VERSION       INTEGER not NULL, " +
-            " PRIMARY KEY ( GROUPNAME ))";
-
     private Connection primaryConnection;
 
     private List<Connection> connections = new ArrayList();
@@ -44,8 +37,7 @@ class HighlanderInMemoryDbRule extends ExternalResource {
     @Override
     protected void before() throws Throwable {
         primaryConnection = createConnection();
-        Statement stmt = primaryConnection.createStatement();
-        stmt.executeUpdate(sql);
+        new HighlanderSchema(getDataSource()).createIfMissing();
     }
 
     @Override
@@ -0,0 +1,100 @@
+package github.abendt.highlander.jdbc;
+
+import org.junit.Rule;
+import org.junit.Test;
+
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.Date;
+
+import static org.fest.assertions.api.Assertions.assertThat;
+import static org.fest.assertions.api.Assertions.fail;
+
+public class HighlanderSchemaTest {
+
+    @Rule
+    public final HighlanderInMemoryDbRule database = new HighlanderInMemoryDbRule();
+
+    @Test
+    public void detectsH2() throws SQLException {
+        assertThat(HighlanderSchema.Dialect.detect(database.getConnection().getMetaData())).isEqualTo(HighlanderSchema.Dialect.H2);
+    }
+
+    @Test
+    public void createsMemoryTableWithProbeIndex() throws SQLException {
+        ResultSet rs = database.getConnection().getMetaData().getIndexInfo(null, null, HighlanderSchema.TABLE, false, false);
+
+        boolean probeIndex = false;
+
+        while (rs.next()) {
+            probeIndex |= HighlanderSchema.PROBE_INDEX.equals(rs.getString("INDEX_NAME"));
+        }
+
+        assertThat(probeIndex).isTrue();
+    }
+
+    @Test
+    public void existingTableIsValidatedAndKept() throws SQLException {
+        database.insertElection("Group", "SomeOne", new Date());
+
+        assertThat(new HighlanderSchema(database.getDataSource()).createIfMissing()).isFalse();
+        assertThat(new JdbcElection("Group").runElection(database.getConnection())).isFalse();
+    }
+
+    @Test
+    public void validationReportsMissingColumn() throws SQLException {
+        Statement st = database.getConnection().createStatement();
+        st.execute("DROP INDEX " + HighlanderSchema.PROBE_INDEX);
+        st.execute("ALTER TABLE HIGHLANDER DROP COLUMN HEARTBEAT");
+
+        try {
+            new HighlanderSchema(database.getDataSource()).validate();
+            fail("column is missing");
+        } catch (IllegalStateException e) {
+            assertThat(e.getMessage()).contains("HEARTBEAT");
+        }
+    }
+
+    @Test
+    public void validationReportsMissingTable() throws SQLException {
+        Connection connection = database.getConnection();
+        connection.createStatement().execute("ALTER TABLE HIGHLANDER RENAME TO HIGHLANDER_OLD");
+
+        try {
+            new HighlanderSchema(database.getDataSource()).validate();
+            fail("table is missing");
+        } catch (IllegalStateException e) {
+            assertThat(e.getMessage()).contains("does not exist");
+        } finally {
+            connection.createStatement().execute("ALTER TABLE HIGHLANDER_OLD RENAME TO HIGHLANDER");
+        }
+    }
+
+    @Test
+    public void sequenceLeftOverFromDroppedTableIsKept() throws SQLException {
+        database.getConnection().createStatement().execute("DROP TABLE HIGHLANDER");
+
+        HighlanderSchema schema = new HighlanderSchema(database.getDataSource());
+        schema.setDialect(HighlanderSchema.Dialect.GENERIC);
+
+        assertThat(schema.createIfMissing()).isTrue();
+
+        JdbcElection election = new JdbcElection("Group");
+        election.setRecordChanges(true);
+
+        assertThat(election.runElection(database.getConnection())).isTrue();
+    }
+
+    @Test
+    public void dialectsKeepHeartBeatUpdatesCheap() {
+        assertThat(HighlanderSchema.Dialect.POSTGRES.getCreateTable()).doesNotContain("UNLOGGED").contains("fillfactor");
+        assertThat(HighlanderSchema.Dialect.POSTGRES.getCreateUnloggedTable()).startsWith("CREATE UNLOGGED TABLE").contains("fillfactor");
+        assertThat(HighlanderSchema.Dialect.MYSQL.getCreateUnloggedTable()).isNull();
+        assertThat(HighlanderSchema.Dialect.MYSQL.getCreateTable()).doesNotContain("ROW_FORMAT");
+        assertThat(HighlanderSchema.Dialect.POSTGRES.getCreateProbeIndex()).isNull();
+        assertThat(HighlanderSchema.Dialect.MYSQL.getCreateTable()).contains("InnoDB").contains("VARCHAR(191)");
+        assertThat(HighlanderSchema.Dialect.H2.getCreateTable()).contains("MEMORY");
+    }
+}
@@ -0,0 +1,222 @@
+package github.abendt.highlander.jdbc;
+
+import github.abendt.highlander.ElectionMetrics;
+import github.abendt.highlander.LatencyHistogram;
+import org.junit.After;
+import org.junit.Rule;
+import org.junit.Test;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.fest.assertions.api.Assertions.assertThat;
+
+/**
+ * Runs groups of participants on an in-memory database that injects latency, dropped connections and lost update
+ * acknowledgements, and repeatedly stalls the database of a leader for longer than its lease. Samples the local
+ * leases of all participants to find overlapping leaders and to measure how long the failovers take.
+ */
+public class HighlanderStressTest {
+
+    private static final Logger LOG = LoggerFactory.getLogger(HighlanderStressTest.class);
+
+    private static final int GROUPS = 3;
+    private static final int PARTICIPANTS = 4;
+    private static final int HEARTBEAT_INTERVAL = 50;
+    private static final int HEARTBEAT_JITTER = 10;
+    private static final int HEARTBEAT_FACTOR = 3;
+    private static final long DURATION = 6000;
+    private static final long STALL_INTERVAL = 300;
+    private static final long STALL = 4 * HEARTBEAT_FACTOR * HEARTBEAT_INTERVAL;
+
+    @Rule
+    public final HighlanderInMemoryDbRule database = new HighlanderInMemoryDbRule();
+
+    private final ExecutorService electionExecutor = Executors.newCachedThreadPool();
+    private final List<Group> groups = new ArrayList<Group>();
+
+    private final AtomicLong elections = new AtomicLong();
+    private final AtomicLong failedElections = new AtomicLong();
+    private final LatencyHistogram failovers = new LatencyHistogram();
+    private final List<String> overlaps = new ArrayList<String>();
+    private int stalls;
+
+    @After
+    public void stopParticipants() {
+        for (Group group : groups) {
+            for (Participant participant : group.participants) {
+                participant.dataSource.stall(0);
+                participant.highlander.stop();
+            }
+        }
+
+        electionExecutor.shutdownNow();
+    }
+
+    @Test
+    public void failsOverWithoutOverlappingLeadersUnderFaults() throws Exception {
+        for (int i = 0; i < GROUPS; ++i) {
+            // the first group runs optimistic elections, the others conditional writes
+            groups.add(new Group("Stress-" + i, i > 0));
+        }
+
+        long started = System.nanoTime();
+        long nextStall = started + TimeUnit.MILLISECONDS.toNanos(STALL_INTERVAL);
+        int nextGroup = 0;
+
+        while (System.nanoTime() - started < TimeUnit.MILLISECONDS.toNanos(DURATION)) {
+            for (Group group : groups) {
+                group.sampleLeases();
+            }
+
+            if (System.nanoTime() >= nextStall) {
+                if (groups.get(nextGroup).stallLeader()) {
+                    stalls++;
+                }
+
+                nextGroup = (nextGroup + 1) % GROUPS;
+                nextStall += TimeUnit.MILLISECONDS.toNanos(STALL_INTERVAL);
+            }
+
+            Thread.sleep(1);
+        }
+
+        long seconds = TimeUnit.NANOSECONDS.toSeconds(System.nanoTime() - started);
+        long statements = 0;
+        long faults = 0;
+
+        for (Group group : groups) {
+            for (Participant participant : group.participants) {
+                statements += participant.dataSource.getStatements();
+                faults += participant.dataSource.getFaults();
+            }
+        }
+
+        LOG.info("{} elections/s ({} failed) with {} statements and {} injected faults in {} s",
+                elections.get() / seconds, failedElections.get(), statements, faults, seconds);
+        LOG.info("{} of {} stalled leaders failed over in p50 {} ms, p99 {} ms, max {} ms",
+                failovers.getCount(), stalls, failovers.getPercentile(50), failovers.getPercentile(99), failovers.getMax());
+        LOG.info("overlapping leaders: {}", overlaps);
+
+        assertThat(overlaps).isEmpty();
+        assertThat(faults).isGreaterThan(0);
+        assertThat(failovers.getCount()).isGreaterThan(stalls / 2);
+        // the lease runs out, then a follower notices within an interval or two
+        assertThat(failovers.getPercentile(99)).isLessThan(3 * HEARTBEAT_FACTOR * HEARTBEAT_INTERVAL);
+    }
+
+    private class Group {
+
+        private final String name;
+        private final List<Participant> participants = new ArrayList<Participant>();
+
+        private boolean overlapping;
+        private Participant stalledLeader;
+        private long stalledAt;
+
+        Group(String name, boolean conditionalWrite) {
+            this.name = name;
+
+            for (int i = 0; i < PARTICIPANTS; ++i) {
+                participants.add(new Participant(name, conditionalWrite, i % 2 == 1, groups.size() * PARTICIPANTS + i));
+            }
+        }
+
+        /**
+         * Counts the leases that are valid at a single instant, after all of them were read. The expiry of a lease is
+         * underestimated rather than overestimated, so a lease handed over in between does not count as an overlap.
+         */
+        void sampleLeases() {
+            long[] expiries = new long[participants.size()];
+
+            for (int i = 0; i < expiries.length; ++i) {
+                long now = System.nanoTime();
+                expiries[i] = now + participants.get(i).highlander.leaseRemainingNanos();
+            }
+
+            long sampledAt = System.nanoTime();
+            List<String> leaders = new ArrayList<String>();
+            boolean failedOver = false;
+
+            for (int i = 0; i < expiries.length; ++i) {
+                if (expiries[i] > sampledAt) {
+                    leaders.add(participants.get(i).highlander.getParticipantId());
+                    failedOver |= stalledLeader != null && participants.get(i) != stalledLeader;
+                }
+            }
+
+            if (leaders.size() > 1 && !overlapping) {
+                overlaps.add(name + ": " + leaders);
+            }
+
+            overlapping = leaders.size() > 1;
+
+            if (failedOver) {
+                failovers.record(TimeUnit.NANOSECONDS.toMillis(sampledAt - stalledAt));
+                stalledLeader = null;
+            }
+        }
+
+        /**
+         * @return true if the group had a leader to stall
+         */
+        boolean stallLeader() {
+            if (stalledLeader != null) {
+                return false;
+            }
+
+            for (Participant participant : participants) {
+                if (participant.highlander.isLeader()) {
+                    participant.dataSource.stall(STALL);
+                    stalledLeader = participant;
+                    stalledAt = System.nanoTime();
+                    return true;
+                }
+            }
+
+            return false;
+        }
+    }
+
+    private class Participant {
+
+        private final FaultInjectingDataSource dataSource;
+        private final Highlander highlander;
+
+        Participant(String groupName, boolean conditionalWrite, boolean pinnedConnection, long seed) {
+            dataSource = new FaultInjectingDataSource(database.getDataSource(), seed);
+            dataSource.setMaxLatency(5);
+            dataSource.setDropRate(0.01);
+            dataSource.setCommitFailureRate(0.01);
+
+            highlander = new Highlander(dataSource, groupName);
+            highlander.setConfig(HighlanderConfig.builder()
+                    .heartBeatInterval(HEARTBEAT_INTERVAL)
+                    .heartBeatJitter(HEARTBEAT_JITTER)
+                    .heartBeatFactor(HEARTBEAT_FACTOR)
+                    .build());
+            highlander.setConditionalWrite(conditionalWrite);
+            highlander.setPinnedConnection(pinnedConnection);
+            highlander.setElectionExecutor(electionExecutor);
+            highlander.setMetrics(new ElectionMetrics() {
+                @Override
+                public void electionCompleted(String groupName, long nanos, int roundTrips, boolean leader) {
+                    elections.incrementAndGet();
+                }
+
+                @Override
+                public void electionFailed(String groupName) {
+                    elections.incrementAndGet();
+                    failedElections.incrementAndGet();
+                }
+            });
+            highlander.start();
+        }
+    }
+}
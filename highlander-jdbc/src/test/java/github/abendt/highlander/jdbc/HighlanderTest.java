@@ -1,17 +1,36 @@
 package github.abendt.highlander.jdbc;
 
+import ch.qos.logback.classic.Level;
+import ch.qos.logback.classic.spi.ILoggingEvent;
+import ch.qos.logback.core.read.ListAppender;
+import github.abendt.highlander.ElectionClock;
+import github.abendt.highlander.ElectionEvent;
 import github.abendt.highlander.ElectionListener;
+import github.abendt.highlander.jmx.JmxElectionMetrics;
+import github.abendt.highlander.memory.InMemoryElectionStore;
+import org.h2.jdbcx.JdbcDataSource;
 import org.junit.After;
 import org.junit.Before;
 import org.junit.Rule;
 import org.junit.Test;
+import org.slf4j.LoggerFactory;
 
-import java.util.HashMap;
+import javax.management.MBeanServer;
+import javax.management.MBeanServerFactory;
+import javax.management.ObjectName;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.SQLNonTransientConnectionException;
+import java.sql.SQLTimeoutException;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.Map;
-import java.util.concurrent.Callable;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicBoolean;
 
 import static com.jayway.awaitility.Awaitility.await;
 import static org.fest.assertions.api.Assertions.assertThat;
+import static org.fest.assertions.api.Assertions.fail;
 
 public class HighlanderTest {
 
@@ -33,7 +52,7 @@ public class HighlanderTest {
         }
     }
 
-    private final Map<Highlander, Boolean> highlanderLeaderMap = new HashMap();
+    private final Map<Highlander, Boolean> highlanderLeaderMap = new ConcurrentHashMap<Highlander, Boolean>();
 
     private Highlander newHighlander() {
         Highlander highlander = new Highlander(database.getDataSource(), uniqueGroupName);
@@ -61,6 +80,71 @@ public class HighlanderTest {
         assertThat(highlanderLeaderMap.get(highlander)).isTrue();
     }
 
+    @Test
+    public void leaderKnowsItIsLeaderWithoutElection() throws Exception {
+        Highlander highlander1 = newHighlander();
+        Highlander highlander2 = newHighlander();
+
+        assertThat(highlander1.isLeader()).isFalse();
+
+        highlander1.runElection();
+        highlander2.runElection();
+
+        assertThat(highlander1.isLeader()).isTrue();
+        assertThat(highlander2.isLeader()).isFalse();
+
+        highlander1.release();
+
+        assertThat(highlander1.isLeader()).isFalse();
+    }
+
+    @Test
+    public void listenerIsOnlyCalledWhenLeadershipChanges() throws Exception {
+        final List<ElectionEvent> events = new ArrayList<ElectionEvent>();
+
+        Highlander highlander1 = newHighlander();
+        Highlander highlander2 = newHighlander();
+        highlander2.setListener(new ElectionListener() {
+            @Override
+            public void groupChanged(boolean leader) {
+            }
+
+            @Override
+            public void electionChanged(ElectionEvent event) {
+                events.add(event);
+            }
+        });
+
+        highlander1.runElection();
+        highlander2.runElection();
+        highlander2.runElection();
+        highlander1.release();
+        highlander2.runElection();
+        highlander2.runElection();
+
+        assertThat(events).hasSize(2);
+        assertThat(events.get(0).isLeader()).isFalse();
+        assertThat(events.get(1).isLeader()).isTrue();
+        assertThat(events.get(1).getGroupName()).isEqualTo(uniqueGroupName);
+        assertThat(events.get(1).getVersion()).isGreaterThan(events.get(0).getVersion());
+    }
+
+    @Test
+    public void listenerCanBeCalledOnListenerExecutor() {
+        ExecutorService listenerExecutor = Executors.newSingleThreadExecutor();
+
+        try {
+            Highlander highlander = newHighlander();
+            highlander.setListenerExecutor(listenerExecutor);
+
+            highlander.runElection();
+
+            await().until(highlanderIsElected(highlander));
+        } finally {
+            listenerExecutor.shutdownNow();
+        }
+    }
+
     @Test
     public void secondHighlanderTakesOverIfFirstOneIsNotAlive() {
         final Highlander highlander1 = newHighlander();
@@ -88,6 +172,591 @@ public class HighlanderTest {
         await().until(highlanderIsElected(highlander2));
     }
 
+    @Test
+    public void highlanderCanRunOnSuppliedExecutors() {
+        ScheduledExecutorService scheduler = Executors.newSingleThreadScheduledExecutor();
+        ExecutorService electionExecutor = Executors.newCachedThreadPool();
+
+        try {
+            Highlander highlander = newHighlander();
+            highlander.setScheduler(scheduler);
+            highlander.setElectionExecutor(electionExecutor);
+
+            highlander.start();
+
+            await().until(highlanderIsElected(highlander));
+        } finally {
+            scheduler.shutdownNow();
+            electionExecutor.shutdownNow();
+        }
+    }
+
+    @Test
+    public void adaptiveFollowerTakesOverIfLeaderIsStopped() {
+        final Highlander highlander1 = newHighlander();
+        final Highlander highlander2 = newHighlander();
+        highlander2.setAdaptiveFollowerPolling(true);
+
+        highlander1.runElection();
+        highlander2.runElection();
+
+        highlander2.start();
+        highlander1.stop();
+
+        await().until(highlanderIsElected(highlander2));
+    }
+
+    @Test
+    public void adaptiveFollowerOnlyProbesWhileLeaseIsValid() throws Exception {
+        Highlander highlander1 = newHighlander();
+        Highlander highlander2 = newHighlander();
+        highlander2.setAdaptiveFollowerPolling(true);
+
+        highlander1.runElection();
+        highlander2.runElection();
+
+        assertThat(highlander2.probeLeaseAsFollower()).isPositive();
+        assertThat(highlander1.probeLeaseAsFollower()).isEqualTo(0);
+    }
+
+    @Test
+    public void adaptiveFollowerNoticesReleaseOfLeaderInOtherProcessWithinInterval() throws Exception {
+        // the leader is not started, so it is unknown to the followers in this JVM like one in another process
+        Highlander highlander1 = newHighlander();
+        Highlander highlander2 = newHighlander();
+        highlander1.setHeartBeatFactor(100);
+        highlander2.setHeartBeatFactor(100);
+        highlander2.setHeartBeatInterval(50);
+        highlander2.setAdaptiveFollowerPolling(true);
+        highlander2.setHandoffPollInterval(50);
+
+        highlander1.runElection();
+        highlander2.runElection();
+
+        highlander2.start();
+        // let the follower probe the valid lease and defer its next probe
+        Thread.sleep(200);
+        highlander1.release();
+
+        await().atMost(1, TimeUnit.SECONDS).until(highlanderIsElected(highlander2));
+    }
+
+    @Test
+    public void adaptiveFollowerWaitsForLeaseOfLeaderInOtherProcessByDefault() throws Exception {
+        Highlander highlander1 = newHighlander();
+        Highlander highlander2 = newHighlander();
+        highlander1.setHeartBeatFactor(100);
+        highlander2.setHeartBeatFactor(100);
+        highlander2.setHeartBeatInterval(50);
+        highlander2.setAdaptiveFollowerPolling(true);
+
+        highlander1.runElection();
+        highlander2.runElection();
+
+        highlander2.start();
+        Thread.sleep(200);
+        highlander1.release();
+        Thread.sleep(500);
+
+        assertThat(highlander2.isLeader()).isFalse();
+    }
+
+    @Test
+    public void followerIsWokenByHandoffFeedWhenLeaderInOtherProcessIsStopped() throws Exception {
+        JdbcLeadershipFeed feed = new JdbcLeadershipFeed(database.getDataSource());
+        feed.setPollInterval(50);
+        Highlander highlander1 = newHighlander();
+        Highlander highlander2 = newHighlander();
+        highlander1.setRecordChanges(true);
+        highlander2.setRecordChanges(true);
+        highlander1.setHeartBeatFactor(100);
+        highlander2.setHeartBeatFactor(100);
+        highlander2.setHeartBeatInterval(50);
+        highlander2.setAdaptiveFollowerPolling(true);
+        highlander2.setHandoffFeed(feed);
+
+        highlander1.runElection();
+        highlander2.runElection();
+
+        feed.start();
+        try {
+            highlander2.start();
+            // let the follower probe the valid lease and defer its next probe
+            Thread.sleep(200);
+            highlander1.release();
+
+            await().atMost(1, TimeUnit.SECONDS).until(highlanderIsElected(highlander2));
+        } finally {
+            feed.stop();
+        }
+    }
+
+    @Test
+    public void followerInSameJvmTakesOverImmediatelyIfLeaderIsStopped() {
+        final Highlander highlander1 = newHighlander();
+        final Highlander highlander2 = newHighlander();
+        highlander2.heartBeatInterval = 60000;
+
+        highlander1.runElection();
+        highlander2.runElection();
+
+        highlander1.start();
+        highlander2.start();
+        highlander1.stop();
+
+        await().atMost(1, TimeUnit.SECONDS).until(highlanderIsElected(highlander2));
+    }
+
+    @Test
+    public void leaderCanHandOverToSuccessorWhenStopped() {
+        final Highlander highlander1 = newHighlander();
+        final Highlander highlander2 = newHighlander();
+        final Highlander highlander3 = newHighlander();
+
+        highlander1.runElection();
+        highlander2.runElection();
+        highlander3.runElection();
+
+        highlander2.start();
+        highlander3.start();
+        highlander1.stop(highlander3.getParticipantId());
+
+        await().until(highlanderIsElected(highlander3));
+
+        assertThat(highlanderLeaderMap.get(highlander2)).isFalse();
+    }
+
+    @Test
+    public void canRunAsyncElection() throws Exception {
+        Highlander highlander = newHighlander();
+
+        assertThat(highlander.electAsync().get()).isTrue();
+        assertThat(highlanderLeaderMap.get(highlander)).isTrue();
+    }
+
+    @Test
+    public void concurrentAsyncElectionsAreMerged() throws Exception {
+        final List<Runnable> submittedElections = new ArrayList<Runnable>();
+
+        Highlander highlander = newHighlander();
+        highlander.setElectionExecutor(new Executor() {
+            @Override
+            public void execute(Runnable command) {
+                submittedElections.add(command);
+            }
+        });
+
+        CompletableFuture<Boolean> election1 = highlander.electAsync();
+        CompletableFuture<Boolean> election2 = highlander.electAsync();
+
+        assertThat(submittedElections).hasSize(1);
+
+        submittedElections.get(0).run();
+
+        assertThat(election1.get()).isTrue();
+        assertThat(election2.get()).isTrue();
+
+        highlander.electAsync();
+
+        assertThat(submittedElections).hasSize(2);
+    }
+
+    @Test
+    public void canReleaseLeadershipAsync() throws Exception {
+        Highlander highlander1 = newHighlander();
+        Highlander highlander2 = newHighlander();
+
+        highlander1.runElection();
+        highlander1.releaseAsync().get();
+
+        assertThat(highlanderLeaderMap.get(highlander1)).isFalse();
+        assertThat(highlander2.electAsync().get()).isTrue();
+    }
+
+    @Test
+    public void pinnedHighlanderReconnectsWhenConnectionBreaks() throws Exception {
+        Highlander highlander = newHighlander();
+        highlander.setPinnedConnection(true);
+
+        highlander.runElection();
+        highlander.pinnedConnection.get().close();
+
+        assertThat(highlander.elect()).isTrue();
+    }
+
+    @Test
+    public void pinnedHighlanderKeepsConnectionWhenStatementFails() throws Exception {
+        Highlander highlander = newHighlander();
+        highlander.setPinnedConnection(true);
+
+        highlander.runElection();
+        Connection connection = highlander.pinnedConnection.get();
+        connection.createStatement().execute("ALTER TABLE HIGHLANDER RENAME TO HIGHLANDER_MOVED");
+
+        try {
+            highlander.elect();
+            fail("election without table");
+        } catch (RuntimeException e) {
+            assertThat(highlander.pinnedConnection.get()).isSameAs(connection);
+        } finally {
+            connection.createStatement().execute("ALTER TABLE HIGHLANDER_MOVED RENAME TO HIGHLANDER");
+        }
+    }
+
+    @Test
+    public void pinnedHighlanderDoesNotReconnectAfterDeadline() throws Exception {
+        final FaultInjectingDataSource dataSource = new FaultInjectingDataSource(database.getDataSource(), 1);
+        dataSource.setDropRate(1);
+
+        Highlander highlander = new Highlander(dataSource, uniqueGroupName);
+        highlander.setPinnedConnection(true);
+        highlander.setClock(new ElectionClock() {
+            @Override
+            public long currentTimeMillis() {
+                return System.currentTimeMillis();
+            }
+
+            @Override
+            public long nanoTime() {
+                // every statement takes longer than an election may
+                return dataSource.getStatements() * TimeUnit.MINUTES.toNanos(1);
+            }
+        });
+
+        try {
+            highlander.elect();
+            fail("election on dropped connection");
+        } catch (RuntimeException e) {
+            assertThat(e.getCause()).isInstanceOf(SQLNonTransientConnectionException.class);
+        }
+    }
+
+    @Test
+    public void exportsElectionStatisticsAsMBean() throws Exception {
+        MBeanServer mBeanServer = MBeanServerFactory.newMBeanServer();
+        JmxElectionMetrics metrics = new JmxElectionMetrics(mBeanServer);
+
+        Highlander highlander1 = newHighlander();
+        Highlander highlander2 = newHighlander();
+        highlander1.setMetrics(metrics);
+        highlander2.setMetrics(metrics);
+
+        highlander1.elect();
+        highlander1.elect();
+        highlander2.elect();
+
+        ObjectName name = JmxElectionMetrics.objectName(uniqueGroupName);
+
+        assertThat(mBeanServer.getAttribute(name, "Elections")).isEqualTo(3L);
+        assertThat(mBeanServer.getAttribute(name, "FailedElections")).isEqualTo(0L);
+        assertThat(mBeanServer.getAttribute(name, "LeadershipChanges")).isEqualTo(1L);
+        assertThat((Long) mBeanServer.getAttribute(name, "ElectionLatencyMaxMicros")).isGreaterThan(0L);
+
+        highlander1.release();
+
+        assertThat(mBeanServer.getAttribute(name, "LeadershipChanges")).isEqualTo(2L);
+        assertThat(mBeanServer.getAttribute(name, "Leader")).isEqualTo(false);
+
+        metrics.close();
+
+        assertThat(mBeanServer.isRegistered(name)).isFalse();
+    }
+
+    @Test
+    public void lastStoppedParticipantUnregistersMBean() throws Exception {
+        MBeanServer mBeanServer = MBeanServerFactory.newMBeanServer();
+        JmxElectionMetrics metrics = new JmxElectionMetrics(mBeanServer);
+        ObjectName name = JmxElectionMetrics.objectName(uniqueGroupName);
+
+        Highlander highlander1 = newHighlander();
+        Highlander highlander2 = newHighlander();
+        highlander1.setMetrics(metrics);
+        highlander2.setMetrics(metrics);
+
+        highlander1.start();
+        highlander2.start();
+        highlander1.stop();
+
+        assertThat(mBeanServer.isRegistered(name)).isTrue();
+
+        highlander2.stop();
+
+        assertThat(mBeanServer.isRegistered(name)).isFalse();
+    }
+
+    @Test
+    public void canRunElectionsInMemory() throws Exception {
+        InMemoryElectionStore store = new InMemoryElectionStore();
+
+        Highlander highlander1 = new Highlander(store, uniqueGroupName);
+        Highlander highlander2 = new Highlander(store, uniqueGroupName);
+        addListener(highlander1);
+        addListener(highlander2);
+
+        assertThat(highlander1.elect()).isTrue();
+        assertThat(highlander2.elect()).isFalse();
+        assertThat(highlander1.isLeader()).isTrue();
+
+        highlander1.stop();
+
+        assertThat(highlanderLeaderMap.get(highlander1)).isFalse();
+        assertThat(highlander2.elect()).isTrue();
+    }
+
+    @Test
+    public void leaderGivesUpWhenRenewalIsNotConfirmedBeforeLeaseRunsOut() throws Exception {
+        final AtomicBoolean stalled = new AtomicBoolean();
+
+        JdbcDataSource dataSource = new JdbcDataSource() {
+            @Override
+            public Connection getConnection() throws SQLException {
+                if (stalled.get()) {
+                    try {
+                        // longer than the lease
+                        Thread.sleep(3100);
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                    }
+                }
+                return super.getConnection();
+            }
+        };
+        dataSource.setURL("jdbc:h2:mem:highlander");
+        dataSource.setUser("sa");
+
+        Highlander highlander = new Highlander(dataSource, uniqueGroupName);
+        addListener(highlander);
+
+        assertThat(highlander.elect()).isTrue();
+
+        stalled.set(true);
+
+        try {
+            highlander.elect();
+            fail("renewal after the end of the lease");
+        } catch (RuntimeException e) {
+            assertThat(e.getCause()).isInstanceOf(SQLTimeoutException.class);
+        } finally {
+            stalled.set(false);
+        }
+
+        assertThat(highlanderLeaderMap.get(highlander)).isFalse();
+        assertThat(highlander.isLeader()).isFalse();
+    }
+
+    @Test
+    public void adaptiveIntervalFollowsFastDatabaseDownToMinimum() throws Exception {
+        Highlander highlander = newHighlander();
+        highlander.setConfig(HighlanderConfig.builder()
+                .heartBeatInterval(120)
+                .heartBeatFactor(3)
+                .heartBeatJitter(10)
+                .adaptive(50, 120)
+                .latencyMultiple(2)
+                .adaptationWindow(5)
+                .build());
+
+        assertThat(highlander.getHeartBeatInterval()).isEqualTo(120);
+
+        for (int i = 0; i < 5; ++i) {
+            highlander.elect();
+        }
+
+        assertThat(highlander.getHeartBeatInterval()).isEqualTo(50);
+        // the lease a leader relies on does not depend on the interval of the other participants
+        assertThat(highlander.leaseRemainingNanos()).isLessThanOrEqualTo(TimeUnit.MILLISECONDS.toNanos(150));
+    }
+
+    @Test
+    public void adaptiveIntervalBacksOffFromSlowDatabase() throws Exception {
+        JdbcDataSource dataSource = new JdbcDataSource() {
+            @Override
+            public Connection getConnection() throws SQLException {
+                try {
+                    Thread.sleep(30);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+                return super.getConnection();
+            }
+        };
+        dataSource.setURL("jdbc:h2:mem:highlander");
+        dataSource.setUser("sa");
+
+        Highlander highlander = new Highlander(dataSource, uniqueGroupName);
+        addListener(highlander);
+        highlander.setConfig(HighlanderConfig.builder()
+                .heartBeatInterval(100)
+                .heartBeatFactor(3)
+                .heartBeatJitter(10)
+                .adaptive(100, 250)
+                .adaptationWindow(3)
+                .build());
+
+        for (int i = 0; i < 3; ++i) {
+            highlander.elect();
+        }
+
+        assertThat(highlander.getHeartBeatInterval()).isEqualTo(250);
+        assertThat(highlander.isLeader()).isTrue();
+    }
+
+    @Test
+    public void fastStartElectsBeforeStartReturns() {
+        Highlander highlander = newHighlander();
+        highlander.setConditionalWrite(true);
+        highlander.setPinnedConnection(true);
+        highlander.setFastStart(true);
+
+        highlander.start();
+
+        assertThat(highlander.isLeader()).isTrue();
+        assertThat(highlanderLeaderMap.get(highlander)).isTrue();
+    }
+
+    @Test
+    public void stopBeforePendingStartRunsLeavesGroupWithoutLeader() throws Exception {
+        ch.qos.logback.classic.Logger logger = (ch.qos.logback.classic.Logger) LoggerFactory.getLogger(Highlander.class);
+        ListAppender<ILoggingEvent> warnings = new ListAppender<ILoggingEvent>() {
+            @Override
+            protected void append(ILoggingEvent event) {
+                if (event.getLevel().isGreaterOrEqual(Level.WARN) && event.getFormattedMessage().contains("'" + uniqueGroupName + "'")) {
+                    super.append(event);
+                }
+            }
+        };
+        warnings.start();
+        logger.addAppender(warnings);
+
+        final CountDownLatch blocked = new CountDownLatch(1);
+        ExecutorService electionExecutor = Executors.newSingleThreadExecutor();
+
+        try {
+            electionExecutor.execute(new Runnable() {
+                @Override
+                public void run() {
+                    try {
+                        blocked.await();
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                    }
+                }
+            });
+
+            Highlander highlander = newHighlander();
+            highlander.setElectionExecutor(electionExecutor);
+
+            CompletableFuture<Boolean> started = highlander.startAsync();
+            highlander.stop();
+            blocked.countDown();
+
+            assertThat(started.get(5, TimeUnit.SECONDS)).isFalse();
+            assertThat(highlander.isLeader()).isFalse();
+            assertThat(newHighlander().elect()).isTrue();
+            // giving up a group that has no row yet is not a failure
+            assertThat(warnings.list).isEmpty();
+        } finally {
+            electionExecutor.shutdown();
+            logger.detachAppender(warnings);
+        }
+    }
+
+    @Test
+    public void startingTwiceLeavesNoHeartBeatRunningAfterStop() throws Exception {
+        Highlander highlander = newHighlander();
+        highlander.setHeartBeatInterval(50);
+
+        highlander.start();
+        highlander.start();
+        await().until(highlanderIsElected(highlander));
+
+        highlander.stop();
+        // several heartbeat intervals, a heartbeat left over would renew the leadership
+        Thread.sleep(300);
+
+        assertThat(highlander.isLeader()).isFalse();
+        assertThat(newHighlander().elect()).isTrue();
+    }
+
+    @Test
+    public void startAsyncStartsHeartBeatDespiteElectionInFlight() throws Exception {
+        final CountDownLatch electionInFlight = new CountDownLatch(1);
+        final CountDownLatch startRequested = new CountDownLatch(1);
+
+        JdbcDataSource dataSource = new JdbcDataSource() {
+            @Override
+            public Connection getConnection() throws SQLException {
+                if (electionInFlight.getCount() > 0) {
+                    electionInFlight.countDown();
+
+                    try {
+                        startRequested.await();
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                    }
+                }
+                return super.getConnection();
+            }
+        };
+        dataSource.setURL("jdbc:h2:mem:highlander");
+        dataSource.setUser("sa");
+
+        ExecutorService electionExecutor = Executors.newFixedThreadPool(2);
+
+        try {
+            Highlander highlander = new Highlander(dataSource, uniqueGroupName);
+            addListener(highlander);
+            highlander.setHeartBeatInterval(50);
+            highlander.setElectionExecutor(electionExecutor);
+
+            CompletableFuture<Boolean> elected = highlander.electAsync();
+            assertThat(electionInFlight.await(5, TimeUnit.SECONDS)).isTrue();
+
+            CompletableFuture<Boolean> started = highlander.startAsync();
+            startRequested.countDown();
+
+            assertThat(elected.get(5, TimeUnit.SECONDS)).isTrue();
+            assertThat(started.get(5, TimeUnit.SECONDS)).isTrue();
+
+            // longer than the lease, only the heartbeat keeps it
+            Thread.sleep(400);
+
+            assertThat(highlander.isLeader()).isTrue();
+        } finally {
+            electionExecutor.shutdown();
+        }
+    }
+
+    @Test
+    public void startsManyGroupsInParallel() throws Exception {
+        ExecutorService electionExecutor = Executors.newFixedThreadPool(8);
+        List<Highlander> highlanders = new ArrayList<Highlander>();
+        List<CompletableFuture<Boolean>> started = new ArrayList<CompletableFuture<Boolean>>();
+
+        try {
+            for (int i = 0; i < 20; ++i) {
+                Highlander highlander = new Highlander(database.getDataSource(), uniqueGroupName + "-" + i);
+                addListener(highlander);
+                highlander.setConditionalWrite(true);
+                highlander.setElectionExecutor(electionExecutor);
+                highlanders.add(highlander);
+                started.add(highlander.startAsync());
+            }
+
+            CompletableFuture.allOf(started.toArray(new CompletableFuture[started.size()])).get(5, TimeUnit.SECONDS);
+
+            for (int i = 0; i < highlanders.size(); ++i) {
+                assertThat(started.get(i).get()).isTrue();
+                assertThat(highlanders.get(i).isLeader()).isTrue();
+            }
+        } finally {
+            for (Highlander highlander : highlanders) {
+                highlander.stop();
+            }
+            electionExecutor.shutdown();
+        }
+    }
+
     private Callable<Boolean> highlanderIsElected(final Highlander highlander) {
         return new Callable<Boolean>() {
             @Override
@@ -96,4 +765,4 @@ public class HighlanderTest {
             }
         };
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,56 @@
+package github.abendt.highlander.jdbc;
+
+import github.abendt.highlander.ElectionEvent;
+import github.abendt.highlander.Lease;
+import github.abendt.highlander.StoreElection;
+import org.junit.Rule;
+import org.junit.Test;
+
+import static org.fest.assertions.api.Assertions.assertThat;
+
+public class JdbcElectionStoreTest {
+
+    @Rule
+    public final HighlanderInMemoryDbRule database = new HighlanderInMemoryDbRule();
+
+    @Test
+    public void storeOnDataSourceRunsElections() {
+        JdbcElectionStore store = new JdbcElectionStore(database.getDataSource());
+        StoreElection election1 = new StoreElection(store, "Group");
+        StoreElection election2 = new StoreElection(store, "Group");
+
+        assertThat(election1.runElection()).isTrue();
+        assertThat(election2.runElection()).isFalse();
+        assertThat(election1.runElection()).isTrue();
+
+        election1.giveUpLeaderShip();
+
+        assertThat(election2.runElection()).isTrue();
+        assertThat(store.load("Group").getLeaderId()).isEqualTo(election2.getParticipantId());
+    }
+
+    @Test
+    public void leaseIsOnlyChangedWithItsVersion() {
+        JdbcElectionStore store = new JdbcElectionStore(database.getDataSource());
+        long now = System.currentTimeMillis();
+
+        Lease claimed = store.claim("Group", "Leader", now, 10000);
+        Lease renewed = store.renew(claimed, now + 1);
+
+        assertThat(renewed.getVersion()).isEqualTo(claimed.getVersion() + 1);
+        assertThat(store.renew("Group", "Leader", claimed.getVersion(), now + 2)).isEqualTo(ElectionEvent.UNKNOWN_VERSION);
+        assertThat(store.release(claimed, null, now + 2).getLeaderId()).isEqualTo("Leader");
+        assertThat(store.release(renewed, null, now + 2).getLeaderId()).isNull();
+    }
+
+    @Test
+    public void claimInConditionalWriteModeReportsLeader() {
+        JdbcElectionStore store = new JdbcElectionStore(database.getDataSource());
+        store.setConditionalWrite(true);
+        long now = System.currentTimeMillis();
+
+        assertThat(store.claim("Group", "Leader", now, 10000).isHeldBy("Leader")).isTrue();
+        assertThat(store.claim("Group", "Follower", now, 10000).isHeldBy("Leader")).isTrue();
+        assertThat(store.claim("Group", "Follower", now + 20000, 10000).isHeldBy("Follower")).isTrue();
+    }
+}
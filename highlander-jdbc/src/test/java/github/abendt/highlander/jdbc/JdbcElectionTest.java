@@ -1,16 +1,29 @@
 package github.abendt.highlander.jdbc;
 
+import ch.qos.logback.classic.Level;
+import github.abendt.highlander.ElectionClock;
 import org.junit.Rule;
 import org.junit.Test;
-
-import java.sql.SQLException;
+import org.slf4j.LoggerFactory;
+
+import java.lang.management.ManagementFactory;
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.*;
 import java.util.ArrayList;
 import java.util.Calendar;
 import java.util.Date;
 import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
 
 import static org.fest.assertions.api.Assertions.assertThat;
 import static org.fest.assertions.api.Assertions.contentOf;
+import static org.fest.assertions.api.Assertions.fail;
 
 public class JdbcElectionTest {
 
@@ -123,6 +136,514 @@ public class JdbcElectionTest {
         }
     }
 
+    @Test
+    public void conditionalElectionWinsOnEmptyDatabase() {
+        JdbcElection election = newConditionalElection("Group");
+
+        assertThat(election.runElection(database.getConnection())).isTrue();
+        assertThat(election.runElection(database.getConnection())).isTrue();
+    }
+
+    @Test
+    public void withConditionalElectionSecondOneLooses() {
+        JdbcElection election1 = newConditionalElection("Group");
+        JdbcElection election2 = newConditionalElection("Group");
+
+        assertThat(election1.runElection(database.getConnection())).isTrue();
+        assertThat(election2.runElection(database.getConnection())).isFalse();
+        assertThat(election2.runElection(database.getConnection())).isFalse();
+    }
+
+    @Test
+    public void conditionalElectionUpdatesHeartBeatOfLeader() throws Exception {
+        JdbcElection election = newConditionalElection("Group");
+
+        election.runElection(database.getConnection());
+
+        Date firstHeartBeat = database.getHeartBean("Group");
+
+        Thread.sleep(5);
+        election.runElection(database.getConnection());
+
+        assertThat(database.getHeartBean("Group")).isAfter(firstHeartBeat);
+    }
+
+    @Test
+    public void conditionalElectionWinsWhenPreviousLeaderIsNull() throws SQLException {
+        database.insertElection("Group", null, null);
+
+        assertThat(newConditionalElection("Group").runElection(database.getConnection())).isTrue();
+    }
+
+    @Test
+    public void conditionalElectionWinsWhenPreviousHeartBeatIsTooOld() throws SQLException {
+        Calendar cal = Calendar.getInstance();
+        cal.add(Calendar.HOUR, -1);
+
+        database.insertElection("Group", "SomeOne", cal.getTime());
+
+        assertThat(newConditionalElection("Group").runElection(database.getConnection())).isTrue();
+    }
+
+    @Test
+    public void conditionalElectionCanGiveUpLeadership() {
+        JdbcElection election1 = newConditionalElection("Group");
+        JdbcElection election2 = newConditionalElection("Group");
+
+        election1.runElection(database.getConnection());
+        election2.runElection(database.getConnection());
+        election1.giveUpLeaderShip(database.getConnection());
+
+        assertThat(election2.runElection(database.getConnection())).isTrue();
+        assertThat(election1.runElection(database.getConnection())).isFalse();
+    }
+
+    @Test
+    public void cachedStatementsAreReusedOnSameConnection() throws SQLException {
+        JdbcElection election = new JdbcElection("Group");
+        election.setCacheStatements(true);
+
+        AtomicInteger prepared = new AtomicInteger();
+        Connection connection = countingPrepares(database.getConnection(), prepared);
+
+        // the first elections insert the group and prepare every statement of a renewal
+        election.runElection(connection);
+        election.runElection(connection);
+        int preparedBeforeRenewals = prepared.get();
+
+        assertThat(election.runElection(connection)).isTrue();
+        assertThat(election.runElection(connection)).isTrue();
+
+        assertThat(preparedBeforeRenewals).isPositive();
+        assertThat(prepared.get()).isEqualTo(preparedBeforeRenewals);
+    }
+
+    @Test
+    public void cachedStatementsArePreparedAgainOnNewConnection() throws SQLException {
+        JdbcElection election = new JdbcElection("Group");
+        election.setCacheStatements(true);
+
+        Connection connection = database.getConnection();
+        election.runElection(connection);
+        connection.close();
+
+        AtomicInteger prepared = new AtomicInteger();
+
+        assertThat(election.runElection(countingPrepares(database.getConnection(), prepared))).isTrue();
+        assertThat(prepared.get()).isPositive();
+    }
+
+    @Test
+    public void groupNameIsNotInterpretedAsSql() {
+        JdbcElection election1 = new JdbcElection("Group' OR '1'='1");
+        JdbcElection election2 = new JdbcElection("Group");
+
+        assertThat(election2.runElection(database.getConnection())).isTrue();
+        assertThat(election1.runElection(database.getConnection())).isTrue();
+    }
+
+    @Test
+    public void conditionalElectionKnowsVersionOfItsLeadership() {
+        JdbcElection election = newConditionalElection("Group");
+        JdbcElection observer = new JdbcElection("Group");
+
+        election.runElection(database.getConnection());
+        election.runElection(database.getConnection());
+        election.runElection(database.getConnection());
+
+        observer.runElection(database.getConnection());
+
+        assertThat(election.getLeaderId()).isEqualTo(election.getParticipantId());
+        assertThat(observer.getLeaderId()).isEqualTo(election.getParticipantId());
+        assertThat(election.getVersion()).isEqualTo(observer.getVersion());
+    }
+
+    @Test
+    public void probeReportsRemainingLeaseOfLeader() {
+        JdbcElection election1 = new JdbcElection("Group");
+        JdbcElection election2 = new JdbcElection("Group");
+        election2.setMaxHeartBeatAge(5000);
+
+        election1.runElection(database.getConnection());
+
+        assertThat(election2.probeLease(database.getConnection())).isGreaterThan(4000).isLessThanOrEqualTo(5000);
+    }
+
+    @Test
+    public void probeReportsNoLeaseWhenLeadershipWasGivenUp() {
+        JdbcElection election1 = new JdbcElection("Group");
+        JdbcElection election2 = new JdbcElection("Group");
+
+        election1.runElection(database.getConnection());
+        election1.giveUpLeaderShip(database.getConnection());
+
+        assertThat(election2.probeLease(database.getConnection())).isLessThanOrEqualTo(0);
+    }
+
+    @Test
+    public void probeReportsNoLeaseWhenHeartBeatIsTooOld() throws SQLException {
+        Calendar cal = Calendar.getInstance();
+        cal.add(Calendar.HOUR, -1);
+
+        database.insertElection("Group", "SomeOne", cal.getTime());
+
+        assertThat(new JdbcElection("Group").probeLease(database.getConnection())).isLessThanOrEqualTo(0);
+        assertThat(new JdbcElection("OtherGroup").probeLease(database.getConnection())).isLessThanOrEqualTo(0);
+    }
+
+    @Test
+    public void leaderCanHandOverToSuccessor() {
+        JdbcElection election1 = new JdbcElection("Group");
+        JdbcElection election2 = new JdbcElection("Group");
+        JdbcElection election3 = newConditionalElection("Group");
+
+        election1.runElection(database.getConnection());
+        election2.runElection(database.getConnection());
+
+        assertThat(election1.handOverLeaderShip(database.getConnection(), election3.getParticipantId())).isTrue();
+
+        assertThat(election3.probeLease(database.getConnection())).isEqualTo(0);
+        assertThat(election2.runElection(database.getConnection())).isFalse();
+        assertThat(election3.runElection(database.getConnection())).isTrue();
+        assertThat(election1.runElection(database.getConnection())).isFalse();
+    }
+
+    @Test
+    public void followerCannotHandOverLeadership() {
+        JdbcElection election1 = new JdbcElection("Group");
+        JdbcElection election2 = new JdbcElection("Group");
+
+        election1.runElection(database.getConnection());
+        election2.runElection(database.getConnection());
+
+        assertThat(election2.handOverLeaderShip(database.getConnection(), election2.getParticipantId())).isFalse();
+        assertThat(election1.runElection(database.getConnection())).isTrue();
+    }
+
+    @Test
+    public void conditionalRenewalTakesOneRoundTrip() {
+        JdbcElection election = newConditionalElection("Group");
+
+        election.runElection(database.getConnection());
+        election.runElection(database.getConnection());
+
+        assertThat(election.getRoundTrips()).isEqualTo(1);
+        assertThat(election.getVersionConflicts()).isEqualTo(0);
+    }
+
+    @Test
+    public void renewalAfterLapsedLeaseReadsVersionOfNewClaim() throws Exception {
+        JdbcElection election = newConditionalElection("Group");
+        JdbcElection other = newConditionalElection("Group");
+        JdbcElection observer = new JdbcElection("Group");
+        election.setMaxHeartBeatAge(50);
+        other.setMaxHeartBeatAge(50);
+
+        assertThat(election.runElection(database.getConnection())).isTrue();
+        Thread.sleep(60);
+
+        // the group changes hands twice while the leader does not renew
+        assertThat(other.runElection(database.getConnection())).isTrue();
+        other.giveUpLeaderShip(database.getConnection());
+
+        assertThat(election.runElection(database.getConnection())).isTrue();
+        assertThat(election.getVersionConflicts()).isEqualTo(1);
+
+        observer.runElection(database.getConnection());
+        assertThat(observer.getLeaderId()).isEqualTo(election.getParticipantId());
+        assertThat(election.getVersion()).isEqualTo(observer.getVersion());
+    }
+
+    @Test
+    public void followerOfConditionalElectionTakesOneRoundTrip() {
+        JdbcElection election1 = newConditionalElection("Group");
+        JdbcElection election2 = newConditionalElection("Group");
+
+        election1.runElection(database.getConnection());
+        election2.runElection(database.getConnection());
+        election2.runElection(database.getConnection());
+
+        assertThat(election2.getRoundTrips()).isEqualTo(1);
+    }
+
+    @Test
+    public void warmedUpParticipantsClaimWithoutInsertRace() {
+        JdbcElection election1 = newConditionalElection("Group");
+        JdbcElection election2 = newConditionalElection("Group");
+
+        election1.warmUp(database.getConnection());
+        election2.warmUp(database.getConnection());
+
+        assertThat(election1.runElection(database.getConnection())).isTrue();
+        assertThat(election2.runElection(database.getConnection())).isFalse();
+        // the claim decides, the leader reads the version it wrote
+        assertThat(election1.getRoundTrips()).isEqualTo(2);
+        assertThat(election2.getLeaderId()).isEqualTo(election1.getParticipantId());
+    }
+
+    @Test
+    public void warmUpKeepsExistingLeader() {
+        JdbcElection election1 = new JdbcElection("Group");
+        JdbcElection election2 = new JdbcElection("Group");
+
+        election1.runElection(database.getConnection());
+        election2.warmUp(database.getConnection());
+
+        assertThat(election2.runElection(database.getConnection())).isFalse();
+        assertThat(election1.runElection(database.getConnection())).isTrue();
+    }
+
+    @Test
+    public void conditionalElectionInsertsDeletedRowAgain() throws Exception {
+        JdbcElection leader = newConditionalElection("Group");
+        JdbcElection follower = newConditionalElection("Group");
+
+        assertThat(leader.runElection(database.getConnection())).isTrue();
+        assertThat(follower.runElection(database.getConnection())).isFalse();
+
+        database.getConnection().createStatement().executeUpdate("DELETE FROM HIGHLANDER");
+
+        assertThat(leader.runElection(database.getConnection())).isTrue();
+        assertThat(database.getHeartBean("Group")).isNotNull();
+    }
+
+    @Test
+    public void followerInsertsDeletedRowOnceLeaderShouldHaveRenewed() throws Exception {
+        JdbcElection leader = newConditionalElection("Group");
+        JdbcElection follower = newConditionalElection("Group");
+        follower.setMaxHeartBeatAge(50);
+
+        assertThat(leader.runElection(database.getConnection())).isTrue();
+        assertThat(follower.runElection(database.getConnection())).isFalse();
+
+        database.getConnection().createStatement().executeUpdate("DELETE FROM HIGHLANDER");
+        Thread.sleep(60);
+
+        assertThat(follower.runElection(database.getConnection())).isTrue();
+    }
+
+    @Test
+    public void electionFailsWhenDeadlinePassed() {
+        JdbcElection election = newConditionalElection("Group");
+
+        election.setDeadline(System.nanoTime() - 1);
+
+        try {
+            election.runElection(database.getConnection());
+            fail("deadline passed");
+        } catch (RuntimeException e) {
+            assertThat(e.getCause()).isInstanceOf(SQLTimeoutException.class);
+        }
+
+        election.setDeadline(System.nanoTime() + TimeUnit.SECONDS.toNanos(1));
+
+        assertThat(election.runElection(database.getConnection())).isTrue();
+    }
+
+    @Test
+    public void queryTimeoutIsRoundedUpToSeconds() throws SQLException {
+        assertThat(JdbcElectionStore.queryTimeoutSeconds(TimeUnit.MILLISECONDS.toNanos(10), 0)).isEqualTo(1);
+        assertThat(JdbcElectionStore.queryTimeoutSeconds(TimeUnit.MILLISECONDS.toNanos(2500), 0)).isEqualTo(3);
+    }
+
+    @Test
+    public void skewedParticipantDoesNotTakeOverWithServerClock() {
+        assertThat(newConditionalElection("Group").runElection(database.getConnection())).isTrue();
+        assertThat(newSkewedElection("Group", false).runElection(database.getConnection())).isTrue();
+
+        JdbcElection leader = newConditionalElection("OtherGroup");
+        leader.setServerClock(true);
+        JdbcElection skewed = newSkewedElection("OtherGroup", true);
+
+        assertThat(leader.runElection(database.getConnection())).isTrue();
+        assertThat(skewed.runElection(database.getConnection())).isFalse();
+        assertThat(skewed.getLeaderId()).isEqualTo(leader.getParticipantId());
+    }
+
+    @Test
+    public void leaderOnLaggingServerClockShortensItsLease() {
+        final AtomicLong nanos = new AtomicLong(TimeUnit.SECONDS.toNanos(1));
+        ElectionClock localClock = new ElectionClock() {
+            @Override
+            public long currentTimeMillis() {
+                return System.currentTimeMillis();
+            }
+
+            @Override
+            public long nanoTime() {
+                return nanos.get();
+            }
+        };
+        long serverTime = System.currentTimeMillis();
+
+        // both measured with a round trip of 100 ms, off by almost their whole uncertainty in opposite directions
+        JdbcElection leader = newElectionOnServerClock(localClock, serverTime - 50);
+        JdbcElection follower = newElectionOnServerClock(localClock, serverTime + 50);
+        long renewalStarted = nanos.get();
+
+        assertThat(leader.runElection(database.getConnection())).isTrue();
+        assertThat(leader.getClockUncertainty()).isEqualTo(51);
+
+        nanos.set(renewalStarted + TimeUnit.MILLISECONDS.toNanos(1000 - leader.getClockUncertainty()));
+        assertThat(follower.runElection(database.getConnection())).isFalse();
+
+        // a leader relying on the whole maximum heartbeat age would still consider itself the leader
+        nanos.set(renewalStarted + TimeUnit.MILLISECONDS.toNanos(1000));
+        assertThat(follower.runElection(database.getConnection())).isTrue();
+    }
+
+    @Test
+    public void conditionalRenewalAllocatesNoMoreThanTheDriver() throws Exception {
+        assertRenewalAllocatesNoMoreThanTheDriver(newConditionalElection("Group"));
+    }
+
+    @Test
+    public void optimisticRenewalAllocatesNoMoreThanTheDriver() throws Exception {
+        assertRenewalAllocatesNoMoreThanTheDriver(new JdbcElection("Group"));
+    }
+
+    /**
+     * Compares the renewals of the given election with the same renewals that the driver runs on a row of its own.
+     */
+    private void assertRenewalAllocatesNoMoreThanTheDriver(final JdbcElection election) throws Exception {
+        final Connection connection = database.getConnection();
+        election.setCacheStatements(true);
+
+        assertThat(election.runElection(connection)).isTrue();
+
+        database.insertElection("DriverGroup", election.getParticipantId(), new Date());
+
+        final PreparedStatement st = connection.prepareStatement(JdbcElectionStore.RENEW_SQL);
+        final Timestamp heartBeat = new Timestamp(0);
+        final AtomicInteger version = new AtomicInteger();
+
+        Callable<Object> driver = new Callable<Object>() {
+            @Override
+            public Object call() throws Exception {
+                heartBeat.setTime(System.currentTimeMillis());
+
+                st.setQueryTimeout(0);
+                st.setTimestamp(1, heartBeat);
+                st.setString(2, "DriverGroup");
+                st.setString(3, election.getParticipantId());
+                st.setInt(4, version.getAndIncrement());
+                return st.executeUpdate();
+            }
+        };
+
+        Callable<Object> renewal = new Callable<Object>() {
+            @Override
+            public Object call() throws Exception {
+                return election.runElection(connection);
+            }
+        };
+
+        assertThat(allocatedBytesBeyondDriver(driver, renewal)).isLessThanOrEqualTo(ALLOCATION_TOLERANCE);
+        assertThat(election.runElection(connection)).isTrue();
+        assertThat(election.getRoundTrips()).isEqualTo(1);
+    }
+
+    private JdbcElection newConditionalElection(String groupName) {
+        JdbcElection election = new JdbcElection(groupName);
+        election.setConditionalWrite(true);
+        return election;
+    }
+
+    /**
+     * @return the connection, counting the statements prepared on it
+     */
+    private static Connection countingPrepares(final Connection connection, final AtomicInteger prepared) {
+        return (Connection) Proxy.newProxyInstance(JdbcElectionTest.class.getClassLoader(), new Class<?>[]{Connection.class}, new InvocationHandler() {
+            @Override
+            public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+                if (method.getName().equals("prepareStatement")) {
+                    prepared.incrementAndGet();
+                }
+
+                try {
+                    return method.invoke(connection, args);
+                } catch (InvocationTargetException e) {
+                    throw e.getCause();
+                }
+            }
+        });
+    }
+
+    private JdbcElection newElectionOnServerClock(ElectionClock localClock, long measuredServerTime) {
+        JdbcElection election = newConditionalElection("Group");
+        election.setMaxHeartBeatAge(1000);
+        election.setClock(localClock);
+        election.setServerClock(true);
+        election.store.serverClock.setResyncInterval(TimeUnit.DAYS.toMillis(1));
+
+        long now = localClock.nanoTime();
+        election.store.serverClock.measured(measuredServerTime, now - TimeUnit.MILLISECONDS.toNanos(50), now + TimeUnit.MILLISECONDS.toNanos(50));
+
+        return election;
+    }
+
+    private JdbcElection newSkewedElection(String groupName, boolean serverClock) {
+        JdbcElection election = newConditionalElection(groupName);
+
+        election.setClock(new ElectionClock() {
+            @Override
+            public long currentTimeMillis() {
+                return System.currentTimeMillis() + TimeUnit.MINUTES.toMillis(1);
+            }
+
+            @Override
+            public long nanoTime() {
+                return System.nanoTime();
+            }
+        });
+        election.setServerClock(serverClock);
+
+        return election;
+    }
+
+    // covers the noise of the measurement, less than a single object per renewal
+    private static final long ALLOCATION_TOLERANCE = 16;
+
+    /**
+     * Compares the bytes the current thread allocates per call, with debug logging turned off. The calls are
+     * measured in alternating rounds after a warm-up, and the least allocating round of each counts.
+     *
+     * @return the bytes the election allocates per call beyond the driver
+     */
+    private static long allocatedBytesBeyondDriver(Callable<?> driver, Callable<?> election) throws Exception {
+        ch.qos.logback.classic.Logger logger = (ch.qos.logback.classic.Logger) LoggerFactory.getLogger(JdbcElectionStore.class);
+        Level level = logger.getLevel();
+
+        logger.setLevel(Level.INFO);
+
+        try {
+            long driverBytes = Long.MAX_VALUE;
+            long electionBytes = Long.MAX_VALUE;
+
+            for (int round = 0; round < 6; ++round) {
+                driverBytes = Math.min(driverBytes, allocatedBytesPerCall(driver));
+                electionBytes = Math.min(electionBytes, allocatedBytesPerCall(election));
+            }
+
+            return electionBytes - driverBytes;
+        } finally {
+            logger.setLevel(level);
+        }
+    }
+
+    private static long allocatedBytesPerCall(Callable<?> call) throws Exception {
+        com.sun.management.ThreadMXBean threads = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+        int calls = 5000;
+
+        long allocated = threads.getThreadAllocatedBytes(Thread.currentThread().getId());
+
+        for (int i = 0; i < calls; ++i) {
+            call.call();
+        }
+
+        return (threads.getThreadAllocatedBytes(Thread.currentThread().getId()) - allocated) / calls;
+    }
+
     List<String> result = new ArrayList();
 
 //    @Test
@@ -157,5 +678,4 @@ public class JdbcElectionTest {
             }
         };
     }
-
 }
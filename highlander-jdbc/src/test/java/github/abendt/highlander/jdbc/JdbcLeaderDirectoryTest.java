@@ -0,0 +1,165 @@
+package github.abendt.highlander.jdbc;
+
+import github.abendt.highlander.ElectionClock;
+import github.abendt.highlander.Leader;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+
+import java.sql.Connection;
+
+import static org.fest.assertions.api.Assertions.assertThat;
+
+public class JdbcLeaderDirectoryTest {
+
+    @Rule
+    public final HighlanderInMemoryDbRule database = new HighlanderInMemoryDbRule();
+
+    private long now = System.currentTimeMillis();
+
+    private final ElectionClock clock = new ElectionClock() {
+        @Override
+        public long currentTimeMillis() {
+            return now;
+        }
+
+        @Override
+        public long nanoTime() {
+            return now * 1000000;
+        }
+    };
+
+    private JdbcLeaderDirectory directory;
+
+    @Before
+    public void setUp() {
+        directory = new JdbcLeaderDirectory(database.getDataSource());
+        directory.setClock(clock);
+        directory.setMaxHeartBeatAge(3000);
+    }
+
+    @Test
+    public void resolvesLeadersOfAllGroupsWithTheirEndpoints() throws Exception {
+        JdbcElection election1 = newElection("Group1", "http://node1");
+        JdbcElection election2 = newElection("Group2", null);
+
+        election1.runElection(database.getConnection());
+        election2.runElection(database.getConnection());
+
+        directory.refresh();
+
+        Leader leader = directory.getLeader("Group1");
+
+        assertThat(leader.getLeaderId()).isEqualTo(election1.getParticipantId());
+        assertThat(leader.getEndpoint()).isEqualTo("http://node1");
+        assertThat(leader.getVersion()).isEqualTo(election1.getVersion());
+
+        assertThat(directory.getLeaderId("Group2")).isEqualTo(election2.getParticipantId());
+        assertThat(directory.getLeader("Group2").getEndpoint()).isNull();
+    }
+
+    @Test
+    public void unknownGroupHasNoLeader() throws Exception {
+        directory.refresh();
+
+        assertThat(directory.getLeader("Group")).isNull();
+    }
+
+    @Test
+    public void entryExpiresWithTheObservedLease() throws Exception {
+        newElection("Group", "http://node1").runElection(database.getConnection());
+
+        directory.refresh();
+
+        now += 2999;
+        assertThat(directory.getLeader("Group")).isNotNull();
+
+        now += 1;
+        assertThat(directory.getLeader("Group")).isNull();
+    }
+
+    @Test
+    public void entryExpiresWithTheLeaseOfTheConfiguration() throws Exception {
+        directory.setConfig(HighlanderConfig.builder()
+                .heartBeatInterval(500)
+                .adaptive(200, 500)
+                .heartBeatJitter(50)
+                .build());
+
+        newElection("Group", "http://node1").runElection(database.getConnection());
+
+        directory.refresh();
+
+        now += 599;
+        assertThat(directory.getLeader("Group")).isNotNull();
+
+        now += 1;
+        assertThat(directory.getLeader("Group")).isNull();
+    }
+
+    @Test
+    public void releasedGroupHasNoLeaderAfterRefresh() throws Exception {
+        JdbcElection election = newElection("Group", "http://node1");
+        Connection connection = database.getConnection();
+
+        election.runElection(connection);
+        directory.refresh();
+
+        election.giveUpLeaderShip(connection);
+
+        assertThat(directory.getLeader("Group")).isNotNull();
+
+        directory.refresh();
+
+        assertThat(directory.getLeader("Group")).isNull();
+    }
+
+    @Test
+    public void successorAdvertisesItsEndpointWhenItClaimsTheGroup() throws Exception {
+        JdbcElection election1 = newElection("Group", "http://node1");
+        JdbcElection election2 = newElection("Group", "http://node2");
+        Connection connection = database.getConnection();
+
+        election1.runElection(connection);
+        election2.runElection(connection);
+
+        election1.handOverLeaderShip(connection, election2.getParticipantId());
+        directory.refresh();
+
+        assertThat(directory.getLeader("Group").getEndpoint()).isNull();
+
+        election2.runElection(connection);
+        directory.refresh();
+
+        assertThat(directory.getLeaderId("Group")).isEqualTo(election2.getParticipantId());
+        assertThat(directory.getLeader("Group").getEndpoint()).isEqualTo("http://node2");
+    }
+
+    @Test
+    public void optimisticElectionAdvertisesEndpoint() throws Exception {
+        JdbcElection election1 = new JdbcElection("Group");
+        JdbcElection election2 = new JdbcElection("Group");
+        election1.setEndpoint("http://node1");
+        election2.setEndpoint("http://node2");
+        Connection connection = database.getConnection();
+
+        election1.runElection(connection);
+        election1.runElection(connection);
+        election1.giveUpLeaderShip(connection);
+        election2.runElection(connection);
+
+        directory.refresh();
+
+        assertThat(directory.getLeaderId("Group")).isEqualTo(election2.getParticipantId());
+        assertThat(directory.getLeader("Group").getEndpoint()).isEqualTo("http://node2");
+    }
+
+    private JdbcElection newElection(String groupName, String endpoint) {
+        JdbcElection election = new JdbcElection(groupName);
+        election.setConditionalWrite(true);
+        election.setMaxHeartBeatAge(3000);
+        election.setEndpoint(endpoint);
+        election.setClock(clock);
+        return election;
+    }
+}
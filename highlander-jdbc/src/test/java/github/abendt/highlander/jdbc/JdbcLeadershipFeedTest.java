@@ -0,0 +1,205 @@
+package github.abendt.highlander.jdbc;
+
+import github.abendt.highlander.LeadershipChange;
+import github.abendt.highlander.LeadershipFeed;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.fest.assertions.api.Assertions.assertThat;
+
+public class JdbcLeadershipFeedTest {
+
+    @Rule
+    public final HighlanderInMemoryDbRule database = new HighlanderInMemoryDbRule();
+
+    private JdbcLeadershipFeed feed;
+    private Connection connection;
+
+    @Before
+    public void setUp() {
+        feed = new JdbcLeadershipFeed(database.getDataSource());
+        connection = database.getConnection();
+    }
+
+    @Test
+    public void publishesChangesOfTheLeader() throws Exception {
+        RecordingSubscriber subscriber = subscribe(Long.MAX_VALUE);
+        JdbcElection election1 = newElection("Group");
+        JdbcElection election2 = newElection("Group");
+
+        election1.runElection(connection);
+        feed.poll();
+
+        election1.giveUpLeaderShip(connection);
+        feed.poll();
+
+        election2.runElection(connection);
+        feed.poll();
+
+        assertThat(subscriber.leaders()).containsExactly(
+                "Group:" + election1.getParticipantId(),
+                "Group:null",
+                "Group:" + election2.getParticipantId());
+    }
+
+    @Test
+    public void renewalsAreNotPublishedNorNumbered() throws Exception {
+        RecordingSubscriber subscriber = subscribe(Long.MAX_VALUE);
+        JdbcElection election = newElection("Group");
+
+        election.runElection(connection);
+        long changeSequence = changeSequence("Group");
+
+        election.runElection(connection);
+        election.runElection(connection);
+        feed.poll();
+
+        assertThat(changeSequence("Group")).isEqualTo(changeSequence);
+        assertThat(subscriber.changes).hasSize(1);
+    }
+
+    @Test
+    public void optimisticElectionsAreNumberedToo() throws Exception {
+        RecordingSubscriber subscriber = subscribe(Long.MAX_VALUE);
+        JdbcElection election1 = new JdbcElection("Group");
+        JdbcElection election2 = new JdbcElection("Group");
+        election1.setRecordChanges(true);
+        election2.setRecordChanges(true);
+
+        election1.runElection(connection);
+        election1.runElection(connection);
+        election1.giveUpLeaderShip(connection);
+        election2.runElection(connection);
+        feed.poll();
+
+        assertThat(subscriber.leaders()).containsExactly("Group:" + election2.getParticipantId());
+    }
+
+    @Test
+    public void deliversNoMoreThanRequested() throws Exception {
+        RecordingSubscriber subscriber = subscribe(1);
+
+        newElection("Group1").runElection(connection);
+        newElection("Group2").runElection(connection);
+        feed.poll();
+
+        assertThat(subscriber.changes).hasSize(1);
+
+        subscriber.subscription.request(1);
+
+        assertThat(subscriber.changes).hasSize(2);
+    }
+
+    @Test
+    public void mergesChangesOfGroupWhileNothingIsRequested() throws Exception {
+        RecordingSubscriber subscriber = subscribe(0);
+        JdbcElection election1 = newElection("Group");
+        JdbcElection election2 = newElection("Group");
+
+        election1.runElection(connection);
+        feed.poll();
+        election1.giveUpLeaderShip(connection);
+        feed.poll();
+        election2.runElection(connection);
+        feed.poll();
+
+        subscriber.subscription.request(10);
+
+        assertThat(subscriber.leaders()).containsExactly("Group:" + election2.getParticipantId());
+    }
+
+    @Test
+    public void lateSubscriberReceivesCurrentLeaders() throws Exception {
+        JdbcElection election = newElection("Group");
+
+        election.runElection(connection);
+        feed.poll();
+
+        RecordingSubscriber subscriber = subscribe(Long.MAX_VALUE);
+
+        assertThat(subscriber.leaders()).containsExactly("Group:" + election.getParticipantId());
+    }
+
+    @Test
+    public void changeCommittedOutOfOrderIsPublished() throws Exception {
+        RecordingSubscriber subscriber = subscribe(Long.MAX_VALUE);
+        JdbcElection election1 = newElection("Group1");
+        JdbcElection election2 = newElection("Group2");
+
+        election1.runElection(connection);
+        election2.runElection(connection);
+
+        // the first change becomes visible only after the second one was seen
+        long hidden = changeSequence("Group1");
+        connection.createStatement().executeUpdate("UPDATE HIGHLANDER SET CHANGESEQ=NULL WHERE GROUPNAME='Group1'");
+        feed.poll();
+        connection.createStatement().executeUpdate("UPDATE HIGHLANDER SET CHANGESEQ=" + hidden + " WHERE GROUPNAME='Group1'");
+        feed.poll();
+
+        assertThat(subscriber.leaders()).containsExactly(
+                "Group2:" + election2.getParticipantId(),
+                "Group1:" + election1.getParticipantId());
+    }
+
+    private JdbcElection newElection(String groupName) {
+        JdbcElection election = new JdbcElection(groupName);
+        election.setConditionalWrite(true);
+        election.setRecordChanges(true);
+        return election;
+    }
+
+    private long changeSequence(String groupName) throws Exception {
+        ResultSet rs = connection.createStatement().executeQuery("SELECT CHANGESEQ FROM HIGHLANDER WHERE GROUPNAME='" + groupName + "'");
+
+        rs.next();
+        return rs.getLong(1);
+    }
+
+    private RecordingSubscriber subscribe(long requested) {
+        RecordingSubscriber subscriber = new RecordingSubscriber();
+        feed.subscribe(subscriber);
+
+        if (requested > 0) {
+            subscriber.subscription.request(requested);
+        }
+
+        return subscriber;
+    }
+
+    private static class RecordingSubscriber implements LeadershipFeed.Subscriber {
+
+        LeadershipFeed.Subscription subscription;
+        final List<LeadershipChange> changes = new ArrayList<LeadershipChange>();
+
+        @Override
+        public void onSubscribe(LeadershipFeed.Subscription subscription) {
+            this.subscription = subscription;
+        }
+
+        @Override
+        public void onChange(LeadershipChange change) {
+            changes.add(change);
+        }
+
+        @Override
+        public void onError(Throwable error) {
+            throw new AssertionError(error);
+        }
+
+        List<String> leaders() {
+            List<String> leaders = new ArrayList<String>();
+
+            for (LeadershipChange change : changes) {
+                leaders.add(change.getGroupName() + ":" + change.getLeaderId());
+            }
+
+            return leaders;
+        }
+    }
+}
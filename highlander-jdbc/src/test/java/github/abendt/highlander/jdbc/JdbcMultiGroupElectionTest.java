@@ -0,0 +1,148 @@
+package github.abendt.highlander.jdbc;
+
+import org.junit.Rule;
+import org.junit.Test;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.Arrays;
+import java.util.Calendar;
+import java.util.Collections;
+
+import static org.fest.assertions.api.Assertions.assertThat;
+
+public class JdbcMultiGroupElectionTest {
+
+    @Rule
+    public final HighlanderInMemoryDbRule database = new HighlanderInMemoryDbRule();
+
+    @Test
+    public void oneParticipantWinsAllGroupsOnEmptyDatabase() {
+        JdbcMultiGroupElection election = new JdbcMultiGroupElection(Arrays.asList("Group1", "Group2", "Group3"));
+
+        assertThat(election.runElection(database.getConnection())).containsOnly("Group1", "Group2", "Group3");
+        assertThat(election.runElection(database.getConnection())).containsOnly("Group1", "Group2", "Group3");
+    }
+
+    @Test
+    public void secondParticipantOnlyWinsGroupsWithoutLeader() {
+        JdbcMultiGroupElection election1 = new JdbcMultiGroupElection(Arrays.asList("Group1", "Group2"));
+        JdbcMultiGroupElection election2 = new JdbcMultiGroupElection(Arrays.asList("Group2", "Group3"));
+
+        election1.runElection(database.getConnection());
+
+        assertThat(election2.runElection(database.getConnection())).containsOnly("Group3");
+        assertThat(election2.runElection(database.getConnection())).containsOnly("Group3");
+    }
+
+    @Test
+    public void winsGroupsWhenPreviousHeartBeatIsTooOld() throws SQLException {
+        Calendar cal = Calendar.getInstance();
+        cal.add(Calendar.HOUR, -1);
+
+        database.insertElection("Group1", "SomeOne", cal.getTime());
+        database.insertElection("Group2", "SomeOne", new java.util.Date());
+
+        JdbcMultiGroupElection election = new JdbcMultiGroupElection(Arrays.asList("Group1", "Group2"));
+
+        assertThat(election.runElection(database.getConnection())).containsOnly("Group1");
+    }
+
+    @Test
+    public void participantCanGiveUpLeadershipOfAllGroups() {
+        JdbcMultiGroupElection election1 = new JdbcMultiGroupElection(Arrays.asList("Group1", "Group2"));
+        JdbcMultiGroupElection election2 = new JdbcMultiGroupElection(Arrays.asList("Group1", "Group2"));
+
+        election1.runElection(database.getConnection());
+        election1.giveUpLeaderShip(database.getConnection());
+
+        assertThat(election2.runElection(database.getConnection())).containsOnly("Group1", "Group2");
+    }
+
+    @Test
+    public void leaderInsertsDeletedGroupsAgain() throws Exception {
+        JdbcMultiGroupElection election = new JdbcMultiGroupElection(Arrays.asList("Group1", "Group2"));
+
+        election.runElection(database.getConnection());
+        database.getConnection().createStatement().executeUpdate("DELETE FROM HIGHLANDER WHERE GROUPNAME='Group1'");
+
+        assertThat(election.runElection(database.getConnection())).containsOnly("Group1", "Group2");
+        assertThat(database.getHeartBean("Group1")).isNotNull();
+    }
+
+    @Test
+    public void isCompatibleWithSingleGroupElection() {
+        JdbcElection election1 = new JdbcElection("Group1");
+        JdbcMultiGroupElection election2 = new JdbcMultiGroupElection(Collections.singleton("Group1"));
+
+        assertThat(election1.runElection(database.getConnection())).isTrue();
+        assertThat(election2.runElection(database.getConnection())).isEmpty();
+    }
+
+    @Test
+    public void renewsAllGroupsWithOneRoundTrip() {
+        JdbcMultiGroupElection election = new JdbcMultiGroupElection(Arrays.asList("Group1", "Group2", "Group3"));
+
+        election.runElection(database.getConnection());
+        assertThat(election.getRoundTrips()).isEqualTo(4);
+
+        election.runElection(database.getConnection());
+        assertThat(election.getRoundTrips()).isEqualTo(1);
+    }
+
+    @Test
+    public void insertsMissingGroupsIfDriverReportsNoUpdateCounts() {
+        JdbcMultiGroupElection election1 = new JdbcMultiGroupElection(Collections.singleton("Group1"));
+        JdbcMultiGroupElection election2 = new JdbcMultiGroupElection(Arrays.asList("Group1", "Group2", "Group3"));
+
+        election1.runElection(database.getConnection());
+
+        assertThat(election2.runElection(withoutUpdateCounts(database.getConnection()))).containsOnly("Group2", "Group3");
+        assertThat(election2.runElection(withoutUpdateCounts(database.getConnection()))).containsOnly("Group2", "Group3");
+    }
+
+    /**
+     * @return the connection with batches that report {@link Statement#SUCCESS_NO_INFO} for every statement,
+     * like some drivers do
+     */
+    private static Connection withoutUpdateCounts(final Connection connection) {
+        return (Connection) Proxy.newProxyInstance(JdbcMultiGroupElectionTest.class.getClassLoader(), new Class<?>[]{Connection.class}, new InvocationHandler() {
+            @Override
+            public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+                final Object result = invokeUnwrapped(connection, method, args);
+
+                if (!method.getName().equals("prepareStatement")) {
+                    return result;
+                }
+
+                return Proxy.newProxyInstance(JdbcMultiGroupElectionTest.class.getClassLoader(), new Class<?>[]{PreparedStatement.class}, new InvocationHandler() {
+                    @Override
+                    public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+                        Object statementResult = invokeUnwrapped(result, method, args);
+
+                        if (method.getName().equals("executeBatch")) {
+                            int[] counts = (int[]) statementResult;
+                            Arrays.fill(counts, Statement.SUCCESS_NO_INFO);
+                        }
+
+                        return statementResult;
+                    }
+                });
+            }
+        });
+    }
+
+    private static Object invokeUnwrapped(Object target, Method method, Object[] args) throws Throwable {
+        try {
+            return method.invoke(target, args);
+        } catch (InvocationTargetException e) {
+            throw e.getCause();
+        }
+    }
+}
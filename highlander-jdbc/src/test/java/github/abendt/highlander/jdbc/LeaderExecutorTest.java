@@ -0,0 +1,194 @@
+package github.abendt.highlander.jdbc;
+
+import github.abendt.highlander.ElectionEvent;
+import org.junit.After;
+import org.junit.Rule;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static com.jayway.awaitility.Awaitility.await;
+import static org.fest.assertions.api.Assertions.assertThat;
+
+public class LeaderExecutorTest {
+
+    @Rule
+    public final HighlanderInMemoryDbRule database = new HighlanderInMemoryDbRule();
+
+    private final List<LeaderExecutor> executors = new ArrayList<LeaderExecutor>();
+
+    @After
+    public void shutdownExecutors() {
+        for (LeaderExecutor executor : executors) {
+            executor.shutdown();
+        }
+    }
+
+    private LeaderExecutor newLeaderExecutor(Highlander highlander) {
+        LeaderExecutor executor = new LeaderExecutor(highlander);
+        executors.add(executor);
+        return executor;
+    }
+
+    @Test
+    public void taskRunsOnlyWhileLeader() throws Exception {
+        Highlander highlander = new Highlander(database.getDataSource(), "Group");
+        LeaderExecutor executor = newLeaderExecutor(highlander);
+        BlockingTask task = new BlockingTask();
+
+        executor.submit(task);
+
+        highlander.elect();
+
+        assertThat(task.started.await(5, TimeUnit.SECONDS)).isTrue();
+        assertThat(executor.isLeading()).isTrue();
+
+        highlander.release();
+
+        assertThat(task.interrupted.await(5, TimeUnit.SECONDS)).isTrue();
+        assertThat(executor.isLeading()).isFalse();
+        assertThat(executor.getFencingVersion()).isEqualTo(ElectionEvent.UNKNOWN_VERSION);
+    }
+
+    @Test
+    public void taskIsStartedOncePerTerm() throws Exception {
+        Highlander highlander = new Highlander(database.getDataSource(), "Group");
+        LeaderExecutor executor = newLeaderExecutor(highlander);
+        BlockingTask task = new BlockingTask();
+
+        executor.submit(task);
+
+        highlander.elect();
+        highlander.elect();
+        highlander.elect();
+
+        assertThat(task.started.await(5, TimeUnit.SECONDS)).isTrue();
+        assertThat(task.starts.get()).isEqualTo(1);
+    }
+
+    @Test
+    public void taskIsInterruptedWhenRenewalIsLate() throws Exception {
+        Highlander highlander = new Highlander(database.getDataSource(), "Group");
+        highlander.heartBeatInterval = 50;
+
+        LeaderExecutor executor = newLeaderExecutor(highlander);
+        executor.setCancellationMargin(highlander.heartBeatFactor * 1000 - 200);
+        BlockingTask task = new BlockingTask();
+
+        executor.submit(task);
+
+        highlander.elect();
+
+        assertThat(task.started.await(5, TimeUnit.SECONDS)).isTrue();
+        assertThat(task.interrupted.await(5, TimeUnit.SECONDS)).isTrue();
+
+        // the renewal succeeds after all, without a change of leadership
+        highlander.elect();
+
+        await().atMost(5, TimeUnit.SECONDS).until(reached(task.starts, 2));
+    }
+
+    @Test
+    public void tasksOccupyingAllThreadsAreInterruptedWhenRenewalIsLate() throws Exception {
+        Highlander highlander = new Highlander(database.getDataSource(), "Group");
+        highlander.heartBeatInterval = 50;
+
+        LeaderExecutor executor = newLeaderExecutor(highlander);
+        executor.setCancellationMargin(highlander.heartBeatFactor * 1000 - 200);
+        List<BlockingTask> tasks = new ArrayList<BlockingTask>();
+
+        // more tasks than the two threads of the executor
+        for (int i = 0; i < 3; ++i) {
+            BlockingTask task = new BlockingTask();
+            tasks.add(task);
+            executor.submit(task);
+        }
+
+        highlander.elect();
+
+        for (BlockingTask task : tasks.subList(0, 2)) {
+            assertThat(task.started.await(5, TimeUnit.SECONDS)).isTrue();
+            assertThat(task.interrupted.await(5, TimeUnit.SECONDS)).isTrue();
+        }
+
+        assertThat(executor.isLeading()).isFalse();
+    }
+
+    @Test
+    public void periodicJobStopsWhenLeadershipIsLost() throws Exception {
+        Highlander highlander = new Highlander(database.getDataSource(), "Group");
+        LeaderExecutor executor = newLeaderExecutor(highlander);
+        final AtomicInteger runs = new AtomicInteger();
+
+        executor.scheduleAtFixedRate(new Runnable() {
+            @Override
+            public void run() {
+                runs.incrementAndGet();
+            }
+        }, 0, 10, TimeUnit.MILLISECONDS);
+
+        Thread.sleep(50);
+        assertThat(runs.get()).isEqualTo(0);
+
+        highlander.elect();
+
+        await().atMost(5, TimeUnit.SECONDS).until(reached(runs, 3));
+
+        highlander.release();
+
+        int runsAfterRelease = runs.get();
+        Thread.sleep(50);
+
+        assertThat(runs.get()).isLessThanOrEqualTo(runsAfterRelease + 1);
+    }
+
+    @Test
+    public void fencingVersionGrowsWithEveryTerm() throws Exception {
+        Highlander highlander1 = new Highlander(database.getDataSource(), "Group");
+        Highlander highlander2 = new Highlander(database.getDataSource(), "Group");
+        LeaderExecutor executor1 = newLeaderExecutor(highlander1);
+        LeaderExecutor executor2 = newLeaderExecutor(highlander2);
+
+        highlander1.elect();
+        long firstTerm = executor1.getFencingVersion();
+
+        highlander1.release();
+        highlander2.elect();
+
+        assertThat(firstTerm).isNotEqualTo(ElectionEvent.UNKNOWN_VERSION);
+        assertThat(executor2.getFencingVersion()).isGreaterThan(firstTerm);
+    }
+
+    private static Callable<Boolean> reached(final AtomicInteger counter, final int count) {
+        return new Callable<Boolean>() {
+            @Override
+            public Boolean call() throws Exception {
+                return counter.get() >= count;
+            }
+        };
+    }
+
+    private static class BlockingTask implements Runnable {
+
+        final AtomicInteger starts = new AtomicInteger();
+        final CountDownLatch started = new CountDownLatch(1);
+        final CountDownLatch interrupted = new CountDownLatch(1);
+
+        @Override
+        public void run() {
+            starts.incrementAndGet();
+            started.countDown();
+
+            try {
+                Thread.sleep(60 * 1000);
+            } catch (InterruptedException e) {
+                interrupted.countDown();
+            }
+        }
+    }
+}
@@ -0,0 +1,101 @@
+package github.abendt.highlander.jdbc;
+
+import github.abendt.highlander.ElectionEvent;
+import github.abendt.highlander.ElectionListener;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Executor;
+
+import static org.fest.assertions.api.Assertions.assertThat;
+
+public class ListenerDispatcherTest {
+
+    private final ListenerDispatcher dispatcher = new ListenerDispatcher();
+
+    private final List<Boolean> deliveredLeadership = new ArrayList<Boolean>();
+    private final List<Runnable> scheduledDeliveries = new ArrayList<Runnable>();
+
+    @Before
+    public void setUp() {
+        dispatcher.setListener(new ElectionListener() {
+            @Override
+            public void groupChanged(boolean leader) {
+                deliveredLeadership.add(leader);
+            }
+        });
+    }
+
+    @Test
+    public void deliversOnCallingThreadWithoutExecutor() {
+        dispatcher.dispatch(event(true));
+
+        assertThat(deliveredLeadership).containsExactly(true);
+    }
+
+    @Test
+    public void deliversOnExecutor() {
+        useManualExecutor();
+
+        dispatcher.dispatch(event(true));
+
+        assertThat(deliveredLeadership).isEmpty();
+
+        runScheduledDeliveries();
+
+        assertThat(deliveredLeadership).containsExactly(true);
+    }
+
+    @Test
+    public void mergesPendingEvents() {
+        useManualExecutor();
+
+        dispatcher.dispatch(event(true));
+        dispatcher.dispatch(event(false));
+        dispatcher.dispatch(event(true));
+
+        assertThat(scheduledDeliveries).hasSize(1);
+
+        runScheduledDeliveries();
+
+        assertThat(deliveredLeadership).containsExactly(true);
+    }
+
+    @Test
+    public void skipsMergedEventWithDeliveredLeadership() {
+        useManualExecutor();
+
+        dispatcher.dispatch(event(false));
+        runScheduledDeliveries();
+
+        dispatcher.dispatch(event(true));
+        dispatcher.dispatch(event(false));
+        runScheduledDeliveries();
+
+        assertThat(deliveredLeadership).containsExactly(false);
+    }
+
+    private void useManualExecutor() {
+        dispatcher.setExecutor(new Executor() {
+            @Override
+            public void execute(Runnable command) {
+                scheduledDeliveries.add(command);
+            }
+        });
+    }
+
+    private void runScheduledDeliveries() {
+        List<Runnable> deliveries = new ArrayList<Runnable>(scheduledDeliveries);
+        scheduledDeliveries.clear();
+
+        for (Runnable delivery : deliveries) {
+            delivery.run();
+        }
+    }
+
+    private ElectionEvent event(boolean leader) {
+        return new ElectionEvent("Group", leader ? "me" : null, leader, 1, System.currentTimeMillis());
+    }
+}
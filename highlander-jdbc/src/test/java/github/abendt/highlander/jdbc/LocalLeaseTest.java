@@ -0,0 +1,53 @@
+package github.abendt.highlander.jdbc;
+
+import github.abendt.highlander.ElectionEvent;
+import org.junit.Test;
+
+import static org.fest.assertions.api.Assertions.assertThat;
+
+public class LocalLeaseTest {
+
+    private final LocalLease lease = new LocalLease();
+
+    @Test
+    public void isNotValidBeforeFirstConfirmation() {
+        assertThat(lease.isValid()).isFalse();
+    }
+
+    @Test
+    public void isValidAfterConfirmation() {
+        lease.confirm(System.nanoTime(), 1000);
+
+        assertThat(lease.isValid()).isTrue();
+        assertThat(lease.remainingNanos()).isPositive();
+    }
+
+    @Test
+    public void isNotValidWhenRevoked() {
+        lease.confirm(System.nanoTime(), 1000);
+        lease.revoke();
+
+        assertThat(lease.isValid()).isFalse();
+    }
+
+    @Test
+    public void revokedLeaseHasNoVersion() {
+        lease.confirm(System.nanoTime(), 1000, 7);
+
+        assertThat(lease.version()).isEqualTo(7);
+
+        lease.revoke();
+
+        assertThat(lease.version()).isEqualTo(ElectionEvent.UNKNOWN_VERSION);
+        assertThat(lease.remainingNanos()).isEqualTo(0);
+    }
+
+    @Test
+    public void expiresWithoutRenewal() throws Exception {
+        lease.confirm(System.nanoTime(), 10);
+
+        Thread.sleep(20);
+
+        assertThat(lease.isValid()).isFalse();
+    }
+}
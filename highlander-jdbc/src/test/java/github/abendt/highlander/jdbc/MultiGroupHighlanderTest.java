@@ -0,0 +1,120 @@
+package github.abendt.highlander.jdbc;
+
+import github.abendt.highlander.ElectionClock;
+import github.abendt.highlander.ElectionListener;
+import org.junit.After;
+import org.junit.Rule;
+import org.junit.Test;
+
+import java.util.*;
+import java.util.concurrent.Callable;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static com.jayway.awaitility.Awaitility.await;
+import static org.fest.assertions.api.Assertions.assertThat;
+
+public class MultiGroupHighlanderTest {
+
+    @Rule
+    public final HighlanderInMemoryDbRule database = new HighlanderInMemoryDbRule();
+
+    private final List<MultiGroupHighlander> highlanders = new ArrayList();
+    private final Map<String, String> groupLeaders = Collections.synchronizedMap(new HashMap<String, String>());
+
+    @After
+    public void stopHighlanders() {
+        for (MultiGroupHighlander h : highlanders) {
+            h.stop();
+        }
+    }
+
+    private MultiGroupHighlander newHighlander(final String name, String... groupNames) {
+        return newHighlander(new MultiGroupHighlander(database.getDataSource(), Arrays.asList(groupNames)), name, groupNames);
+    }
+
+    private MultiGroupHighlander newHighlander(MultiGroupHighlander highlander, final String name, String... groupNames) {
+        for (final String groupName : groupNames) {
+            highlander.setListener(groupName, new ElectionListener() {
+                @Override
+                public void groupChanged(boolean leader) {
+                    if (leader) {
+                        groupLeaders.put(groupName, name);
+                    } else {
+                        groupLeaders.remove(groupName);
+                    }
+                }
+            });
+        }
+
+        highlanders.add(highlander);
+
+        return highlander;
+    }
+
+    @Test
+    public void canRunSingleElection() {
+        MultiGroupHighlander highlander = newHighlander("H1", "Group1", "Group2");
+
+        highlander.runElection();
+
+        assertThat(groupLeaders.get("Group1")).isEqualTo("H1");
+        assertThat(groupLeaders.get("Group2")).isEqualTo("H1");
+    }
+
+    @Test
+    public void secondHighlanderTakesOverAllGroupsIfFirstOneIsStopped() {
+        MultiGroupHighlander highlander1 = newHighlander("H1", "Group1", "Group2");
+        MultiGroupHighlander highlander2 = newHighlander("H2", "Group1", "Group2");
+
+        highlander1.runElection();
+        highlander2.start();
+        highlander1.stop();
+
+        await().until(groupIsLedBy("Group1", "H2"));
+        await().until(groupIsLedBy("Group2", "H2"));
+    }
+
+    @Test
+    public void lossIsAnnouncedWhenLeaseExpiresWithoutRenewal() {
+        final AtomicLong nanos = new AtomicLong();
+        FaultInjectingDataSource dataSource = new FaultInjectingDataSource(database.getDataSource(), 1);
+        MultiGroupHighlander highlander = newHighlander(
+                new MultiGroupHighlander(dataSource, Arrays.asList("Group1", "Group2")), "H1", "Group1", "Group2");
+        highlander.setClock(new ElectionClock() {
+            @Override
+            public long currentTimeMillis() {
+                return System.currentTimeMillis();
+            }
+
+            @Override
+            public long nanoTime() {
+                return nanos.get();
+            }
+        });
+
+        highlander.runElection();
+        dataSource.setDropRate(1);
+
+        nanos.set(TimeUnit.MILLISECONDS.toNanos(2000));
+        highlander.runElection();
+
+        assertThat(highlander.isLeader("Group1")).isTrue();
+        assertThat(groupLeaders.get("Group1")).isEqualTo("H1");
+
+        nanos.set(TimeUnit.MILLISECONDS.toNanos(3000));
+        highlander.runElection();
+
+        assertThat(highlander.isLeader("Group1")).isFalse();
+        assertThat(groupLeaders).isEmpty();
+    }
+
+    private Callable<Boolean> groupIsLedBy(final String groupName, final String name) {
+        return new Callable<Boolean>() {
+            @Override
+            public Boolean call() throws Exception {
+                return name.equals(groupLeaders.get(groupName));
+            }
+        };
+    }
+}
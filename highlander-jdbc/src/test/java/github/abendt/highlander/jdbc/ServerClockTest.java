@@ -0,0 +1,59 @@
+package github.abendt.highlander.jdbc;
+
+import github.abendt.highlander.ElectionClock;
+import org.junit.Rule;
+import org.junit.Test;
+
+import java.util.concurrent.TimeUnit;
+
+import static org.fest.assertions.api.Assertions.assertThat;
+
+public class ServerClockTest {
+
+    @Rule
+    public final HighlanderInMemoryDbRule database = new HighlanderInMemoryDbRule();
+
+    private final ElectionClock skewedClock = new ElectionClock() {
+        @Override
+        public long currentTimeMillis() {
+            return System.currentTimeMillis() + TimeUnit.HOURS.toMillis(1);
+        }
+
+        @Override
+        public long nanoTime() {
+            return System.nanoTime();
+        }
+    };
+
+    @Test
+    public void usesLocalClockUntilMeasured() {
+        ServerClock clock = new ServerClock(skewedClock);
+
+        assertThat(clock.currentTimeMillis() - System.currentTimeMillis()).isGreaterThan(TimeUnit.MINUTES.toMillis(59));
+        assertThat(clock.getUncertainty()).isEqualTo(0);
+    }
+
+    @Test
+    public void followsServerClockDespiteSkewedLocalClock() throws Exception {
+        ServerClock clock = new ServerClock(skewedClock);
+
+        assertThat(clock.synchronizeIfDue(database.getConnection())).isTrue();
+
+        // the in-memory database runs on the real clock of this host
+        assertThat(Math.abs(clock.currentTimeMillis() - System.currentTimeMillis())).isLessThan(1000);
+        assertThat(clock.getUncertainty()).isGreaterThan(0);
+    }
+
+    @Test
+    public void measuresAgainOnlyAfterResyncInterval() throws Exception {
+        ServerClock clock = new ServerClock(skewedClock);
+        clock.setResyncInterval(60000);
+
+        assertThat(clock.synchronizeIfDue(database.getConnection())).isTrue();
+        assertThat(clock.synchronizeIfDue(database.getConnection())).isFalse();
+
+        clock.setResyncInterval(0);
+
+        assertThat(clock.synchronizeIfDue(database.getConnection())).isTrue();
+    }
+}
@@ -0,0 +1,284 @@
+package github.abendt.highlander.jdbc;
+
+import github.abendt.highlander.ElectionClock;
+import github.abendt.highlander.ShardListener;
+import org.h2.jdbcx.JdbcDataSource;
+import org.junit.After;
+import org.junit.Rule;
+import org.junit.Test;
+
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.*;
+import java.util.concurrent.Callable;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static com.jayway.awaitility.Awaitility.await;
+import static org.fest.assertions.api.Assertions.assertThat;
+
+public class ShardedHighlanderTest {
+
+    @Rule
+    public final HighlanderInMemoryDbRule database = new HighlanderInMemoryDbRule();
+
+    private final List<ShardedHighlander> highlanders = new ArrayList<ShardedHighlander>();
+    private final Map<ShardedHighlander, Set<Integer>> announcedShards = Collections.synchronizedMap(new HashMap<ShardedHighlander, Set<Integer>>());
+
+    @After
+    public void stopHighlanders() {
+        for (ShardedHighlander h : highlanders) {
+            h.stop();
+        }
+    }
+
+    private ShardedHighlander newHighlander(String groupName, int shardCount) {
+        final ShardedHighlander highlander = new ShardedHighlander(database.getDataSource(), groupName, shardCount);
+
+        highlander.setListener(new ShardListener() {
+            @Override
+            public void shardsChanged(String groupName, Set<Integer> shards) {
+                announcedShards.put(highlander, shards);
+            }
+        });
+
+        highlanders.add(highlander);
+
+        return highlander;
+    }
+
+    @Test
+    public void singleParticipantOwnsAllShards() throws Exception {
+        ShardedHighlander highlander = newHighlander("Group", 4);
+
+        assertThat(highlander.elect()).containsOnly(0, 1, 2, 3);
+        assertThat(announcedShards.get(highlander)).containsOnly(0, 1, 2, 3);
+    }
+
+    @Test
+    public void shardsAreSpreadWhenParticipantJoins() throws Exception {
+        ShardedHighlander highlander1 = newHighlander("Group", 4);
+        ShardedHighlander highlander2 = newHighlander("Group", 4);
+
+        highlander1.elect();
+        highlander2.elect();
+        highlander1.elect();
+        highlander2.elect();
+
+        Set<Integer> shards1 = highlander1.getOwnedShards();
+        Set<Integer> shards2 = highlander2.getOwnedShards();
+
+        assertThat(shards1).hasSize(2);
+        assertThat(shards2).hasSize(2);
+
+        Set<Integer> allShards = new HashSet<Integer>(shards1);
+        allShards.addAll(shards2);
+
+        assertThat(allShards).containsOnly(0, 1, 2, 3);
+        assertThat(announcedShards.get(highlander2)).isEqualTo(shards2);
+    }
+
+    @Test
+    public void participantsOwnAtMostTheirShare() throws Exception {
+        ShardedHighlander highlander1 = newHighlander("Group", 2);
+        ShardedHighlander highlander2 = newHighlander("Group", 2);
+        ShardedHighlander highlander3 = newHighlander("Group", 2);
+
+        for (int i = 0; i < 2; ++i) {
+            highlander1.elect();
+            highlander2.elect();
+            highlander3.elect();
+        }
+
+        int owned = highlander1.getOwnedShards().size() + highlander2.getOwnedShards().size() + highlander3.getOwnedShards().size();
+
+        assertThat(owned).isEqualTo(2);
+        assertThat(highlander1.getOwnedShards().size()).isLessThanOrEqualTo(1);
+    }
+
+    @Test
+    public void groupsWithSimilarNamesDoNotShareMembers() throws Exception {
+        ShardedHighlander highlander1 = newHighlander("Group_", 2);
+        ShardedHighlander highlander2 = newHighlander("GroupX", 2);
+
+        highlander1.elect();
+        highlander2.elect();
+        highlander1.elect();
+
+        assertThat(highlander1.getOwnedShards()).containsOnly(0, 1);
+        assertThat(highlander2.getOwnedShards()).containsOnly(0, 1);
+    }
+
+    @Test
+    public void remainingParticipantTakesOverShardsOfStoppedOne() throws Exception {
+        ShardedHighlander highlander1 = newHighlander("Group", 4);
+        final ShardedHighlander highlander2 = newHighlander("Group", 4);
+
+        highlander1.elect();
+        highlander2.elect();
+        highlander1.elect();
+        highlander2.elect();
+
+        highlander1.stop();
+
+        assertThat(announcedShards.get(highlander1)).isEmpty();
+
+        highlander2.start();
+
+        await().until(new Callable<Boolean>() {
+            @Override
+            public Boolean call() throws Exception {
+                Set<Integer> shards = announcedShards.get(highlander2);
+                return shards != null && shards.size() == 4;
+            }
+        });
+    }
+
+    @Test
+    public void shardsAreSplitEvenlyWithExtraShardsForFirstMembers() throws Exception {
+        List<ShardedHighlander> members = new ArrayList<ShardedHighlander>();
+
+        for (int i = 0; i < 3; ++i) {
+            members.add(newHighlander("Group", 4));
+        }
+
+        for (int round = 0; round < 3; ++round) {
+            for (ShardedHighlander member : members) {
+                member.elect();
+            }
+        }
+
+        ShardedHighlander first = members.get(0);
+        int owned = 0;
+
+        for (ShardedHighlander member : members) {
+            owned += member.getOwnedShards().size();
+            assertThat(member.getOwnedShards().size()).isGreaterThanOrEqualTo(1);
+
+            if (member.getParticipantId().compareTo(first.getParticipantId()) < 0) {
+                first = member;
+            }
+        }
+
+        assertThat(owned).isEqualTo(4);
+        assertThat(first.getOwnedShards()).hasSize(2);
+    }
+
+    @Test
+    public void stoppedMemberDeletesItsMembershipRow() throws Exception {
+        ShardedHighlander highlander1 = newHighlander("Group", 2);
+        ShardedHighlander highlander2 = newHighlander("Group", 2);
+
+        highlander1.elect();
+        highlander2.elect();
+
+        highlander1.stop();
+
+        assertThat(membershipRows("Group")).isEqualTo(1);
+    }
+
+    @Test
+    public void expiredMembershipRowsArePurged() throws Exception {
+        database.getConnection().createStatement().executeUpdate("INSERT INTO HIGHLANDER (GROUPNAME, ID, HEARTBEAT, VERSION) " +
+                "VALUES ('Group@crashed', 'crashed', TIMESTAMP '2000-01-01 00:00:00', 0)");
+        database.getConnection().createStatement().executeUpdate("INSERT INTO HIGHLANDER (GROUPNAME, ID, HEARTBEAT, VERSION) " +
+                "VALUES ('Group@released', NULL, NULL, 1)");
+
+        ShardedHighlander highlander = newHighlander("Group", 2);
+
+        assertThat(highlander.elect()).containsOnly(0, 1);
+        assertThat(membershipRows("Group")).isEqualTo(1);
+    }
+
+    @Test
+    public void shardsAreLostWhenLeaseRunsOutWithoutDatabase() throws Exception {
+        final AtomicBoolean unreachable = new AtomicBoolean();
+
+        JdbcDataSource dataSource = new JdbcDataSource() {
+            @Override
+            public Connection getConnection() throws SQLException {
+                if (unreachable.get()) {
+                    throw new SQLException("database is unreachable");
+                }
+                return super.getConnection();
+            }
+        };
+        dataSource.setURL("jdbc:h2:mem:highlander");
+        dataSource.setUser("sa");
+
+        final ShardedHighlander highlander = new ShardedHighlander(dataSource, "Group", 2);
+        highlander.setHeartBeatInterval(50);
+        highlander.setListener(new ShardListener() {
+            @Override
+            public void shardsChanged(String groupName, Set<Integer> shards) {
+                announcedShards.put(highlander, shards);
+            }
+        });
+
+        assertThat(highlander.elect()).containsOnly(0, 1);
+
+        unreachable.set(true);
+        highlander.runElection();
+
+        assertThat(highlander.getOwnedShards()).containsOnly(0, 1);
+
+        Thread.sleep(200);
+
+        assertThat(highlander.getOwnedShards()).isEmpty();
+
+        highlander.runElection();
+
+        assertThat(announcedShards.get(highlander)).isEmpty();
+    }
+
+    @Test
+    public void shardLeasesRunOnGivenClock() throws Exception {
+        final AtomicLong nanos = new AtomicLong();
+        ShardedHighlander highlander = newHighlander("Group", 2);
+        highlander.setClock(new ElectionClock() {
+            @Override
+            public long currentTimeMillis() {
+                return System.currentTimeMillis();
+            }
+
+            @Override
+            public long nanoTime() {
+                return nanos.get();
+            }
+        });
+
+        assertThat(highlander.elect()).containsOnly(0, 1);
+
+        nanos.set(TimeUnit.MILLISECONDS.toNanos(2999));
+        assertThat(highlander.getOwnedShards()).containsOnly(0, 1);
+
+        nanos.set(TimeUnit.MILLISECONDS.toNanos(3000));
+        assertThat(highlander.getOwnedShards()).isEmpty();
+    }
+
+    @Test
+    public void membersOnServerClockShareShards() throws Exception {
+        ShardedHighlander highlander1 = newHighlander("Group", 2);
+        ShardedHighlander highlander2 = newHighlander("Group", 2);
+        highlander1.setServerClock(true);
+        highlander2.setServerClock(true);
+
+        highlander1.elect();
+        highlander2.elect();
+        highlander1.elect();
+        highlander2.elect();
+
+        assertThat(highlander1.getOwnedShards()).hasSize(1);
+        assertThat(highlander2.getOwnedShards()).hasSize(1);
+    }
+
+    private int membershipRows(String groupName) throws SQLException {
+        ResultSet rs = database.getConnection().createStatement()
+                .executeQuery("SELECT COUNT(*) FROM HIGHLANDER WHERE GROUPNAME LIKE '" + groupName + "@%'");
+
+        rs.next();
+        return rs.getInt(1);
+    }
+}